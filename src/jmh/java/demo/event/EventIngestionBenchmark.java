@@ -0,0 +1,107 @@
+package demo.event;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.alert.AlertDispatcher;
+import demo.alert.AlertProperties;
+import demo.stream.StreamHub;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmarks how Burrow notifications are ingested, with the sample payloads of tools/compose/burrow/sample:
+ * parsing, appending to the {@link EventStore}, and both through {@link EventController}.
+ * Run from the project directory, where the samples are read from. A sample holds the headers and the body
+ * of a request, only the body is ingested.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EventIngestionBenchmark {
+
+    private static final String SAMPLE_DIR = "tools/compose/burrow/sample";
+
+    @Param({ "http-post2-sample.json", "http-post-sample.json", "http-delete-sample.json" })
+    private String sample;
+
+    private String body;
+    private byte[] content;
+    private EventType type;
+    private Event event;
+    private BurrowEventParser parser;
+    private EventStore store;
+    private EventLogger eventLogger;
+    private EventController controller;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final JsonNode request = objectMapper.readTree(new File(SAMPLE_DIR, sample));
+        content = objectMapper.writeValueAsBytes(request.get("body"));
+        body = new String(content, StandardCharsets.UTF_8);
+        type = sample.contains("delete") ? EventType.CLOSE : EventType.OPEN;
+        parser = new BurrowEventParser(objectMapper);
+        event = parser.parse(new StringReader(body), "burrow-1");
+        store = new EventStore(10000);
+        eventLogger = new EventLogger();
+        final EventJournal journal = new EventJournal(new EventJournalProperties());
+        controller = new EventController(new EventHistory(store, journal),
+                                         new EventRecorder(store, eventLogger, new StreamHub(1000, 0L), journal,
+                                                           new IncidentTable(1000),
+                                                           new AlertDispatcher(new AlertProperties(),
+                                                                               Collections.emptyMap(),
+                                                                               new SimpleMeterRegistry())),
+                                         parser);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        eventLogger.tearDown();
+    }
+
+    @Benchmark
+    public Event parse() throws IOException {
+        return parser.parse(new StringReader(body), "burrow-1");
+    }
+
+    @Benchmark
+    public StoredEvent append() {
+        return store.append(type, event);
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> handleEvent() {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("burrowId", "burrow-1");
+        request.setContentType("application/json");
+        request.setContent(content);
+        return type == EventType.OPEN ? controller.handleOpenEvent(request) : controller.handleCloseEvent(request);
+    }
+}
@@ -0,0 +1,101 @@
+package demo.storm;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import demo.cluster.KafkaCluster;
+import demo.storm.StormStep.Action;
+import demo.worker.BenchmarkKafka;
+import demo.worker.WorkerScheduler;
+
+/**
+ * Compares the assignors under the same {@link RebalanceStorm} against an embedded broker.
+ * <p>
+ * An invocation is a whole run, the score is its duration and the cost of the rebalances is reported as
+ * secondary results: "stopTheWorldMills", "maxGapMills", "reprocessed", "lagSpike" and "revocations".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(1)
+public class RebalanceStormBenchmark {
+
+    @Param({ "range", "sticky", "cooperative-sticky" })
+    private String assignor;
+
+    private BenchmarkKafka kafka;
+    private WorkerScheduler scheduler;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Cost {
+        public long stopTheWorldMills;
+        public long maxGapMills;
+        public long reprocessed;
+        public long lagSpike;
+        public long revocations;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kafka = new BenchmarkKafka(1);
+        scheduler = new WorkerScheduler(8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.tearDown();
+        kafka.close();
+    }
+
+    @Benchmark
+    public StormReport storm(Cost cost) throws InterruptedException, ExecutionException {
+        final StormScenario scenario = StormScenario.builder()
+                                                    .assignor(Assignor.of(assignor))
+                                                    .partitions(12)
+                                                    .initialConsumers(4)
+                                                    .warmupMills(10000L)
+                                                    .durationMills(40000L)
+                                                    .produceRate(2000D)
+                                                    .steps(Arrays.asList(step(12000L, Action.ADD, 1),
+                                                                         step(18000L, Action.RESTART, 1),
+                                                                         step(24000L, Action.REMOVE, 1),
+                                                                         step(30000L, Action.ADD, 2)))
+                                                    .build();
+        final KafkaCluster cluster = KafkaCluster.builder()
+                                                 .name("benchmark")
+                                                 .bootstrapServers(kafka.bootstrapServers())
+                                                 .properties(Collections.emptyMap())
+                                                 .build();
+        final StormReport report = new RebalanceStorm(cluster, scenario, scheduler).run();
+        cost.stopTheWorldMills = report.getStopTheWorldMills();
+        cost.maxGapMills = report.getMaxGapMills();
+        cost.reprocessed = report.getReprocessed();
+        cost.lagSpike = report.getLagSpike();
+        cost.revocations = report.getRevocations();
+        return report;
+    }
+
+    private static StormStep step(long atMills, Action action, int count) {
+        return StormStep.builder().atMills(atMills).action(action).count(count).build();
+    }
+}
@@ -0,0 +1,130 @@
+package demo.worker;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmarks the {@link ConsumeWorker} loop against an embedded broker preloaded with {@link #RECORDS} records.
+ * <p>
+ * Every iteration starts a new consumer group from the beginning of the topic. An invocation runs the loop,
+ * waiting the returned delays the way the {@link WorkerScheduler} would, until {@link #BATCH} more records
+ * were processed, so the score is processed records per second and "gc.alloc.rate.norm" is bytes per record.
+ * An iteration which drains the topic fails rather than reporting a wrong score. {@code format} compares the
+ * allocation of records decoded into strings with byte arrays, which the consumer hands out as fetched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConsumeWorkerBenchmark {
+
+    private static final String TOPIC = "bench-consume";
+    private static final int PARTITIONS = 3;
+    private static final int RECORDS = 2_000_000;
+    private static final int BATCH = 1000;
+    // the longest an invocation waits for a batch before it gives up on a drained topic
+    private static final long BATCH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10L);
+
+    @Param({ "false", "true" })
+    private boolean parallel;
+
+    @Param({ "STRING", "BYTES" })
+    private PayloadFormat format;
+
+    private BenchmarkKafka kafka;
+    private WorkerScheduler scheduler;
+    private ConsumeWorker<?> worker;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kafka = new BenchmarkKafka(PARTITIONS, TOPIC);
+        scheduler = new WorkerScheduler(0);
+        final PayloadGenerator payloadGenerator = new PayloadGenerator(new LoadProfile());
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(kafka.producerProps())) {
+            for (int i = 0; i < RECORDS; i++) {
+                producer.send(new ProducerRecord<>(TOPIC, payloadGenerator.nextKey(),
+                                                   payloadGenerator.nextPayload()));
+            }
+            producer.flush();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startWorker() {
+        final String groupId = "bench-" + UUID.randomUUID();
+        final Map<String, Object> props = kafka.consumerProps(groupId);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, format.getDeserializer());
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, format.getDeserializer());
+        final KafkaConsumer<Object, Object> consumer = new KafkaConsumer<>(props);
+        final List<TopicPartition> partitions = IntStream.range(0, PARTITIONS)
+                                                         .mapToObj(p -> new TopicPartition(TOPIC, p))
+                                                         .collect(Collectors.toList());
+        // assign instead of subscribe, so that no iteration measures a rebalance
+        consumer.assign(partitions);
+        consumer.seekToBeginning(partitions);
+        // finds the group coordinator up front, which the first commits would fail on otherwise
+        consumer.committed(new HashSet<>(partitions));
+        final ConsumeOptions options = ConsumeOptions.builder().parallel(parallel).build();
+        final WorkerMetrics metrics = WorkerMetrics.consumer(new SimpleMeterRegistry(), "consumer-bench", TOPIC);
+        metrics.register();
+        worker = new ConsumeWorker<>("consumer-bench", 0L, consumer, TOPIC, groupId, 0L, false, options,
+                                     WorkerListener.NOOP, metrics, scheduler);
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopWorker() {
+        worker.onStop();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.tearDown();
+        kafka.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void pollLoop() {
+        final long target = worker.getProcessed() + BATCH;
+        final long deadline = System.nanoTime() + BATCH_TIMEOUT_NANOS;
+        while (worker.getProcessed() < target) {
+            if (System.nanoTime() - deadline > 0L) {
+                throw new IllegalStateException("Topic drained, lower the iteration time or raise RECORDS");
+            }
+            final long delayNanos = worker.workInternal();
+            if (delayNanos > 0L) {
+                LockSupport.parkNanos(delayNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package demo.worker;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmarks what idempotence and transactions cost the pipelined {@link ProduceWorker} loop against an embedded
+ * broker, with 100 records in flight.
+ * <p>
+ * The score is acknowledged records per second, as in {@link ProduceWorkerBenchmark}. {@code delivery} is
+ * "at-least-once", "idempotent", or "transactional-N" for transactions of N records. The commits of an iteration
+ * and the time spent committing are reported as the secondary results "commits" and "commitMills", so that
+ * commitMills / commits is the mean commit latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ExactlyOnceBenchmark {
+
+    private static final String TOPIC = "bench-exactly-once";
+    private static final int BATCH = 1000;
+    // nothing wakes up a worker which isn't started, so a parked run is retried shortly instead
+    private static final long PARK_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(100L);
+    private static final int MAX_IN_FLIGHT = 100;
+
+    @Param({ "at-least-once", "idempotent", "transactional-100", "transactional-1000" })
+    private String delivery;
+
+    private BenchmarkKafka kafka;
+    private WorkerScheduler scheduler;
+    private ProduceWorker<byte[]> worker;
+    private WorkerMetrics metrics;
+    private Timer commitLatency;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Commits {
+        public long commits;
+        public double commitMills;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kafka = new BenchmarkKafka(3, TOPIC);
+        scheduler = new WorkerScheduler(1);
+        final LoadProfile profile = new LoadProfile();
+        final Map<String, Object> props = kafka.producerProps();
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        if ("idempotent".equals(delivery)) {
+            props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        } else if (delivery.startsWith("transactional-")) {
+            profile.setRecordsPerTransaction(Integer.parseInt(delivery.substring("transactional-".length())));
+            props.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, "bench-" + UUID.randomUUID());
+        }
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        metrics = WorkerMetrics.producer(registry, "producer-bench", TOPIC);
+        metrics.register();
+        commitLatency = registry.get(WorkerMetrics.COMMIT_LATENCY).timer();
+        worker = new ProduceWorker<>("producer-bench", new KafkaProducer<>(props), TOPIC,
+                                     new PayloadGenerator(profile).payloads(), 0D, MAX_IN_FLIGHT, metrics,
+                                     scheduler);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        worker.onStop();
+        scheduler.tearDown();
+        kafka.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void sendLoop(Commits commits) {
+        final long target = metrics.getTotalRecords() + BATCH;
+        final long startCommits = commitLatency.count();
+        final double startCommitMills = commitLatency.totalTime(TimeUnit.MILLISECONDS);
+        while (metrics.getTotalRecords() < target) {
+            final long delayNanos = worker.workInternal();
+            if (delayNanos > 0L) {
+                LockSupport.parkNanos(delayNanos == AbstractWorker.PARK ? PARK_RETRY_NANOS : delayNanos);
+            }
+        }
+        commits.commits += commitLatency.count() - startCommits;
+        commits.commitMills += commitLatency.totalTime(TimeUnit.MILLISECONDS) - startCommitMills;
+    }
+}
@@ -0,0 +1,104 @@
+package demo.worker;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmarks the pipelined {@link ProduceWorker} loop against an embedded broker.
+ * <p>
+ * An invocation runs the loop, waiting the returned delays the way the {@link WorkerScheduler} would, until
+ * {@link #BATCH} more records were acknowledged, so the score is acknowledged records per second and
+ * "gc.alloc.rate.norm" is bytes per record. {@code maxInFlight=1} is the closest to the synchronous mode
+ * without its interval. {@code format} compares the allocation of string records, encoded by the producer on every
+ * send, with the pooled byte arrays encoded once which the workers send.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ProduceWorkerBenchmark {
+
+    private static final String TOPIC = "bench-produce";
+    private static final int BATCH = 1000;
+    // nothing wakes up a worker which isn't started, so a parked run is retried shortly instead
+    private static final long PARK_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(100L);
+
+    @Param({ "1", "100", "1000" })
+    private int maxInFlight;
+
+    @Param({ "16", "1024" })
+    private int payloadSize;
+
+    @Param({ "STRING", "BYTES" })
+    private PayloadFormat format;
+
+    private BenchmarkKafka kafka;
+    private ProduceWorker<?> worker;
+    private WorkerScheduler scheduler;
+    private Counter acknowledged;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kafka = new BenchmarkKafka(3, TOPIC);
+        scheduler = new WorkerScheduler(1);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final LoadProfile profile = new LoadProfile();
+        profile.setPayloadSize(payloadSize);
+        final WorkerMetrics metrics = WorkerMetrics.producer(registry, "producer-bench", TOPIC);
+        metrics.register();
+        final PayloadGenerator generator = new PayloadGenerator(profile);
+        final Payloads<?> payloads = format == PayloadFormat.BYTES ? generator.payloads() : generator;
+        worker = createWorker(payloads, metrics);
+        acknowledged = registry.get(WorkerMetrics.RECORDS).counter();
+    }
+
+    private <T> ProduceWorker<T> createWorker(Payloads<T> payloads, WorkerMetrics metrics) {
+        final Map<String, Object> props = kafka.producerProps();
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, format.getSerializer());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, format.getSerializer());
+        return new ProduceWorker<>("producer-bench", new KafkaProducer<>(props), TOPIC, payloads, 0D, maxInFlight,
+                                   metrics, scheduler);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        worker.onStop();
+        scheduler.tearDown();
+        kafka.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void sendLoop() {
+        final double target = acknowledged.count() + BATCH;
+        while (acknowledged.count() < target) {
+            final long delayNanos = worker.workInternal();
+            if (delayNanos > 0L) {
+                LockSupport.parkNanos(delayNanos == AbstractWorker.PARK ? PARK_RETRY_NANOS : delayNanos);
+            }
+        }
+    }
+}
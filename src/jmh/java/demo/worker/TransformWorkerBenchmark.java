@@ -0,0 +1,144 @@
+package demo.worker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmarks the {@link TransformWorker} loop against an embedded broker preloaded with {@link #RECORDS} records,
+ * copying them to another topic in transactions of up to {@code recordsPerTransaction} records.
+ * <p>
+ * Every iteration starts a new consumer group and transactional producer from the beginning of the topic. The
+ * score is records copied and committed per second, to compare with {@link ConsumeWorkerBenchmark}, and the
+ * commits of an iteration and the time spent committing are reported as the secondary results "commits" and
+ * "commitMills". An iteration which drains the topic fails rather than reporting a wrong score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransformWorkerBenchmark {
+
+    private static final String TOPIC = "bench-transform";
+    private static final String OUTPUT_TOPIC = "bench-transform-out";
+    private static final int PARTITIONS = 3;
+    private static final int RECORDS = 2_000_000;
+    private static final int BATCH = 1000;
+    // the longest an invocation waits for a batch before it gives up on a drained topic
+    private static final long BATCH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10L);
+
+    @Param({ "100", "500", "2000" })
+    private int recordsPerTransaction;
+
+    private BenchmarkKafka kafka;
+    private WorkerScheduler scheduler;
+    private TransformWorker<String> worker;
+    private WorkerMetrics metrics;
+    private Timer commitLatency;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Commits {
+        public long commits;
+        public double commitMills;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kafka = new BenchmarkKafka(PARTITIONS, TOPIC, OUTPUT_TOPIC);
+        scheduler = new WorkerScheduler(0);
+        final PayloadGenerator payloadGenerator = new PayloadGenerator(new LoadProfile());
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(kafka.producerProps())) {
+            for (int i = 0; i < RECORDS; i++) {
+                producer.send(new ProducerRecord<>(TOPIC, payloadGenerator.nextKey(),
+                                                   payloadGenerator.nextPayload()));
+            }
+            producer.flush();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startWorker() {
+        final String groupId = "bench-" + UUID.randomUUID();
+        final Map<String, Object> consumerProps = kafka.consumerProps(groupId);
+        consumerProps.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, recordsPerTransaction);
+        final KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps);
+        final List<TopicPartition> partitions = IntStream.range(0, PARTITIONS)
+                                                         .mapToObj(p -> new TopicPartition(TOPIC, p))
+                                                         .collect(Collectors.toList());
+        // assign instead of subscribe, so that no iteration measures a rebalance
+        consumer.assign(partitions);
+        consumer.seekToBeginning(partitions);
+        final Map<String, Object> producerProps = kafka.producerProps();
+        producerProps.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, groupId);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        metrics = WorkerMetrics.transformer(registry, "transformer-bench", TOPIC);
+        metrics.register();
+        commitLatency = registry.get(WorkerMetrics.COMMIT_LATENCY).timer();
+        worker = new TransformWorker<>("transformer-bench", consumer, new KafkaProducer<>(producerProps), TOPIC,
+                                       OUTPUT_TOPIC, groupId, metrics, scheduler);
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopWorker() {
+        worker.onStop();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.tearDown();
+        kafka.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void transformLoop(Commits commits) {
+        final long target = metrics.getTotalRecords() + BATCH;
+        final long deadline = System.nanoTime() + BATCH_TIMEOUT_NANOS;
+        final long startCommits = commitLatency.count();
+        final double startCommitMills = commitLatency.totalTime(TimeUnit.MILLISECONDS);
+        while (metrics.getTotalRecords() < target) {
+            if (System.nanoTime() - deadline > 0L) {
+                throw new IllegalStateException("Topic drained, lower the iteration time or raise RECORDS");
+            }
+            final long delayNanos = worker.workInternal();
+            if (delayNanos > 0L) {
+                LockSupport.parkNanos(delayNanos);
+            }
+        }
+        commits.commits += commitLatency.count() - startCommits;
+        commits.commitMills += commitLatency.totalTime(TimeUnit.MILLISECONDS) - startCommitMills;
+    }
+}
@@ -0,0 +1,62 @@
+package demo.alert;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.google.common.collect.ImmutableMap;
+
+import demo.event.StoredEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/alert")
+@RequiredArgsConstructor
+public class AlertController {
+
+    private final AlertDispatcher alertDispatcher;
+    private final AtomicLong stubBatches = new AtomicLong();
+    private final AtomicLong stubEvents = new AtomicLong();
+
+    /**
+     * Handle "GET /api/alert" to get the queue depth and the delivery counts of every alert sink.
+     */
+    @GetMapping
+    public ResponseEntity<AlertStats> getStats() {
+        return ResponseEntity.ok(alertDispatcher.getStats());
+    }
+
+    /**
+     * Handle "POST /api/alert/stub?status=503" to receive the batches of the webhook sink locally, answering with
+     * the given status so that retries can be tried out.
+     */
+    @PostMapping("/stub")
+    public ResponseEntity<Void> receiveStub(@RequestBody List<StoredEvent> batch,
+                                            @RequestParam(value = "status", required = false, defaultValue = "200")
+                                                    int status) {
+        logger.debug("Alert stub received {} events, answering {}", batch.size(), status);
+        if (status / 100 == 2) {
+            stubBatches.incrementAndGet();
+            stubEvents.addAndGet(batch.size());
+        }
+        return ResponseEntity.status(status).build();
+    }
+
+    /**
+     * Handle "GET /api/alert/stub" to get the batches and events accepted by the stub.
+     */
+    @GetMapping("/stub")
+    public ResponseEntity<?> getStub() {
+        return ResponseEntity.ok(ImmutableMap.of("batches", stubBatches.get(), "events", stubEvents.get()));
+    }
+}
@@ -0,0 +1,379 @@
+package demo.alert;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.alert.AlertProperties.OverflowPolicy;
+import demo.cluster.ClusterRegistry;
+import demo.event.StoredEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Forwards recorded events to the enabled {@link AlertSink}s without holding up the thread which recorded them.
+ * <p>
+ * {@link #submit(StoredEvent)} only enqueues the event into a bounded queue, applying the
+ * {@link OverflowPolicy} when it is full. A dispatcher thread takes the events in batches of up to
+ * {@code batch-size}, waiting at most {@code linger} after the first event of a batch, and hands every batch to
+ * a thread per sink. A sink retries a failed batch with an exponential backoff and drops it after its last
+ * attempt. A sink which falls {@code sink-queue-batches} behind drops the next batches, so that it neither
+ * delays nor fails the other sinks, unless the policy is {@link OverflowPolicy#BLOCK}, in which case the
+ * dispatcher waits for it and the submitters wait up to {@code block-timeout} once the queue is full.
+ */
+@Slf4j
+@Component
+public class AlertDispatcher {
+
+    public static final String QUEUE_DEPTH = "alert.queue.depth";
+    public static final String SINK_PENDING = "alert.sink.pending";
+    public static final String SENT = "alert.sent";
+    public static final String RETRIES = "alert.retries";
+    public static final String DROPPED = "alert.dropped";
+    public static final String DISPATCH_LATENCY = "alert.dispatch.latency";
+
+    private static final long POLL_TIMEOUT_MILLS = 100L;
+    private static final long SHUTDOWN_TIMEOUT_MILLS = 5000L;
+
+    private final AlertProperties properties;
+    private final BlockingQueue<Alert> queue;
+    private final List<SinkWorker> sinkWorkers;
+    private final Counter droppedOverflow;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    @Autowired
+    public AlertDispatcher(AlertProperties properties, ClusterRegistry clusterRegistry, ObjectMapper objectMapper,
+                           RestTemplateBuilder restTemplateBuilder, MeterRegistry registry) {
+        this(properties, createSinks(properties, clusterRegistry, objectMapper, restTemplateBuilder), registry);
+    }
+
+    /**
+     * Creates a dispatcher to the given sinks, each one retrying as configured by its settings. A dispatcher
+     * without sinks drops every event without starting any thread.
+     */
+    public AlertDispatcher(AlertProperties properties, Map<AlertSink, AlertProperties.Sink> sinks,
+                           MeterRegistry registry) {
+        this.properties = checkNotNull(properties, "properties");
+        checkArgument(properties.getQueueCapacity() > 0, "queueCapacity must be greater than 0");
+        checkArgument(properties.getBatchSize() > 0, "batchSize must be greater than 0");
+        checkArgument(properties.getSinkQueueBatches() > 0, "sinkQueueBatches must be greater than 0");
+
+        queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        sinkWorkers = sinks.entrySet().stream()
+                           .map(e -> new SinkWorker(e.getKey(), e.getValue(), registry))
+                           .collect(Collectors.toList());
+        Gauge.builder(QUEUE_DEPTH, queue, BlockingQueue::size)
+             .description("Events waiting for the alert dispatcher")
+             .register(registry);
+        droppedOverflow = Counter.builder(DROPPED)
+                                 .description("Events dropped before reaching a sink")
+                                 .tags("sink", "queue", "reason", "overflow")
+                                 .register(registry);
+        if (sinkWorkers.isEmpty()) {
+            dispatcher = null;
+            return;
+        }
+        dispatcher = new Thread(this::dispatch, "alert-dispatcher");
+        dispatcher.setDaemon(true);
+        sinkWorkers.forEach(worker -> worker.thread.start());
+        dispatcher.start();
+        logger.info("Dispatching alerts to {}", sinkWorkers.stream().map(w -> w.sink.getName())
+                                                         .collect(Collectors.toList()));
+    }
+
+    /**
+     * Stops accepting events, then gives the queued events a few seconds to reach the sinks before closing them.
+     */
+    @PreDestroy
+    public void tearDown() throws InterruptedException {
+        running = false;
+        if (dispatcher == null) {
+            return;
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MILLS);
+        join(dispatcher, deadline);
+        for (SinkWorker worker : sinkWorkers) {
+            join(worker.thread, deadline);
+            worker.sink.close();
+        }
+    }
+
+    /**
+     * Enqueues an event for the sinks and returns without waiting for them. Returns false if the event was
+     * dropped, either by the overflow policy or because no sink is enabled.
+     */
+    public boolean submit(StoredEvent event) {
+        if (dispatcher == null || !running) {
+            return false;
+        }
+        final Alert alert = new Alert(event, System.nanoTime());
+        switch (properties.getOverflow()) {
+            case DROP_OLDEST:
+                while (!queue.offer(alert)) {
+                    if (queue.poll() != null) {
+                        drop(1L);
+                    }
+                }
+                return true;
+            case BLOCK:
+                try {
+                    if (queue.offer(alert, properties.getBlockTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                drop(1L);
+                return false;
+            case DROP_NEWEST:
+            default:
+                if (queue.offer(alert)) {
+                    return true;
+                }
+                drop(1L);
+                return false;
+        }
+    }
+
+    public AlertStats getStats() {
+        return AlertStats.builder()
+                         .queueDepth(queue.size())
+                         .queueCapacity(properties.getQueueCapacity())
+                         .overflow(properties.getOverflow())
+                         .dropped(dropped.sum())
+                         .sinks(sinkWorkers.stream().map(SinkWorker::getStats).collect(Collectors.toList()))
+                         .build();
+    }
+
+    private void drop(long count) {
+        dropped.add(count);
+        droppedOverflow.increment(count);
+    }
+
+    private void dispatch() {
+        final long lingerNanos = properties.getLinger().toNanos();
+        List<Alert> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                final Alert first = queue.poll(POLL_TIMEOUT_MILLS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                final long deadline = first.enqueuedNanos + lingerNanos;
+                while (batch.size() < properties.getBatchSize()) {
+                    queue.drainTo(batch, properties.getBatchSize() - batch.size());
+                    final long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= properties.getBatchSize() || remaining <= 0L || !running) {
+                        break;
+                    }
+                    final Alert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                final List<Alert> dispatched = Collections.unmodifiableList(batch);
+                for (SinkWorker worker : sinkWorkers) {
+                    worker.offer(dispatched);
+                }
+                batch = new ArrayList<>(properties.getBatchSize());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.warn("Exception occur while dispatching alerts", e);
+                batch.clear();
+            }
+        }
+    }
+
+    private static void join(Thread thread, long deadline) throws InterruptedException {
+        final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        thread.join(Math.max(1L, remaining));
+        if (thread.isAlive()) {
+            logger.warn("{} didn't finish in time, interrupting it", thread.getName());
+            thread.interrupt();
+        }
+    }
+
+    private static Map<AlertSink, AlertProperties.Sink> createSinks(AlertProperties properties,
+                                                                    ClusterRegistry clusterRegistry,
+                                                                    ObjectMapper objectMapper,
+                                                                    RestTemplateBuilder restTemplateBuilder) {
+        final Map<AlertSink, AlertProperties.Sink> sinks = new LinkedHashMap<>();
+        if (properties.getFile().isEnabled()) {
+            sinks.put(new FileAlertSink(properties.getFile().getPath(), objectMapper), properties.getFile());
+        }
+        if (properties.getKafka().isEnabled()) {
+            sinks.put(new KafkaAlertSink(clusterRegistry.resolve(properties.getKafka().getCluster()),
+                                         properties.getKafka().getTopic(), objectMapper), properties.getKafka());
+        }
+        if (properties.getWebhook().isEnabled()) {
+            sinks.put(new WebhookAlertSink(properties.getWebhook().getUrl(), properties.getWebhook().getTimeout(),
+                                           restTemplateBuilder), properties.getWebhook());
+        }
+        return sinks;
+    }
+
+    private static final class Alert {
+        private final StoredEvent event;
+        private final long enqueuedNanos;
+
+        Alert(StoredEvent event, long enqueuedNanos) {
+            this.event = event;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    private final class SinkWorker {
+
+        private final AlertSink sink;
+        private final AlertProperties.Sink sinkProperties;
+        private final BlockingQueue<List<Alert>> batches;
+        private final Thread thread;
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder droppedFull = new LongAdder();
+        private final LongAdder droppedFailed = new LongAdder();
+        private final Counter sentCounter;
+        private final Counter retriesCounter;
+        private final Counter droppedFullCounter;
+        private final Counter droppedFailedCounter;
+        private final Timer latency;
+
+        SinkWorker(AlertSink sink, AlertProperties.Sink sinkProperties, MeterRegistry registry) {
+            checkArgument(sinkProperties.getMaxAttempts() > 0, "maxAttempts of %s must be greater than 0",
+                          sink.getName());
+            this.sink = sink;
+            this.sinkProperties = sinkProperties;
+            batches = new ArrayBlockingQueue<>(properties.getSinkQueueBatches());
+            thread = new Thread(this::run, "alert-sink-" + sink.getName());
+            thread.setDaemon(true);
+
+            final String name = sink.getName();
+            Gauge.builder(SINK_PENDING, batches, BlockingQueue::size)
+                 .description("Batches waiting for an alert sink")
+                 .tags("sink", name)
+                 .register(registry);
+            sentCounter = Counter.builder(SENT)
+                                 .description("Events delivered to an alert sink")
+                                 .tags("sink", name)
+                                 .register(registry);
+            retriesCounter = Counter.builder(RETRIES)
+                                    .description("Batches sent again to an alert sink after a failure")
+                                    .tags("sink", name)
+                                    .register(registry);
+            droppedFullCounter = Counter.builder(DROPPED)
+                                        .description("Events dropped before reaching a sink")
+                                        .tags("sink", name, "reason", "full")
+                                        .register(registry);
+            droppedFailedCounter = Counter.builder(DROPPED)
+                                          .description("Events dropped before reaching a sink")
+                                          .tags("sink", name, "reason", "failed")
+                                          .register(registry);
+            latency = Timer.builder(DISPATCH_LATENCY)
+                           .description("Time from the enqueue of an event to its delivery to a sink")
+                           .tags("sink", name)
+                           .publishPercentiles(0.5, 0.99, 0.999)
+                           .publishPercentileHistogram()
+                           .register(registry);
+        }
+
+        void offer(List<Alert> batch) throws InterruptedException {
+            if (properties.getOverflow() == OverflowPolicy.BLOCK) {
+                // back-pressure through the dispatcher queue up to the submitters, until shutdown
+                while (running) {
+                    if (batches.offer(batch, POLL_TIMEOUT_MILLS, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            }
+            if (!batches.offer(batch)) {
+                droppedFull.add(batch.size());
+                droppedFullCounter.increment(batch.size());
+            }
+        }
+
+        SinkStats getStats() {
+            return SinkStats.builder()
+                            .name(sink.getName())
+                            .pendingBatches(batches.size())
+                            .sent(sent.sum())
+                            .retries(retries.sum())
+                            .droppedFull(droppedFull.sum())
+                            .droppedFailed(droppedFailed.sum())
+                            .build();
+        }
+
+        private void run() {
+            while (running || dispatcher.isAlive() || !batches.isEmpty()) {
+                try {
+                    final List<Alert> batch = batches.poll(POLL_TIMEOUT_MILLS, TimeUnit.MILLISECONDS);
+                    if (batch != null) {
+                        send(batch);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private void send(List<Alert> batch) throws InterruptedException {
+            final List<StoredEvent> events = batch.stream().map(alert -> alert.event).collect(Collectors.toList());
+            long backoffMills = sinkProperties.getBackoff().toMillis();
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    sink.send(events);
+                    final long now = System.nanoTime();
+                    for (Alert alert : batch) {
+                        latency.record(now - alert.enqueuedNanos, TimeUnit.NANOSECONDS);
+                    }
+                    sent.add(batch.size());
+                    sentCounter.increment(batch.size());
+                    return;
+                } catch (Exception e) {
+                    if (attempt >= sinkProperties.getMaxAttempts()) {
+                        logger.warn("Exception occur while sending {} alerts to {}, dropping them after {} attempts",
+                                    batch.size(), sink.getName(), attempt, e);
+                        droppedFailed.add(batch.size());
+                        droppedFailedCounter.increment(batch.size());
+                        return;
+                    }
+                    logger.debug("Exception occur while sending {} alerts to {}, retrying in {}ms",
+                                 batch.size(), sink.getName(), backoffMills, e);
+                }
+                retries.increment();
+                retriesCounter.increment();
+                TimeUnit.MILLISECONDS.sleep(backoffMills);
+                backoffMills *= 2L;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package demo.alert;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Settings of the {@link AlertDispatcher} and of its sinks, every sink being disabled by default.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "demo.alert")
+public class AlertProperties {
+
+    public enum OverflowPolicy {
+        // drop the event which doesn't fit
+        DROP_NEWEST,
+        // drop the oldest queued event to make room
+        DROP_OLDEST,
+        // wait up to block-timeout for room, then drop the event
+        BLOCK
+    }
+
+    private int queueCapacity = 10000;
+    private OverflowPolicy overflow = OverflowPolicy.DROP_OLDEST;
+    // short of the 5s timeout of Burrow's notifier
+    private Duration blockTimeout = Duration.ofSeconds(1L);
+    // max events of a batch, and how long the first event of a batch waits for more
+    private int batchSize = 100;
+    private Duration linger = Duration.ofMillis(200L);
+    // batches waiting for a sink before the next ones are dropped for that sink
+    private int sinkQueueBatches = 16;
+
+    private FileSink file = new FileSink();
+    private KafkaSink kafka = new KafkaSink();
+    private WebhookSink webhook = new WebhookSink();
+
+    @Data
+    public static class Sink {
+        private boolean enabled;
+        // attempts to send a batch, waiting backoff, then twice as long, between two attempts
+        private int maxAttempts = 3;
+        private Duration backoff = Duration.ofMillis(500L);
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class FileSink extends Sink {
+        // events are appended as json lines
+        private String path = "data/alerts/alerts.jsonl";
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class KafkaSink extends Sink {
+        // name of a cluster of the ClusterRegistry, the default one if null
+        private String cluster;
+        private String topic = "lag-alerts";
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class WebhookSink extends Sink {
+        // batches are posted as a json array
+        private String url = "http://localhost:8080/api/alert/stub";
+        private Duration timeout = Duration.ofSeconds(2L);
+    }
+}
@@ -0,0 +1,22 @@
+package demo.alert;
+
+import java.util.List;
+
+import demo.event.StoredEvent;
+
+/**
+ * Destination of the batches of the {@link AlertDispatcher}, called by a single thread of its own.
+ */
+public interface AlertSink {
+
+    String getName();
+
+    /**
+     * Delivers a batch, throwing if any of its events may not have been delivered, in which case the whole batch
+     * is sent again.
+     */
+    void send(List<StoredEvent> batch) throws Exception;
+
+    default void close() {
+    }
+}
@@ -0,0 +1,26 @@
+package demo.alert;
+
+import java.util.List;
+
+import demo.alert.AlertProperties.OverflowPolicy;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * State of the {@link AlertDispatcher} queue and of each of its sinks, counted since startup.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AlertStats {
+    private int queueDepth;
+    private int queueCapacity;
+    private OverflowPolicy overflow;
+    // dropped by the overflow policy before any sink
+    private long dropped;
+    private List<SinkStats> sinks;
+}
@@ -0,0 +1,72 @@
+package demo.alert;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.event.StoredEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Appends every event to a local file as a json line, flushed once per batch.
+ */
+@Slf4j
+public class FileAlertSink implements AlertSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private BufferedWriter writer;
+
+    public FileAlertSink(String path, ObjectMapper objectMapper) {
+        this.path = Paths.get(path);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public void send(List<StoredEvent> batch) throws IOException {
+        if (writer == null) {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                                             StandardOpenOption.APPEND);
+        }
+        try {
+            for (StoredEvent event : batch) {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.newLine();
+            }
+            writer.flush();
+        } catch (IOException e) {
+            // reopen on the next attempt
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warn("Exception occur while closing alert file {}", path, e);
+        }
+        writer = null;
+    }
+}
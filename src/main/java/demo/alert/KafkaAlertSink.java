@@ -0,0 +1,74 @@
+package demo.alert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.cluster.KafkaCluster;
+import demo.event.StoredEvent;
+
+/**
+ * Produces every event to a topic as json, keyed by its first consumer group so that the events of a group stay
+ * in order. A failed batch is produced again as a whole, so events are delivered at least once.
+ */
+public class KafkaAlertSink implements AlertSink {
+
+    private final String topic;
+    private final Producer<String, String> producer;
+    private final ObjectMapper objectMapper;
+
+    public KafkaAlertSink(KafkaCluster cluster, String topic, ObjectMapper objectMapper) {
+        this(topic, new KafkaProducer<>(producerProps(cluster)), objectMapper);
+    }
+
+    KafkaAlertSink(String topic, Producer<String, String> producer, ObjectMapper objectMapper) {
+        this.topic = topic;
+        this.producer = producer;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String getName() {
+        return "kafka";
+    }
+
+    @Override
+    public void send(List<StoredEvent> batch) throws Exception {
+        final List<Future<RecordMetadata>> futures = new ArrayList<>(batch.size());
+        for (StoredEvent event : batch) {
+            final String key = event.getGroups() == null || event.getGroups().isEmpty()
+                               ? null : event.getGroups().iterator().next();
+            futures.add(producer.send(new ProducerRecord<>(topic, key, objectMapper.writeValueAsString(event))));
+        }
+        producer.flush();
+        for (Future<RecordMetadata> future : futures) {
+            future.get();
+        }
+    }
+
+    @Override
+    public void close() {
+        producer.close(Duration.ofSeconds(5L));
+    }
+
+    private static Properties producerProps(KafkaCluster cluster) {
+        // the configs of the cluster, so that the sink connects to a secured cluster too
+        final Properties props = cluster.clientProps();
+        props.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+        props.put("value.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+        props.put("acks", "all");
+        props.put("linger.ms", 5);
+        // fail a send within the retries of the dispatcher rather than the 2 minutes of the client default
+        props.put("delivery.timeout.ms", 30000);
+        return props;
+    }
+}
@@ -0,0 +1,20 @@
+package demo.alert;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SinkStats {
+    private String name;
+    private int pendingBatches;
+    private long sent;
+    private long retries;
+    // events of the batches dropped because the sink was behind, and after the last failed attempt
+    private long droppedFull;
+    private long droppedFailed;
+}
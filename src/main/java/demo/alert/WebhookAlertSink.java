@@ -0,0 +1,35 @@
+package demo.alert;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.RestTemplate;
+
+import demo.event.StoredEvent;
+
+/**
+ * Posts every batch to an http endpoint as a json array. Any response other than 2xx fails the batch.
+ */
+public class WebhookAlertSink implements AlertSink {
+
+    private final String url;
+    private final RestTemplate restTemplate;
+
+    public WebhookAlertSink(String url, Duration timeout, RestTemplateBuilder restTemplateBuilder) {
+        this.url = url;
+        this.restTemplate = restTemplateBuilder.setConnectTimeout(timeout)
+                                               .setReadTimeout(timeout)
+                                               .build();
+    }
+
+    @Override
+    public String getName() {
+        return "webhook";
+    }
+
+    @Override
+    public void send(List<StoredEvent> batch) {
+        restTemplate.postForEntity(url, batch, Void.class);
+    }
+}
@@ -0,0 +1,83 @@
+package demo.cluster;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.DescribeClusterResult;
+import org.apache.kafka.common.Node;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/cluster")
+@RequiredArgsConstructor
+public class ClusterController {
+
+    private static final long TIMEOUT_MILLS = 10000L;
+
+    private final ClusterRegistry clusterRegistry;
+
+    /**
+     * Handle "GET /api/cluster" to get the configured clusters, which the "cluster" parameter of the other
+     * endpoints names.
+     */
+    @GetMapping
+    public ResponseEntity<List<KafkaCluster>> getClusters() {
+        return ResponseEntity.ok(new ArrayList<>(clusterRegistry.getClusters()));
+    }
+
+    /**
+     * Handle "GET /api/cluster/{name}" to describe the brokers and topics of a cluster through its shared
+     * AdminClient.
+     */
+    @GetMapping("/{name}")
+    public ResponseEntity<ClusterDescription> describeCluster(@PathVariable("name") String name) {
+        if (!clusterRegistry.getNames().contains(name)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        final AdminClient admin = clusterRegistry.admin(name);
+        try {
+            final DescribeClusterResult result = admin.describeCluster();
+            final Node controller = result.controller().get(TIMEOUT_MILLS, TimeUnit.MILLISECONDS);
+            return ResponseEntity.ok(ClusterDescription.builder()
+                                                       .name(name)
+                                                       .bootstrapServers(clusterRegistry.resolve(name)
+                                                                                        .getBootstrapServers())
+                                                       .clusterId(result.clusterId().get(TIMEOUT_MILLS,
+                                                                                         TimeUnit.MILLISECONDS))
+                                                       .controller(controller == null ? -1 : controller.id())
+                                                       .nodes(result.nodes()
+                                                                    .get(TIMEOUT_MILLS, TimeUnit.MILLISECONDS)
+                                                                    .stream()
+                                                                    .sorted(Comparator.comparingInt(Node::id))
+                                                                    .map(n -> n.host() + ':' + n.port())
+                                                                    .collect(Collectors.toList()))
+                                                       .topics(admin.listTopics()
+                                                                    .names()
+                                                                    .get(TIMEOUT_MILLS, TimeUnit.MILLISECONDS)
+                                                                    .stream()
+                                                                    .sorted()
+                                                                    .collect(Collectors.toList()))
+                                                       .build());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            logger.warn("[{}] Exception occur while describing the cluster", name, e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
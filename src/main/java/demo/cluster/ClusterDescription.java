@@ -0,0 +1,27 @@
+package demo.cluster;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Metadata of a {@link KafkaCluster} as read by its AdminClient.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClusterDescription {
+    private String name;
+    private String bootstrapServers;
+    private String clusterId;
+    // -1 if there is no active controller
+    private int controller;
+    // "host:port" of every broker, ordered by broker id
+    private List<String> nodes;
+    // non-internal topics, ordered by name
+    private List<String> topics;
+}
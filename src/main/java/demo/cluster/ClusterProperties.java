@@ -0,0 +1,31 @@
+package demo.cluster;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * Settings of the {@link ClusterRegistry}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "demo.cluster")
+public class ClusterProperties {
+    // cluster of the requests which don't name one, read from "spring.kafka" unless it's configured below
+    private String defaultCluster = ClusterRegistry.DEFAULT_CLUSTER;
+    private Map<String, Cluster> clusters = new LinkedHashMap<>();
+
+    @Data
+    public static class Cluster {
+        private List<String> bootstrapServers = new ArrayList<>();
+        // client configs shared by every client of the cluster, e.g. "security.protocol"
+        private Map<String, String> properties = new HashMap<>();
+    }
+}
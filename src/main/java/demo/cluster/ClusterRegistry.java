@@ -0,0 +1,143 @@
+package demo.cluster;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Kafka clusters the workers and the lag views run against, by name.
+ * <p>
+ * The clusters are read from "demo.cluster.clusters" once. The default cluster, of the requests which don't
+ * name one, is read from "spring.kafka" along with its ssl, security and admin settings, unless a cluster of its
+ * name is configured. Every cluster has a single AdminClient, created on first use and shared by all callers
+ * until shutdown, so that its connections and its cached metadata outlive a single request.
+ */
+@Slf4j
+@Component
+public class ClusterRegistry {
+
+    public static final String DEFAULT_CLUSTER = "default";
+
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(30L);
+
+    private final String defaultName;
+    private final Map<String, KafkaCluster> clusters;
+    private final Map<String, AdminClient> adminClients = new ConcurrentHashMap<>();
+
+    public ClusterRegistry(ClusterProperties properties, KafkaProperties kafkaProperties) {
+        defaultName = properties.getDefaultCluster();
+        checkArgument(defaultName != null && !defaultName.isEmpty(), "defaultCluster must not be empty");
+        final Map<String, KafkaCluster> clusters = new LinkedHashMap<>();
+        if (!properties.getClusters().containsKey(defaultName)) {
+            clusters.put(defaultName, cluster(defaultName, String.join(",", kafkaProperties.getBootstrapServers()),
+                                              adminProperties(kafkaProperties)));
+        }
+        for (Entry<String, ClusterProperties.Cluster> entry : properties.getClusters().entrySet()) {
+            checkArgument(!entry.getValue().getBootstrapServers().isEmpty(),
+                          "bootstrapServers of cluster %s must not be empty", entry.getKey());
+            clusters.put(entry.getKey(), cluster(entry.getKey(),
+                                                 String.join(",", entry.getValue().getBootstrapServers()),
+                                                 entry.getValue().getProperties()));
+        }
+        this.clusters = ImmutableMap.copyOf(clusters);
+        logger.info("Kafka clusters: {} / default: {}", this.clusters.keySet(), defaultName);
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        for (Entry<String, AdminClient> entry : adminClients.entrySet()) {
+            try {
+                entry.getValue().close(CLOSE_TIMEOUT);
+            } catch (Exception e) {
+                logger.warn("[{}] Exception occur while closing the admin client", entry.getKey(), e);
+            }
+        }
+        adminClients.clear();
+    }
+
+    public String getDefaultName() {
+        return defaultName;
+    }
+
+    public Set<String> getNames() {
+        return clusters.keySet();
+    }
+
+    public Collection<KafkaCluster> getClusters() {
+        return clusters.values();
+    }
+
+    /**
+     * Returns the cluster of the name, or the default cluster if the name is null. Throws
+     * {@link IllegalArgumentException} if there is no such cluster.
+     */
+    public KafkaCluster resolve(String name) {
+        final KafkaCluster cluster = clusters.get(name != null ? name : defaultName);
+        checkArgument(cluster != null, "unknown cluster: %s", name);
+        return cluster;
+    }
+
+    /**
+     * Returns the shared AdminClient of the cluster, see {@link #resolve(String)}. Callers must not close it.
+     */
+    public AdminClient admin(String name) {
+        final KafkaCluster cluster = resolve(name);
+        return adminClients.computeIfAbsent(cluster.getName(), k -> {
+            logger.info("[{}] Create an admin client. bootstrapServers: {}", k, cluster.getBootstrapServers());
+            return AdminClient.create(cluster.clientProps());
+        });
+    }
+
+    /**
+     * Returns the client configs of "spring.kafka" which aren't specific to producers or consumers: its ssl,
+     * security, admin and free-form properties, as strings. The client id is left out, since every client of the
+     * cluster would share it.
+     */
+    private static Map<String, String> adminProperties(KafkaProperties kafkaProperties) {
+        final Map<String, String> properties = new LinkedHashMap<>();
+        for (Entry<String, Object> entry : kafkaProperties.buildAdminProperties().entrySet()) {
+            if (entry.getValue() == null || AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG.equals(entry.getKey())
+                || AdminClientConfig.CLIENT_ID_CONFIG.equals(entry.getKey())) {
+                continue;
+            }
+            final Object value = entry.getValue();
+            if (value instanceof Collection) {
+                properties.put(entry.getKey(), ((Collection<?>) value).stream()
+                                                                      .map(String::valueOf)
+                                                                      .collect(Collectors.joining(",")));
+            } else if (value instanceof Class) {
+                properties.put(entry.getKey(), ((Class<?>) value).getName());
+            } else {
+                properties.put(entry.getKey(), value.toString());
+            }
+        }
+        return properties;
+    }
+
+    private KafkaCluster cluster(String name, String bootstrapServers, Map<String, String> properties) {
+        return KafkaCluster.builder()
+                           .name(name)
+                           .bootstrapServers(bootstrapServers)
+                           .defaultCluster(name.equals(defaultName))
+                           .properties(ImmutableMap.copyOf(properties))
+                           .build();
+    }
+}
@@ -0,0 +1,39 @@
+package demo.cluster;
+
+import java.util.Map;
+import java.util.Properties;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * A named Kafka cluster of the {@link ClusterRegistry}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class KafkaCluster {
+    private String name;
+    private String bootstrapServers;
+    private boolean defaultCluster;
+    // may hold credentials, so it's never served nor logged
+    @JsonIgnore
+    @ToString.Exclude
+    private Map<String, String> properties;
+
+    /**
+     * Returns new client configs which connect to this cluster, to which the caller adds its own configs.
+     */
+    public Properties clientProps() {
+        final Properties props = new Properties();
+        props.putAll(properties);
+        props.put("bootstrap.servers", bootstrapServers);
+        return props;
+    }
+}
@@ -0,0 +1,209 @@
+package demo.event;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.event.PartitionEvent.OffsetSnapshot;
+
+/**
+ * Parses the body of a Burrow notification straight into an {@link Event} with Jackson's streaming parser,
+ * without binding it into an intermediate tree or map. Unknown fields are skipped.
+ */
+@Component
+public class BurrowEventParser {
+
+    private final JsonFactory jsonFactory;
+
+    public BurrowEventParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public Event parse(Reader reader, String burrowId) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(reader)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            final Event event = Event.builder().burrowId(burrowId).build();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "app":
+                        event.setApp(parser.getValueAsString());
+                        break;
+                    case "block":
+                        event.setBlock(parser.getValueAsBoolean());
+                        break;
+                    case "events":
+                        event.setEvents(parseGroupEvents(parser));
+                        break;
+                    case "ids":
+                        event.setIds(parseStrings(parser));
+                        break;
+                    case "start":
+                        event.setStart(parser.getValueAsString());
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return event;
+        }
+    }
+
+    private List<GroupEvent> parseGroupEvents(JsonParser parser) throws IOException {
+        final List<GroupEvent> events = new ArrayList<>();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return events;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            final GroupEvent event = new GroupEvent();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("id".equals(field)) {
+                    event.setId(parser.getValueAsString());
+                } else if ("event".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    parseGroupEventDetail(parser, event);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    private void parseGroupEventDetail(JsonParser parser, GroupEvent event) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "severity":
+                    event.setSeverity(parser.getValueAsString());
+                    break;
+                case "tier":
+                    event.setTier(parser.getValueAsString());
+                    break;
+                case "group":
+                    event.setGroup(parser.getValueAsString());
+                    break;
+                case "start":
+                    event.setStart(parser.getValueAsString());
+                    break;
+                case "complete":
+                    event.setComplete(parser.getValueAsDouble());
+                    break;
+                case "partitions":
+                    event.setPartitions(parsePartitions(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private List<PartitionEvent> parsePartitions(JsonParser parser) throws IOException {
+        final List<PartitionEvent> partitions = new ArrayList<>();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return partitions;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            final PartitionEvent partition = new PartitionEvent();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "topic":
+                        partition.setTopic(parser.getValueAsString());
+                        break;
+                    case "partition":
+                        partition.setPartition(parser.getValueAsInt());
+                        break;
+                    case "owner":
+                        partition.setOwner(parser.getValueAsString());
+                        break;
+                    case "client_id":
+                        partition.setClientId(parser.getValueAsString());
+                        break;
+                    case "status":
+                        partition.setStatus(parser.getValueAsString());
+                        break;
+                    case "start":
+                        partition.setStart(parseOffset(parser));
+                        break;
+                    case "end":
+                        partition.setEnd(parseOffset(parser));
+                        break;
+                    case "current_lag":
+                        partition.setCurrentLag(parser.getValueAsLong());
+                        break;
+                    case "complete":
+                        partition.setComplete(parser.getValueAsDouble());
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            partitions.add(partition);
+        }
+        return partitions;
+    }
+
+    private OffsetSnapshot parseOffset(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        final OffsetSnapshot offset = new OffsetSnapshot();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "offset":
+                    offset.setOffset(parser.getValueAsLong());
+                    break;
+                case "timestamp":
+                    offset.setTimestamp(parser.getValueAsLong());
+                    break;
+                case "observedAt":
+                    offset.setObservedAt(parser.getValueAsLong());
+                    break;
+                case "lag":
+                    offset.setLag(parser.getValueAsLong());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return offset;
+    }
+
+    private List<String> parseStrings(JsonParser parser) throws IOException {
+        final List<String> values = new ArrayList<>();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return values;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(parser.getValueAsString());
+        }
+        return values;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException(String.format("Expected %s but was %s at %s", expected, actual,
+                                                parser.getCurrentLocation()));
+        }
+    }
+}
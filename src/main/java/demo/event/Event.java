@@ -0,0 +1,29 @@
+package demo.event;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Notification posted by Burrow's http notifier, see tools/compose/burrow/burrow1/config/http-post2.tmpl
+ * and http-delete.tmpl.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Event {
+    // "burrowId" header of the notifier which sent the event
+    private String burrowId;
+    private String app;
+    private boolean block;
+    // incidents of an open event
+    private List<GroupEvent> events;
+    // incident ids of a close event
+    private List<String> ids;
+    // start time of a close event
+    private String start;
+}
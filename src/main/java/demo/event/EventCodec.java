@@ -0,0 +1,303 @@
+package demo.event;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import demo.event.PartitionEvent.OffsetSnapshot;
+
+/**
+ * Compact binary encoding of a {@link StoredEvent}, used by the {@link EventJournal}.
+ * <p>
+ * A record starts with the fixed size header {@code seq, receivedAt, type}, followed by the groups, topics and
+ * severities of the event, so that a query can filter a record before decoding the event itself. Integers are
+ * zig-zag varints and strings are UTF-8 prefixed by their length plus one, where 0 means null.
+ */
+final class EventCodec {
+
+    // seq, receivedAt and type
+    static final int HEADER_BYTES = 8 + 8 + 1;
+
+    private static final EventType[] TYPES = EventType.values();
+
+    private EventCodec() {
+    }
+
+    static void encode(StoredEvent stored, Writer writer) {
+        writer.writeLong(stored.getSeq());
+        writer.writeLong(stored.getReceivedAt());
+        writer.writeByte(stored.getType().ordinal());
+        writeStrings(writer, stored.getGroups());
+        writeStrings(writer, stored.getTopics());
+        writeStrings(writer, stored.getSeverities());
+
+        final Event event = stored.getEvent();
+        writer.writeString(event.getBurrowId());
+        writer.writeString(event.getApp());
+        writer.writeByte(event.isBlock() ? 1 : 0);
+        writer.writeString(event.getStart());
+        writeStrings(writer, event.getIds());
+        final List<GroupEvent> groupEvents = event.getEvents();
+        writer.writeVarLong(groupEvents == null ? 0L : groupEvents.size() + 1L);
+        if (groupEvents == null) {
+            return;
+        }
+        for (GroupEvent groupEvent : groupEvents) {
+            writer.writeString(groupEvent.getId());
+            writer.writeString(groupEvent.getSeverity());
+            writer.writeString(groupEvent.getTier());
+            writer.writeString(groupEvent.getGroup());
+            writer.writeString(groupEvent.getStart());
+            writer.writeDouble(groupEvent.getComplete());
+            final List<PartitionEvent> partitions = groupEvent.getPartitions();
+            writer.writeVarLong(partitions == null ? 0L : partitions.size() + 1L);
+            if (partitions == null) {
+                continue;
+            }
+            for (PartitionEvent partition : partitions) {
+                writer.writeString(partition.getTopic());
+                writer.writeVarLong(partition.getPartition());
+                writer.writeString(partition.getOwner());
+                writer.writeString(partition.getClientId());
+                writer.writeString(partition.getStatus());
+                writeSnapshot(writer, partition.getStart());
+                writeSnapshot(writer, partition.getEnd());
+                writer.writeVarLong(partition.getCurrentLag());
+                writer.writeDouble(partition.getComplete());
+            }
+        }
+    }
+
+    static long seq(ByteBuffer buffer, int position) {
+        return buffer.getLong(position);
+    }
+
+    static long receivedAt(ByteBuffer buffer, int position) {
+        return buffer.getLong(position + 8);
+    }
+
+    static EventType type(ByteBuffer buffer, int position) {
+        return TYPES[buffer.get(position + 16)];
+    }
+
+    /**
+     * Decodes the header and the index keys of the record, without the event.
+     */
+    static StoredEvent decodeKeys(ByteBuffer buffer) {
+        final StoredEvent stored = new StoredEvent();
+        stored.setSeq(buffer.getLong());
+        stored.setReceivedAt(buffer.getLong());
+        stored.setType(TYPES[buffer.get()]);
+        stored.setGroups(toSet(readStrings(buffer)));
+        stored.setTopics(toSet(readStrings(buffer)));
+        stored.setSeverities(toSet(readStrings(buffer)));
+        return stored;
+    }
+
+    /**
+     * Decodes the event of a record, given the buffer is positioned after the keys read by
+     * {@link #decodeKeys(ByteBuffer)}.
+     */
+    static Event decodeEvent(ByteBuffer buffer) {
+        final Event event = new Event();
+        event.setBurrowId(readString(buffer));
+        event.setApp(readString(buffer));
+        event.setBlock(buffer.get() != 0);
+        event.setStart(readString(buffer));
+        event.setIds(readStrings(buffer));
+        final int groupCount = (int) readVarLong(buffer) - 1;
+        if (groupCount < 0) {
+            return event;
+        }
+        final List<GroupEvent> groupEvents = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            final GroupEvent groupEvent = new GroupEvent();
+            groupEvent.setId(readString(buffer));
+            groupEvent.setSeverity(readString(buffer));
+            groupEvent.setTier(readString(buffer));
+            groupEvent.setGroup(readString(buffer));
+            groupEvent.setStart(readString(buffer));
+            groupEvent.setComplete(buffer.getDouble());
+            final int partitionCount = (int) readVarLong(buffer) - 1;
+            if (partitionCount >= 0) {
+                final List<PartitionEvent> partitions = new ArrayList<>(partitionCount);
+                for (int j = 0; j < partitionCount; j++) {
+                    final PartitionEvent partition = new PartitionEvent();
+                    partition.setTopic(readString(buffer));
+                    partition.setPartition((int) readVarLong(buffer));
+                    partition.setOwner(readString(buffer));
+                    partition.setClientId(readString(buffer));
+                    partition.setStatus(readString(buffer));
+                    partition.setStart(readSnapshot(buffer));
+                    partition.setEnd(readSnapshot(buffer));
+                    partition.setCurrentLag(readVarLong(buffer));
+                    partition.setComplete(buffer.getDouble());
+                    partitions.add(partition);
+                }
+                groupEvent.setPartitions(partitions);
+            }
+            groupEvents.add(groupEvent);
+        }
+        event.setEvents(groupEvents);
+        return event;
+    }
+
+    private static void writeSnapshot(Writer writer, OffsetSnapshot snapshot) {
+        writer.writeByte(snapshot == null ? 0 : 1);
+        if (snapshot == null) {
+            return;
+        }
+        writer.writeVarLong(snapshot.getOffset());
+        writer.writeVarLong(snapshot.getTimestamp());
+        writer.writeVarLong(snapshot.getObservedAt());
+        writer.writeVarLong(snapshot.getLag());
+    }
+
+    private static OffsetSnapshot readSnapshot(ByteBuffer buffer) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        return OffsetSnapshot.builder()
+                             .offset(readVarLong(buffer))
+                             .timestamp(readVarLong(buffer))
+                             .observedAt(readVarLong(buffer))
+                             .lag(readVarLong(buffer))
+                             .build();
+    }
+
+    private static void writeStrings(Writer writer, Collection<String> values) {
+        writer.writeVarLong(values == null ? 0L : values.size() + 1L);
+        if (values != null) {
+            values.forEach(writer::writeString);
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+        final int count = (int) readVarLong(buffer) - 1;
+        if (count < 0) {
+            return null;
+        }
+        final List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(buffer));
+        }
+        return values;
+    }
+
+    private static Set<String> toSet(List<String> values) {
+        return values == null ? new HashSet<>() : new HashSet<>(values);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = (int) readVarLong(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        final String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                               StandardCharsets.UTF_8);
+        } else {
+            final byte[] bytes = new byte[length];
+            buffer.duplicate().get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long raw = 0L;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            raw |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (raw >>> 1) ^ -(raw & 1L);
+    }
+
+    /**
+     * Growable buffer the records are encoded into, reused across appends.
+     */
+    static final class Writer {
+
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(bytes, 0, size);
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            ByteBuffer.wrap(bytes, size, 4).putInt(value);
+            size += 4;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            ByteBuffer.wrap(bytes, size, 8).putLong(value);
+            size += 8;
+        }
+
+        void writeDouble(double value) {
+            writeLong(Double.doubleToRawLongBits(value));
+        }
+
+        void writeVarLong(long value) {
+            long raw = (value << 1) ^ (value >> 63);
+            ensure(10);
+            while ((raw & ~0x7FL) != 0L) {
+                bytes[size++] = (byte) ((raw & 0x7F) | 0x80);
+                raw >>>= 7;
+            }
+            bytes[size++] = (byte) raw;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0L);
+                return;
+            }
+            final byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(encoded.length + 1L);
+            ensure(encoded.length);
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+        }
+
+        void setInt(int position, int value) {
+            ByteBuffer.wrap(bytes, position, 4).putInt(value);
+        }
+
+        byte[] array() {
+            return bytes;
+        }
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+    }
+}
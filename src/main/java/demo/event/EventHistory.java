@@ -0,0 +1,50 @@
+package demo.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Serves the events from the {@link EventStore}, then from the {@link EventJournal} once a query goes past the
+ * events still held in memory.
+ */
+@Component
+@RequiredArgsConstructor
+public class EventHistory {
+
+    private final EventStore eventStore;
+    private final EventJournal eventJournal;
+
+    /**
+     * Returns the newest events matching the query.
+     */
+    public EventPage query(EventQuery query) {
+        final EventPage page = eventStore.query(query);
+        if (!eventJournal.isEnabled() || page.getNextCursor() != null) {
+            return page;
+        }
+        final List<StoredEvent> events = page.getEvents();
+        final int size = EventStore.pageSize(query);
+        // every matching event at or above the lowest sequence of the store was either returned or overwritten
+        long upper = eventStore.getLowestSeq();
+        if (query.getCursor() != null) {
+            upper = Math.min(upper, query.getCursor());
+        }
+        if (!events.isEmpty()) {
+            upper = Math.min(upper, events.get(events.size() - 1).getSeq());
+        }
+        if (events.size() >= size) {
+            return eventJournal.hasEventsBefore(upper)
+                   ? EventPage.builder().events(events).nextCursor(events.get(events.size() - 1).getSeq()).build()
+                   : page;
+        }
+        final EventPage older = eventJournal.query(query, upper, size - events.size());
+        final List<StoredEvent> merged = new ArrayList<>(events.size() + older.getEvents().size());
+        merged.addAll(events);
+        merged.addAll(older.getEvents());
+        return EventPage.builder().events(merged).nextCursor(older.getNextCursor()).build();
+    }
+}
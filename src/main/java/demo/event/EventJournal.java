@@ -0,0 +1,287 @@
+package demo.event;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of the received events, so that they survive a restart and can be queried beyond the
+ * capacity of the {@link EventStore}.
+ * <p>
+ * The journal is a directory of {@link JournalSegment}s, the active one is rolled once it's larger than
+ * {@code segment-bytes}. The oldest segments are deleted while the journal is larger than {@code max-bytes} or
+ * older than {@code max-age}. Queries walk the segments from the newest one and decode only the events they
+ * return, so a range is never loaded on heap as a whole.
+ */
+@Slf4j
+@Component
+public class EventJournal {
+
+    private final EventJournalProperties properties;
+    // segments by base sequence
+    private final NavigableMap<Long, JournalSegment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final EventCodec.Writer writer = new EventCodec.Writer();
+    private final CRC32 crc = new CRC32();
+    private JournalSegment active;
+    private long lastSeq = -1L;
+    private ScheduledExecutorService executor;
+
+    public EventJournal(EventJournalProperties properties) {
+        this.properties = properties;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        checkArgument(properties.getSegmentBytes().toBytes() > 0L
+                      && properties.getSegmentBytes().toBytes() <= Integer.MAX_VALUE / 2,
+                      "segment-bytes must be in (0, 1GB]");
+        final Path dir = Paths.get(properties.getDir());
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + JournalSegment.SUFFIX)) {
+            for (Path path : files) {
+                final JournalSegment segment = JournalSegment.open(path);
+                segments.put(segment.getBaseSeq(), segment);
+            }
+        }
+        // keep appending to the last segment
+        for (JournalSegment segment : segments.values()) {
+            if (segment.count() > 0) {
+                final ByteBuffer buffer = segment.read(segment.count());
+                lastSeq = EventCodec.seq(buffer, segment.bodyOffset(segment.count() - 1));
+            }
+            active = segment;
+        }
+        logger.info("Opened the event journal {} with {} segments up to seq {}", dir.toAbsolutePath(),
+                    segments.size(), lastSeq);
+
+        enforceRetention();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "event-journal-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long intervalMills = properties.getRetentionCheckInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::enforceRetention, intervalMills, intervalMills,
+                                        TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        writeLock.lock();
+        try {
+            for (JournalSegment segment : segments.values()) {
+                if (segment == active) {
+                    segment.flush();
+                }
+                segment.close();
+            }
+            segments.clear();
+            active = null;
+        } catch (IOException e) {
+            logger.warn("Exception occur while closing the event journal", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the sequence of the last journaled event, or -1 if the journal is empty.
+     */
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Appends an event, events must be appended in ascending order of sequence. A failure is logged and doesn't
+     * prevent the event from being served by the {@link EventStore}.
+     */
+    public void append(StoredEvent stored) {
+        writeLock.lock();
+        try {
+            checkArgument(stored.getSeq() > lastSeq, "seq %s must be greater than %s", stored.getSeq(), lastSeq);
+            writer.reset();
+            writer.writeInt(0);
+            writer.writeInt(0);
+            EventCodec.encode(stored, writer);
+            final int length = writer.size() - JournalSegment.RECORD_HEADER_BYTES;
+            crc.reset();
+            crc.update(writer.array(), JournalSegment.RECORD_HEADER_BYTES, length);
+            writer.setInt(0, length);
+            writer.setInt(4, (int) crc.getValue());
+
+            if (active == null
+                || active.count() > 0 && active.size() + writer.size() > properties.getSegmentBytes().toBytes()) {
+                roll(stored.getSeq());
+            }
+            active.append(writer.array(), writer.size(), stored.getReceivedAt());
+            lastSeq = stored.getSeq();
+        } catch (IOException e) {
+            logger.error("Exception occur while journaling event {}", stored.getSeq(), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Passes the newest {@code limit} events to the consumer, oldest first.
+     */
+    public int replay(int limit, Consumer<StoredEvent> consumer) throws IOException {
+        // locate the records first so that only the replayed ones are decoded
+        final Deque<long[]> locations = new ArrayDeque<>();
+        outer:
+        for (JournalSegment segment : segments.descendingMap().values()) {
+            for (int i = segment.count() - 1; i >= 0; i--) {
+                if (locations.size() == limit) {
+                    break outer;
+                }
+                locations.addFirst(new long[] { segment.getBaseSeq(), i });
+            }
+        }
+        for (long[] location : locations) {
+            final JournalSegment segment = segments.get(location[0]);
+            final ByteBuffer buffer = segment.read(segment.count());
+            buffer.position(segment.bodyOffset((int) location[1]));
+            final StoredEvent stored = EventCodec.decodeKeys(buffer);
+            stored.setEvent(EventCodec.decodeEvent(buffer));
+            consumer.accept(stored);
+        }
+        return locations.size();
+    }
+
+    /**
+     * Returns the newest events with a sequence lower than {@code upper} matching the query, at most
+     * {@code limit} of them.
+     */
+    public EventPage query(EventQuery query, long upper, int limit) {
+        final List<StoredEvent> events = new ArrayList<>(Math.min(limit, 128));
+        for (JournalSegment segment : segments.headMap(upper, false).descendingMap().values()) {
+            if (query.getFrom() != null && segment.getLastReceivedAt() < query.getFrom()) {
+                break;
+            }
+            if (query.getTo() != null && segment.getFirstReceivedAt() > query.getTo()) {
+                continue;
+            }
+            try {
+                final int count = segment.count();
+                final ByteBuffer buffer = segment.read(count);
+                for (int i = segment.lastIndexBefore(buffer, count, upper); i >= 0; i--) {
+                    final int offset = segment.bodyOffset(i);
+                    final long receivedAt = EventCodec.receivedAt(buffer, offset);
+                    if (query.getFrom() != null && receivedAt < query.getFrom()) {
+                        return EventPage.builder().events(events).build();
+                    }
+                    if (query.getTo() != null && receivedAt > query.getTo()
+                        || (EventCodec.type(buffer, offset) == EventType.OPEN
+                            ? !query.isIncludeOpen() : !query.isIncludeClose())) {
+                        continue;
+                    }
+                    buffer.position(offset);
+                    final StoredEvent stored = EventCodec.decodeKeys(buffer);
+                    if (!EventStore.matches(stored, query)) {
+                        continue;
+                    }
+                    if (events.size() == limit) {
+                        return EventPage.builder()
+                                        .events(events)
+                                        .nextCursor(events.get(events.size() - 1).getSeq())
+                                        .build();
+                    }
+                    stored.setEvent(EventCodec.decodeEvent(buffer));
+                    events.add(stored);
+                }
+            } catch (IOException e) {
+                logger.warn("Exception occur while reading {}", segment.getPath(), e);
+            }
+        }
+        return EventPage.builder().events(events).build();
+    }
+
+    /**
+     * Returns true if the journal holds an event with a sequence lower than the given one.
+     */
+    public boolean hasEventsBefore(long seq) {
+        final Entry<Long, JournalSegment> first = segments.firstEntry();
+        return first != null && first.getKey() < seq && first.getValue().count() > 0;
+    }
+
+    /**
+     * Returns the size of the journal in bytes.
+     */
+    public long size() {
+        return segments.values().stream().mapToLong(JournalSegment::size).sum();
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    void enforceRetention() {
+        writeLock.lock();
+        try {
+            final long minReceivedAt = System.currentTimeMillis() - properties.getMaxAge().toMillis();
+            long total = size();
+            final Iterator<JournalSegment> iterator = segments.values().iterator();
+            while (iterator.hasNext()) {
+                final JournalSegment segment = iterator.next();
+                if (segment == active
+                    || total <= properties.getMaxBytes().toBytes() && segment.getLastReceivedAt() >= minReceivedAt) {
+                    break;
+                }
+                iterator.remove();
+                total -= segment.size();
+                segment.delete();
+                logger.info("Deleted {} of the event journal", segment.getPath());
+            }
+        } catch (IOException e) {
+            logger.warn("Exception occur while enforcing the retention of the event journal", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void roll(long baseSeq) throws IOException {
+        if (active != null) {
+            active.seal();
+        }
+        active = JournalSegment.create(Paths.get(properties.getDir()), baseSeq);
+        segments.put(baseSeq, active);
+        enforceRetention();
+    }
+}
@@ -0,0 +1,26 @@
+package demo.event;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * Settings of the {@link EventJournal}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "demo.event.journal")
+public class EventJournalProperties {
+    private boolean enabled;
+    private String dir = "data/journal";
+    // size from which the active segment is rolled
+    private DataSize segmentBytes = DataSize.ofMegabytes(16L);
+    // the oldest segments are deleted while the journal is larger than this, or older than max-age
+    private DataSize maxBytes = DataSize.ofGigabytes(1L);
+    private Duration maxAge = Duration.ofDays(7L);
+    private Duration retentionCheckInterval = Duration.ofMinutes(1L);
+}
@@ -0,0 +1,81 @@
+package demo.event;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Logs received events as a single compact line on a background thread, so that the request thread only
+ * pays for an enqueue. Events are dropped, and counted, while the queue is full.
+ */
+@Slf4j
+@Component
+public class EventLogger {
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final ThreadPoolExecutor executor;
+
+    public EventLogger() {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                                          runnable -> {
+                                              final Thread thread = new Thread(runnable, "event-logger");
+                                              thread.setDaemon(true);
+                                              return thread;
+                                          },
+                                          (runnable, e) -> dropped.incrementAndGet());
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    public void log(StoredEvent event) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        executor.execute(() -> logger.info("## [Notification] {}", format(event)));
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    static String format(StoredEvent stored) {
+        final Event event = stored.getEvent();
+        final StringBuilder builder = new StringBuilder(128);
+        builder.append(stored.getType())
+               .append(" seq=").append(stored.getSeq())
+               .append(" burrowId=").append(event.getBurrowId());
+        if (event.getIds() != null) {
+            builder.append(" ids=").append(event.getIds());
+        }
+        if (event.getEvents() != null) {
+            for (GroupEvent groupEvent : event.getEvents()) {
+                builder.append(" {id=").append(groupEvent.getId())
+                       .append(" group=").append(groupEvent.getGroup())
+                       .append(" severity=").append(groupEvent.getSeverity());
+                if (groupEvent.getPartitions() != null) {
+                    for (PartitionEvent partition : groupEvent.getPartitions()) {
+                        builder.append(' ').append(partition.getTopic())
+                               .append('-').append(partition.getPartition())
+                               .append(':').append(partition.getStatus())
+                               .append("(lag=").append(partition.getCurrentLag()).append(')');
+                    }
+                }
+                builder.append('}');
+            }
+        }
+        return builder.toString();
+    }
+}
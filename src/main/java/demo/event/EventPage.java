@@ -0,0 +1,21 @@
+package demo.event;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A page of events, newest first.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EventPage {
+    private List<StoredEvent> events;
+    // cursor of the next page, null if this is the last one
+    private Long nextCursor;
+}
@@ -0,0 +1,22 @@
+package demo.event;
+
+import lombok.Data;
+
+/**
+ * Filters and paging of "GET /api/event", bound from its query parameters, e.g.
+ * "?group=consumers-1&severity=ERR&from=1632584193000&size=20".
+ */
+@Data
+public class EventQuery {
+    private boolean includeOpen = true;
+    private boolean includeClose = true;
+    private String group;
+    private String topic;
+    private String severity;
+    // received time range in epoch millis, inclusive
+    private Long from;
+    private Long to;
+    // only events with a smaller sequence, used to fetch the next page
+    private Long cursor;
+    private int size = 100;
+}
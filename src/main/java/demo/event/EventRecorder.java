@@ -0,0 +1,71 @@
+package demo.event;
+
+import java.io.IOException;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.stereotype.Component;
+
+import demo.alert.AlertDispatcher;
+import demo.stream.StreamHub;
+import demo.stream.StreamMessage;
+import demo.stream.StreamMessageType;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Single entry point of received events, whether they were posted by Burrow or raised in process.
+ * <p>
+ * Every event updates the {@link IncidentTable} and is handed to the {@link AlertDispatcher}, which forwards it
+ * to the alert sinks off the recording thread. The newest events of the {@link EventJournal} are put back into
+ * the {@link EventStore} and the table on startup.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventRecorder {
+
+    private final EventStore eventStore;
+    private final EventLogger eventLogger;
+    private final StreamHub streamHub;
+    private final EventJournal eventJournal;
+    private final IncidentTable incidentTable;
+    private final AlertDispatcher alertDispatcher;
+
+    @PostConstruct
+    public void replay() throws IOException {
+        if (!eventJournal.isEnabled()) {
+            return;
+        }
+        final int replayed = eventJournal.replay(eventStore.getCapacity(), stored -> {
+            eventStore.restore(stored);
+            incidentTable.apply(stored);
+        });
+        logger.info("Replayed {} events from the event journal", replayed);
+    }
+
+    public StoredEvent record(EventType type, Event event) {
+        final StoredEvent stored;
+        // the journal and the incident table are updated in the order of the sequences, so that a close event
+        // never overtakes the open event of its incident
+        synchronized (this) {
+            stored = eventStore.append(type, event);
+            if (eventJournal.isEnabled()) {
+                eventJournal.append(stored);
+            }
+            incidentTable.apply(stored);
+        }
+        eventLogger.log(stored);
+        alertDispatcher.submit(stored);
+        if (streamHub.hasSubscribers()) {
+            streamHub.publish(StreamMessage.builder()
+                                           .type(StreamMessageType.EVENT)
+                                           .topics(stored.getTopics())
+                                           .groups(stored.getGroups())
+                                           .payload(stored)
+                                           .build());
+        }
+        return stored;
+    }
+}
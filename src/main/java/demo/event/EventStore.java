@@ -0,0 +1,339 @@
+package demo.event;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded store of the latest Burrow notifications.
+ * <p>
+ * Events are kept in a ring buffer of {@code demo.event.store.capacity} slots, the oldest one is overwritten
+ * once it's full. Each event is indexed by consumer group, topic and severity, and by time through its
+ * sequence, because events are stored in the order they were received.
+ * <p>
+ * Appends are serialized by a lock held only for the slot and index updates. Queries never lock, they
+ * re-check the sequence of every slot they read and skip events overwritten in the meantime.
+ */
+@Slf4j
+@Component
+public class EventStore {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final int capacity;
+    private final AtomicReferenceArray<StoredEvent> slots;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // sequence of the next event, the store holds [nextSeq - capacity, nextSeq)
+    private volatile long nextSeq;
+    private volatile int held;
+    private long lastReceivedAt;
+    // sequences of the stored events by key, in ascending order
+    private final Map<String, Deque<Long>> groupIndex = new ConcurrentHashMap<>();
+    private final Map<String, Deque<Long>> topicIndex = new ConcurrentHashMap<>();
+    private final Map<String, Deque<Long>> severityIndex = new ConcurrentHashMap<>();
+    // groups and topics of the incidents by event id, so that close events are indexed like their open events
+    private final Map<String, IncidentKeys> incidentKeys;
+
+    public EventStore(@Value("${demo.event.store.capacity:10000}") int capacity) {
+        checkArgument(capacity > 0, "capacity must be greater than 0");
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.incidentKeys = new LinkedHashMap<String, IncidentKeys>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Entry<String, IncidentKeys> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of events held by the store.
+     */
+    public int size() {
+        return held;
+    }
+
+    /**
+     * Returns the lowest sequence the store can still hold, older events are only in the {@link EventJournal}.
+     */
+    public long getLowestSeq() {
+        return Math.max(0L, nextSeq - capacity);
+    }
+
+    public StoredEvent append(EventType type, Event event) {
+        writeLock.lock();
+        try {
+            final long seq = nextSeq;
+            lastReceivedAt = Math.max(lastReceivedAt, System.currentTimeMillis());
+
+            final StoredEvent stored = StoredEvent.builder()
+                                                  .seq(seq)
+                                                  .receivedAt(lastReceivedAt)
+                                                  .type(type)
+                                                  .groups(new HashSet<>())
+                                                  .topics(new HashSet<>())
+                                                  .severities(new HashSet<>())
+                                                  .event(event)
+                                                  .build();
+            store(stored);
+            return stored;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Puts back an event read from the {@link EventJournal} with its original sequence and time. Events must be
+     * restored in ascending order, before any new event is appended.
+     */
+    public void restore(StoredEvent stored) {
+        writeLock.lock();
+        try {
+            checkArgument(stored.getSeq() >= nextSeq, "seq %s must not be lower than %s",
+                          stored.getSeq(), nextSeq);
+            lastReceivedAt = Math.max(lastReceivedAt, stored.getReceivedAt());
+            store(stored);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the newest events matching the query.
+     */
+    public EventPage query(EventQuery query) {
+        final int size = pageSize(query);
+        final long next = nextSeq;
+        long lower = Math.max(0L, next - capacity);
+        long upper = next;
+        if (query.getCursor() != null) {
+            upper = Math.min(upper, query.getCursor());
+        }
+        if (query.getFrom() != null) {
+            lower = Math.max(lower, firstSeqReceivedAfter(query.getFrom() - 1L, lower, upper));
+        }
+        if (query.getTo() != null) {
+            upper = Math.min(upper, firstSeqReceivedAfter(query.getTo(), lower, upper));
+        }
+
+        final List<StoredEvent> events = new ArrayList<>(Math.min(size, capacity));
+        Long nextCursor = null;
+        final Iterator<Long> candidates = candidates(query, upper);
+        while (candidates.hasNext()) {
+            final long seq = candidates.next();
+            if (seq >= upper) {
+                continue;
+            }
+            if (seq < lower) {
+                break;
+            }
+            final StoredEvent event = get(seq);
+            if (event == null || !matches(event, query)) {
+                continue;
+            }
+            if (events.size() == size) {
+                nextCursor = events.get(events.size() - 1).getSeq();
+                break;
+            }
+            events.add(event);
+        }
+        return EventPage.builder().events(events).nextCursor(nextCursor).build();
+    }
+
+    private void store(StoredEvent stored) {
+        extractKeys(stored);
+
+        final long seq = stored.getSeq();
+        final int idx = (int) (seq % capacity);
+        final StoredEvent evicted = slots.get(idx);
+        if (evicted != null) {
+            unindex(evicted);
+        } else {
+            held++;
+        }
+        slots.set(idx, stored);
+        index(stored);
+        nextSeq = seq + 1;
+    }
+
+    /**
+     * Returns the event with the given sequence, or null if it isn't held anymore.
+     */
+    public StoredEvent get(long seq) {
+        if (seq < 0L || seq >= nextSeq) {
+            return null;
+        }
+        final StoredEvent event = slots.get((int) (seq % capacity));
+        return event != null && event.getSeq() == seq ? event : null;
+    }
+
+    /**
+     * Iterates the sequences to check in descending order, through the most selective index of the query.
+     */
+    private Iterator<Long> candidates(EventQuery query, long upper) {
+        if (query.getGroup() != null) {
+            return descending(groupIndex.get(query.getGroup()));
+        }
+        if (query.getTopic() != null) {
+            return descending(topicIndex.get(query.getTopic()));
+        }
+        if (query.getSeverity() != null) {
+            return descending(severityIndex.get(query.getSeverity()));
+        }
+        return new Iterator<Long>() {
+            private long seq = upper - 1;
+
+            @Override
+            public boolean hasNext() {
+                return seq >= 0L;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return seq--;
+            }
+        };
+    }
+
+    private static Iterator<Long> descending(Deque<Long> sequences) {
+        return sequences == null ? Collections.emptyIterator() : sequences.descendingIterator();
+    }
+
+    static int pageSize(EventQuery query) {
+        return Math.max(1, Math.min(query.getSize(), MAX_PAGE_SIZE));
+    }
+
+    static boolean matches(StoredEvent event, EventQuery query) {
+        if (event.getType() == EventType.OPEN ? !query.isIncludeOpen() : !query.isIncludeClose()) {
+            return false;
+        }
+        if (query.getFrom() != null && event.getReceivedAt() < query.getFrom()) {
+            return false;
+        }
+        if (query.getTo() != null && event.getReceivedAt() > query.getTo()) {
+            return false;
+        }
+        return (query.getGroup() == null || event.getGroups().contains(query.getGroup()))
+               && (query.getTopic() == null || event.getTopics().contains(query.getTopic()))
+               && (query.getSeverity() == null || event.getSeverities().contains(query.getSeverity()));
+    }
+
+    /**
+     * Returns the lowest sequence in [lower, upper) received after the given time, or upper if there is none.
+     */
+    private long firstSeqReceivedAfter(long timestamp, long lower, long upper) {
+        long low = lower;
+        long high = upper;
+        while (low < high) {
+            final long mid = (low + high) >>> 1;
+            final StoredEvent event = get(mid);
+            // an overwritten event was older than everything we still hold
+            if (event == null || event.getReceivedAt() <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void index(StoredEvent event) {
+        addAll(groupIndex, event.getGroups(), event.getSeq());
+        addAll(topicIndex, event.getTopics(), event.getSeq());
+        addAll(severityIndex, event.getSeverities(), event.getSeq());
+    }
+
+    private void unindex(StoredEvent event) {
+        removeAll(groupIndex, event.getGroups(), event.getSeq());
+        removeAll(topicIndex, event.getTopics(), event.getSeq());
+        removeAll(severityIndex, event.getSeverities(), event.getSeq());
+    }
+
+    private static void addAll(Map<String, Deque<Long>> index, Collection<String> keys, long seq) {
+        for (String key : keys) {
+            index.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>()).addLast(seq);
+        }
+    }
+
+    private static void removeAll(Map<String, Deque<Long>> index, Collection<String> keys, long seq) {
+        for (String key : keys) {
+            final Deque<Long> sequences = index.get(key);
+            // the evicted event is the oldest one, so it's the head of every index it's in
+            if (sequences != null && sequences.peekFirst() != null && sequences.peekFirst() == seq) {
+                sequences.pollFirst();
+            }
+        }
+    }
+
+    private void extractKeys(StoredEvent stored) {
+        final Event event = stored.getEvent();
+        if (stored.getType() == EventType.CLOSE) {
+            if (event.getIds() != null) {
+                for (String id : event.getIds()) {
+                    final IncidentKeys keys = incidentKeys.remove(id);
+                    if (keys != null) {
+                        stored.getGroups().addAll(keys.groups);
+                        stored.getTopics().addAll(keys.topics);
+                    }
+                }
+            }
+            return;
+        }
+        if (event.getEvents() == null) {
+            return;
+        }
+        for (GroupEvent groupEvent : event.getEvents()) {
+            final IncidentKeys keys = new IncidentKeys();
+            addIfPresent(keys.groups, groupEvent.getGroup());
+            addIfPresent(stored.getSeverities(), groupEvent.getSeverity());
+            if (groupEvent.getPartitions() != null) {
+                for (PartitionEvent partition : groupEvent.getPartitions()) {
+                    addIfPresent(keys.topics, partition.getTopic());
+                }
+            }
+            stored.getGroups().addAll(keys.groups);
+            stored.getTopics().addAll(keys.topics);
+            if (groupEvent.getId() != null) {
+                incidentKeys.put(groupEvent.getId(), keys);
+            }
+        }
+    }
+
+    private static void addIfPresent(Set<String> keys, String value) {
+        if (value != null) {
+            keys.add(value);
+        }
+    }
+
+    private static class IncidentKeys {
+        private final Set<String> groups = new HashSet<>();
+        private final Set<String> topics = new HashSet<>();
+    }
+}
@@ -0,0 +1,8 @@
+package demo.event;
+
+public enum EventType {
+    // "POST /api/event", an incident was opened or is still open
+    OPEN,
+    // "DELETE /api/event", an incident was closed
+    CLOSE
+}
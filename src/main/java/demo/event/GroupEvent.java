@@ -0,0 +1,26 @@
+package demo.event;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Lag incident of a consumer group, an element of "events" of an open {@link Event}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GroupEvent {
+    private String id;
+    // WARN or ERR
+    private String severity;
+    private String tier;
+    private String group;
+    private String start;
+    private double complete;
+    private List<PartitionEvent> partitions;
+}
@@ -0,0 +1,35 @@
+package demo.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A lag incident of a single partition of a consumer group, or of the whole group if Burrow reported no
+ * partition, coalesced from every notification of the same incident by the {@link IncidentTable}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class Incident {
+    // "id" of the Burrow incident, shared by its partitions
+    private String id;
+    private String burrowId;
+    private String group;
+    // null with a partition of -1 if the incident has no partitions
+    private String topic;
+    private int partition;
+    // latest severity and partition status
+    private String severity;
+    private String status;
+    private long firstSeen;
+    private long lastSeen;
+    // null while the incident is open
+    private Long closedAt;
+    private long currentLag;
+    private long peakLag;
+    // notifications received after the first one
+    private long repeats;
+}
@@ -0,0 +1,40 @@
+package demo.event;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/incident")
+@RequiredArgsConstructor
+public class IncidentController {
+
+    private final IncidentTable incidentTable;
+
+    /**
+     * Handle "GET /api/incident?group=consumers-1" to get the open incidents by partition, from the oldest.
+     */
+    @GetMapping
+    public ResponseEntity<List<Incident>> getOpenIncidents(@RequestParam(value = "group", required = false)
+                                                                   String group) {
+        return ResponseEntity.ok(incidentTable.getOpen(group));
+    }
+
+    /**
+     * Handle "GET /api/incident/closed?group=consumers-1&size=100" to get the latest closed incidents, from the
+     * newest.
+     */
+    @GetMapping("/closed")
+    public ResponseEntity<List<Incident>> getClosedIncidents(@RequestParam(value = "group", required = false)
+                                                                     String group,
+                                                             @RequestParam(value = "size", required = false,
+                                                                     defaultValue = "100") int size) {
+        return ResponseEntity.ok(incidentTable.getClosed(group, size));
+    }
+}
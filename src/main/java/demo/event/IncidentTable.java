@@ -0,0 +1,170 @@
+package demo.event;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Open lag incidents keyed by incident id, group and partition, and a bounded history of the closed ones.
+ * <p>
+ * Burrow posts an open incident again every notifier interval until it closes, so instead of keeping every
+ * copy, each notification updates the rows of its incident in place: the last time it was seen, the latest lag
+ * and severity, the peak lag and the number of repeats. A close event moves the rows of its incidents to the
+ * history of the last {@code demo.event.incidents.history} closed incidents. Updates take constant time per
+ * partition and are serialized by the lock of the table.
+ */
+@Slf4j
+@Component
+public class IncidentTable {
+
+    private static final Comparator<Incident> OPEN_ORDER =
+            Comparator.comparingLong(Incident::getFirstSeen).thenComparing(Incident::getId);
+
+    private final int historyCapacity;
+    // rows of the open incidents by incident id, then by "topic-partition"
+    private final Map<String, Map<String, Incident>> open = new HashMap<>();
+    // closed rows from the oldest
+    private final Deque<Incident> closed = new ArrayDeque<>();
+
+    public IncidentTable(@Value("${demo.event.incidents.history:1000}") int historyCapacity) {
+        checkArgument(historyCapacity > 0, "historyCapacity must be greater than 0");
+        this.historyCapacity = historyCapacity;
+    }
+
+    /**
+     * Applies a stored event to the table, at the time it was received.
+     */
+    public synchronized void apply(StoredEvent stored) {
+        final Event event = stored.getEvent();
+        if (stored.getType() == EventType.CLOSE) {
+            if (event.getIds() != null) {
+                for (String id : event.getIds()) {
+                    close(id, stored.getReceivedAt());
+                }
+            }
+            return;
+        }
+        if (event.getEvents() == null) {
+            return;
+        }
+        for (GroupEvent groupEvent : event.getEvents()) {
+            if (groupEvent.getId() == null) {
+                continue;
+            }
+            final Map<String, Incident> rows = open.computeIfAbsent(groupEvent.getId(), k -> new LinkedHashMap<>());
+            if (groupEvent.getPartitions() == null || groupEvent.getPartitions().isEmpty()) {
+                update(rows, stored, groupEvent, null);
+                continue;
+            }
+            for (PartitionEvent partition : groupEvent.getPartitions()) {
+                update(rows, stored, groupEvent, partition);
+            }
+        }
+    }
+
+    /**
+     * Returns the open incidents, of the given group only if not null, from the oldest.
+     */
+    public synchronized List<Incident> getOpen(String group) {
+        final List<Incident> result = new ArrayList<>();
+        for (Map<String, Incident> rows : open.values()) {
+            for (Incident incident : rows.values()) {
+                if (group == null || group.equals(incident.getGroup())) {
+                    result.add(incident.toBuilder().build());
+                }
+            }
+        }
+        result.sort(OPEN_ORDER);
+        return result;
+    }
+
+    /**
+     * Returns at most {@code size} closed incidents, of the given group only if not null, from the newest.
+     */
+    public synchronized List<Incident> getClosed(String group, int size) {
+        if (size <= 0) {
+            return Collections.emptyList();
+        }
+        final List<Incident> result = new ArrayList<>();
+        final Iterator<Incident> newest = closed.descendingIterator();
+        while (newest.hasNext() && result.size() < size) {
+            final Incident incident = newest.next();
+            if (group == null || group.equals(incident.getGroup())) {
+                // closed rows aren't updated anymore
+                result.add(incident);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of open incident rows.
+     */
+    public synchronized int openSize() {
+        int size = 0;
+        for (Map<String, Incident> rows : open.values()) {
+            size += rows.size();
+        }
+        return size;
+    }
+
+    private void update(Map<String, Incident> rows, StoredEvent stored, GroupEvent groupEvent,
+                        PartitionEvent partition) {
+        final String topic = partition == null ? null : partition.getTopic();
+        final int partitionId = partition == null ? -1 : partition.getPartition();
+        final long lag = partition == null ? 0L : partition.getCurrentLag();
+        final String key = topic + '-' + partitionId;
+        final Incident incident = rows.get(key);
+        if (incident == null) {
+            rows.put(key, Incident.builder()
+                                  .id(groupEvent.getId())
+                                  .burrowId(stored.getEvent().getBurrowId())
+                                  .group(groupEvent.getGroup())
+                                  .topic(topic)
+                                  .partition(partitionId)
+                                  .severity(groupEvent.getSeverity())
+                                  .status(partition == null ? null : partition.getStatus())
+                                  .firstSeen(stored.getReceivedAt())
+                                  .lastSeen(stored.getReceivedAt())
+                                  .currentLag(lag)
+                                  .peakLag(lag)
+                                  .build());
+            return;
+        }
+        incident.setSeverity(groupEvent.getSeverity());
+        incident.setStatus(partition == null ? null : partition.getStatus());
+        incident.setLastSeen(Math.max(incident.getLastSeen(), stored.getReceivedAt()));
+        incident.setCurrentLag(lag);
+        incident.setPeakLag(Math.max(incident.getPeakLag(), lag));
+        incident.setRepeats(incident.getRepeats() + 1L);
+    }
+
+    private void close(String id, long closedAt) {
+        final Map<String, Incident> rows = open.remove(id);
+        if (rows == null) {
+            logger.debug("Close an unknown incident. id: {}", id);
+            return;
+        }
+        for (Incident incident : rows.values()) {
+            incident.setClosedAt(closedAt);
+            closed.addLast(incident);
+            if (closed.size() > historyCapacity) {
+                closed.pollFirst();
+            }
+        }
+    }
+}
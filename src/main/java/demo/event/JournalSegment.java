@@ -0,0 +1,212 @@
+package demo.event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A file of the {@link EventJournal}, named after the sequence of its first event.
+ * <p>
+ * A record is {@code [int length][int crc32][body]}, the body being encoded by {@link EventCodec}. The end offset
+ * of every record is kept on heap, so that records can be read in reverse order. Appends are made by a single
+ * writer through the channel, while reads go through a read only mapping of the file, mapped again whenever
+ * the file has grown since.
+ */
+@Slf4j
+final class JournalSegment implements Closeable {
+
+    static final String SUFFIX = ".journal";
+    // length and crc32
+    static final int RECORD_HEADER_BYTES = 8;
+
+    private final Path path;
+    private final long baseSeq;
+    private final FileChannel channel;
+    private volatile int[] ends = new int[1024];
+    private volatile int count;
+    private volatile long size;
+    private volatile long firstReceivedAt = Long.MAX_VALUE;
+    private volatile long lastReceivedAt = Long.MIN_VALUE;
+    private volatile MappedByteBuffer mapped;
+
+    private JournalSegment(Path path, long baseSeq, FileChannel channel) {
+        this.path = path;
+        this.baseSeq = baseSeq;
+        this.channel = channel;
+    }
+
+    static JournalSegment create(Path dir, long baseSeq) throws IOException {
+        final Path path = dir.resolve(String.format("%020d%s", baseSeq, SUFFIX));
+        return new JournalSegment(path, baseSeq,
+                                  FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                                                   StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Opens an existing segment and rebuilds its record offsets. A torn or corrupted tail, left by a crash in the
+     * middle of an append, is truncated.
+     */
+    static JournalSegment open(Path path) throws IOException {
+        final String name = path.getFileName().toString();
+        final long baseSeq = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        final JournalSegment segment = new JournalSegment(path, baseSeq,
+                                                          FileChannel.open(path, StandardOpenOption.READ,
+                                                                           StandardOpenOption.WRITE));
+        segment.recover();
+        return segment;
+    }
+
+    long getBaseSeq() {
+        return baseSeq;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long getFirstReceivedAt() {
+        return firstReceivedAt;
+    }
+
+    long getLastReceivedAt() {
+        return lastReceivedAt;
+    }
+
+    /**
+     * Returns the offset of the body of the i-th record.
+     */
+    int bodyOffset(int i) {
+        return (i == 0 ? 0 : ends[i - 1]) + RECORD_HEADER_BYTES;
+    }
+
+    /**
+     * Returns the index of the last record of [0, count) with a sequence lower than the given one, or -1.
+     */
+    int lastIndexBefore(ByteBuffer buffer, int count, long seq) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (EventCodec.seq(buffer, bodyOffset(mid)) < seq) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Returns a read only view of at least the first {@code count} records.
+     */
+    ByteBuffer read(int count) throws IOException {
+        final long required = count == 0 ? 0L : ends[count - 1];
+        MappedByteBuffer buffer = mapped;
+        if (buffer == null || buffer.capacity() < required) {
+            buffer = remap(required);
+        }
+        return buffer.duplicate();
+    }
+
+    void append(byte[] record, int length, long receivedAt) throws IOException {
+        final ByteBuffer source = ByteBuffer.wrap(record, 0, length);
+        long position = size;
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+        addRecord(position, receivedAt);
+    }
+
+    /**
+     * Flushes the segment to the disk, it won't be appended anymore.
+     */
+    void seal() throws IOException {
+        channel.force(true);
+        remap(size);
+    }
+
+    void flush() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    private synchronized MappedByteBuffer remap(long required) throws IOException {
+        MappedByteBuffer buffer = mapped;
+        if (buffer == null || buffer.capacity() < required) {
+            // the mapping of a file deleted in the meantime stays valid until it's collected
+            buffer = channel.map(MapMode.READ_ONLY, 0L, Math.max(required, size));
+            mapped = buffer;
+        }
+        return buffer;
+    }
+
+    private void recover() throws IOException {
+        final long fileSize = channel.size();
+        final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0L, fileSize);
+        final CRC32 crc = new CRC32();
+        int position = 0;
+        while (position + RECORD_HEADER_BYTES + EventCodec.HEADER_BYTES <= fileSize) {
+            final int length = buffer.getInt(position);
+            final int end = position + RECORD_HEADER_BYTES + length;
+            if (length < EventCodec.HEADER_BYTES || end > fileSize || end < 0) {
+                break;
+            }
+            final ByteBuffer body = buffer.duplicate();
+            body.limit(end).position(position + RECORD_HEADER_BYTES);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            addRecord(end, EventCodec.receivedAt(buffer, position + RECORD_HEADER_BYTES));
+            position = end;
+        }
+        if (position < fileSize) {
+            logger.warn("Truncate {} from {} to {} bytes", path, fileSize, position);
+            channel.truncate(position);
+        }
+        mapped = position < fileSize ? null : buffer;
+    }
+
+    private void addRecord(long end, long receivedAt) {
+        int[] current = ends;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            ends = current;
+        }
+        current[count] = (int) end;
+        size = end;
+        if (firstReceivedAt == Long.MAX_VALUE) {
+            firstReceivedAt = receivedAt;
+        }
+        lastReceivedAt = receivedAt;
+        count = count + 1;
+    }
+}
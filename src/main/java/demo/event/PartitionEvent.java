@@ -0,0 +1,40 @@
+package demo.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Status of a single partition of a {@link GroupEvent}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PartitionEvent {
+    private String topic;
+    private int partition;
+    private String owner;
+    private String clientId;
+    // OK, WARN, STALL, STOP or REWIND
+    private String status;
+    private OffsetSnapshot start;
+    private OffsetSnapshot end;
+    private long currentLag;
+    private double complete;
+
+    /**
+     * Committed offset of a partition at some point of the evaluation window.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class OffsetSnapshot {
+        private long offset;
+        private long timestamp;
+        private long observedAt;
+        private long lag;
+    }
+}
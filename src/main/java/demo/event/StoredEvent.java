@@ -0,0 +1,25 @@
+package demo.event;
+
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event kept by the {@link EventStore} along with the keys it is indexed by.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoredEvent {
+    private long seq;
+    private long receivedAt;
+    private EventType type;
+    private Set<String> groups;
+    private Set<String> topics;
+    private Set<String> severities;
+    private Event event;
+}
@@ -0,0 +1,122 @@
+package demo.lag;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.stereotype.Component;
+
+import demo.cluster.ClusterRegistry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads committed offsets of consumer groups and end offsets of their partitions through the shared AdminClient
+ * of their cluster.
+ * <p>
+ * Every read issues one request per kind: groups are described in one call, their committed offsets are
+ * requested concurrently and the end offsets of all partitions are listed in one call.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConsumerGroupOffsetReader {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30L);
+
+    private final ClusterRegistry clusterRegistry;
+
+    /**
+     * Reads the offsets of every consumer group of the cluster matching the filter.
+     */
+    public OffsetsSnapshot read(String cluster, Predicate<String> groupFilter) throws Exception {
+        final Collection<ConsumerGroupListing> listings = clusterRegistry.admin(cluster)
+                                                                         .listConsumerGroups()
+                                                                         .all()
+                                                                         .get(TIMEOUT.toMillis(),
+                                                                              TimeUnit.MILLISECONDS);
+        return read(cluster, listings.stream()
+                                     .map(ConsumerGroupListing::groupId)
+                                     .filter(groupFilter)
+                                     .collect(Collectors.toList()));
+    }
+
+    /**
+     * Reads the offsets of the given consumer groups of the cluster.
+     */
+    public OffsetsSnapshot read(String cluster, Collection<String> groups) throws Exception {
+        final long timestamp = System.currentTimeMillis();
+        final Map<String, GroupOffsets> groupOffsets = new HashMap<>();
+        final Map<TopicPartition, Long> endOffsets = new HashMap<>();
+        if (groups.isEmpty()) {
+            return snapshot(cluster, timestamp, groupOffsets, endOffsets);
+        }
+
+        final AdminClient admin = clusterRegistry.admin(cluster);
+        final KafkaFuture<Map<String, ConsumerGroupDescription>> descriptions =
+                admin.describeConsumerGroups(groups).all();
+        final Map<String, KafkaFuture<Map<TopicPartition, OffsetAndMetadata>>> committedFutures = new HashMap<>();
+        for (String group : groups) {
+            committedFutures.put(group, admin.listConsumerGroupOffsets(group).partitionsToOffsetAndMetadata());
+        }
+
+        final Map<String, ConsumerGroupDescription> described = descriptions.get(TIMEOUT.toMillis(),
+                                                                                 TimeUnit.MILLISECONDS);
+        final Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+        for (Entry<String, KafkaFuture<Map<TopicPartition, OffsetAndMetadata>>> entry
+                : committedFutures.entrySet()) {
+            final Map<TopicPartition, Long> committed = new HashMap<>();
+            try {
+                for (Entry<TopicPartition, OffsetAndMetadata> offset
+                        : entry.getValue().get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).entrySet()) {
+                    if (offset.getValue() != null) {
+                        committed.put(offset.getKey(), offset.getValue().offset());
+                        latest.put(offset.getKey(), OffsetSpec.latest());
+                    }
+                }
+            } catch (Exception e) {
+                logger.warn("[{}] Failed to read committed offsets of {}", cluster, entry.getKey(), e);
+                continue;
+            }
+            final ConsumerGroupDescription description = described.get(entry.getKey());
+            groupOffsets.put(entry.getKey(), GroupOffsets.builder()
+                                                         .group(entry.getKey())
+                                                         .active(description != null
+                                                                 && !description.members().isEmpty())
+                                                         .committed(committed)
+                                                         .build());
+        }
+
+        if (!latest.isEmpty()) {
+            for (Entry<TopicPartition, ListOffsetsResultInfo> entry
+                    : admin.listOffsets(latest).all().get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).entrySet()) {
+                endOffsets.put(entry.getKey(), entry.getValue().offset());
+            }
+        }
+        return snapshot(cluster, timestamp, groupOffsets, endOffsets);
+    }
+
+    private static OffsetsSnapshot snapshot(String cluster, long timestamp, Map<String, GroupOffsets> groupOffsets,
+                                            Map<TopicPartition, Long> endOffsets) {
+        return OffsetsSnapshot.builder()
+                              .cluster(cluster)
+                              .timestamp(timestamp)
+                              .groups(groupOffsets)
+                              .endOffsets(endOffsets)
+                              .build();
+    }
+}
@@ -0,0 +1,23 @@
+package demo.lag;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GroupLagStatus {
+    private String cluster;
+    private String group;
+    // OK, WARN or ERR
+    private LagStatus status;
+    private double complete;
+    private long totalLag;
+    private long evaluatedAt;
+    private List<PartitionLagStatus> partitions;
+}
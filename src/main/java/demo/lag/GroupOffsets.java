@@ -0,0 +1,24 @@
+package demo.lag;
+
+import java.util.Map;
+
+import org.apache.kafka.common.TopicPartition;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Committed offsets of a consumer group.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GroupOffsets {
+    private String group;
+    // whether the group has members
+    private boolean active;
+    private Map<TopicPartition, Long> committed;
+}
@@ -0,0 +1,25 @@
+package demo.lag;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Lag of a partition aggregated over [start, end].
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LagBucket {
+    private long start;
+    private long end;
+    private int samples;
+    private long minLag;
+    private long maxLag;
+    private double avgLag;
+    // offsets of the last sample of the bucket
+    private long committedOffset;
+    private long endOffset;
+}
@@ -0,0 +1,59 @@
+package demo.lag;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import demo.cluster.ClusterRegistry;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/lag")
+@ConditionalOnProperty(prefix = "demo.lag-evaluator", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class LagController {
+
+    private final LagEvaluator lagEvaluator;
+    private final ClusterRegistry clusterRegistry;
+
+    /**
+     * Handle "GET /api/lag?cluster=default" to get the last evaluated status of every consumer group by cluster,
+     * of every cluster unless "cluster" is given.
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Map<String, GroupLagStatus>>> getStatuses(
+            @RequestParam(value = "cluster", required = false) String cluster) {
+        final Map<String, Map<String, GroupLagStatus>> statuses = lagEvaluator.getStatuses();
+        if (cluster == null) {
+            return ResponseEntity.ok(statuses);
+        }
+        return ResponseEntity.ok(statuses.containsKey(cluster)
+                                 ? Collections.singletonMap(cluster, statuses.get(cluster))
+                                 : Collections.emptyMap());
+    }
+
+    /**
+     * Handle "GET /api/lag/{group}?cluster=default" to get the last evaluated status of a consumer group of the
+     * cluster, the default one unless "cluster" is given.
+     */
+    @GetMapping("/{group}")
+    public ResponseEntity<GroupLagStatus> getStatus(@PathVariable("group") String group,
+                                                    @RequestParam(value = "cluster", required = false)
+                                                            String cluster) {
+        final Map<String, GroupLagStatus> statuses =
+                lagEvaluator.getStatuses().get(cluster != null ? cluster : clusterRegistry.getDefaultName());
+        final GroupLagStatus status = statuses == null ? null : statuses.get(group);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status);
+    }
+}
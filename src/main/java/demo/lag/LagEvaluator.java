@@ -0,0 +1,278 @@
+package demo.lag;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import demo.cluster.ClusterRegistry;
+import demo.event.Event;
+import demo.event.EventRecorder;
+import demo.event.EventType;
+import demo.event.GroupEvent;
+import demo.event.PartitionEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process alternative to Burrow, enabled by "demo.lag-evaluator.enabled=true".
+ * <p>
+ * Every {@code offsetRefresh} it reads committed and end offsets of all consumer groups of every cluster of the
+ * {@link ClusterRegistry}, adds them to a {@link PartitionWindow} per partition and evaluates the status of each
+ * group. Every {@code notifyInterval} it raises an open event for each group at or above the {@code threshold},
+ * and a close event once a group recovered, the same way Burrow's http notifier does. Both tasks run on a single
+ * thread.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "demo.lag-evaluator", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class LagEvaluator {
+
+    private final LagEvaluatorProperties properties;
+    private final ConsumerGroupOffsetReader offsetReader;
+    private final ClusterRegistry clusterRegistry;
+    private final EventRecorder eventRecorder;
+    // cluster -> group -> state
+    private final Map<String, Map<String, GroupState>> clusters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "lag-evaluator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        logger.info("Start lag evaluator. intervals: {} / offsetRefresh: {} / notifyInterval: {}",
+                    properties.getIntervals(), properties.getOffsetRefresh(), properties.getNotifyInterval());
+        executor.scheduleWithFixedDelay(this::refresh, 0L, properties.getOffsetRefresh().toMillis(),
+                                        TimeUnit.MILLISECONDS);
+        executor.scheduleAtFixedRate(this::notifyIncidents, properties.getNotifyInterval().toMillis(),
+                                     properties.getNotifyInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the last evaluated status of every group by cluster and group.
+     */
+    public Map<String, Map<String, GroupLagStatus>> getStatuses() {
+        final Map<String, Map<String, GroupLagStatus>> statuses = new TreeMap<>();
+        for (Entry<String, Map<String, GroupState>> cluster : clusters.entrySet()) {
+            final Map<String, GroupLagStatus> groups = new TreeMap<>();
+            for (Entry<String, GroupState> entry : cluster.getValue().entrySet()) {
+                final GroupLagStatus status = entry.getValue().status;
+                if (status != null) {
+                    groups.put(entry.getKey(), status);
+                }
+            }
+            statuses.put(cluster.getKey(), groups);
+        }
+        return statuses;
+    }
+
+    void refresh() {
+        final Predicate<String> groupFilter = groupFilter();
+        // a cluster which can't be read keeps its last statuses, without holding up the other clusters
+        for (String cluster : clusterRegistry.getNames()) {
+            try {
+                final OffsetsSnapshot snapshot = offsetReader.read(cluster, groupFilter);
+                final Map<String, GroupState> groups = clusters.computeIfAbsent(cluster,
+                                                                                k -> new ConcurrentHashMap<>());
+                removeGroups(groups, snapshot.getGroups().keySet());
+                for (GroupOffsets offsets : snapshot.getGroups().values()) {
+                    final GroupState state = groups.computeIfAbsent(offsets.getGroup(), k -> new GroupState());
+                    update(state, offsets, snapshot);
+                    state.status = evaluate(cluster, offsets.getGroup(), state, offsets.isActive(),
+                                            snapshot.getTimestamp());
+                }
+            } catch (Exception e) {
+                logger.warn("[{}] Exception occur while refreshing consumer offsets", cluster, e);
+            }
+        }
+    }
+
+    /**
+     * Forgets the groups which are no longer listed, closing their open incidents first, since a removed group
+     * is never reached by {@link #notifyIncidents()} again.
+     */
+    private void removeGroups(Map<String, GroupState> groups, Set<String> listed) {
+        final Iterator<Entry<String, GroupState>> it = groups.entrySet().iterator();
+        while (it.hasNext()) {
+            final Entry<String, GroupState> entry = it.next();
+            if (listed.contains(entry.getKey())) {
+                continue;
+            }
+            final GroupState state = entry.getValue();
+            if (state.incidentId != null) {
+                eventRecorder.record(EventType.CLOSE, closeEvent(state));
+                state.incidentId = null;
+            }
+            it.remove();
+        }
+    }
+
+    void notifyIncidents() {
+        try {
+            for (Map<String, GroupState> groups : clusters.values()) {
+                for (GroupState state : groups.values()) {
+                    final GroupLagStatus status = state.status;
+                    if (status != null && status.getStatus().isAtLeast(properties.getThreshold())) {
+                        if (state.incidentId == null) {
+                            state.incidentId = UUID.randomUUID().toString();
+                            state.incidentStart = System.currentTimeMillis();
+                        }
+                        eventRecorder.record(EventType.OPEN, openEvent(state, status));
+                    } else if (state.incidentId != null) {
+                        eventRecorder.record(EventType.CLOSE, closeEvent(state));
+                        state.incidentId = null;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Exception occur while notifying lag incidents", e);
+        }
+    }
+
+    private void update(GroupState state, GroupOffsets offsets, OffsetsSnapshot snapshot) {
+        state.windows.keySet().retainAll(offsets.getCommitted().keySet());
+        for (Entry<TopicPartition, Long> entry : offsets.getCommitted().entrySet()) {
+            final Long endOffset = snapshot.getEndOffsets().get(entry.getKey());
+            if (endOffset == null) {
+                continue;
+            }
+            state.windows.computeIfAbsent(entry.getKey(), k -> new PartitionWindow(properties.getIntervals()))
+                         .add(entry.getValue(), Math.max(0L, endOffset - entry.getValue()),
+                              snapshot.getTimestamp());
+        }
+    }
+
+    private static GroupLagStatus evaluate(String cluster, String group, GroupState state, boolean active,
+                                           long timestamp) {
+        LagStatus groupStatus = LagStatus.OK;
+        long totalLag = 0L;
+        double complete = 0D;
+        final List<PartitionLagStatus> partitions = new ArrayList<>(state.windows.size());
+        for (Entry<TopicPartition, PartitionWindow> entry : state.windows.entrySet()) {
+            final PartitionWindow window = entry.getValue();
+            final LagStatus status = window.evaluate(active);
+            if (status.toGroupStatus().compareTo(groupStatus) > 0) {
+                groupStatus = status.toGroupStatus();
+            }
+            totalLag += window.getCurrentLag();
+            complete += window.getComplete();
+            partitions.add(PartitionLagStatus.builder()
+                                             .topic(entry.getKey().topic())
+                                             .partition(entry.getKey().partition())
+                                             .status(status)
+                                             .start(window.first())
+                                             .end(window.last())
+                                             .currentLag(window.getCurrentLag())
+                                             .complete(window.getComplete())
+                                             .build());
+        }
+        return GroupLagStatus.builder()
+                             .cluster(cluster)
+                             .group(group)
+                             .status(groupStatus)
+                             .complete(partitions.isEmpty() ? 0D : complete / partitions.size())
+                             .totalLag(totalLag)
+                             .evaluatedAt(timestamp)
+                             .partitions(partitions)
+                             .build();
+    }
+
+    private Event openEvent(GroupState state, GroupLagStatus status) {
+        final List<PartitionEvent> partitions = new ArrayList<>();
+        for (PartitionLagStatus partition : status.getPartitions()) {
+            if (partition.getStatus() == LagStatus.OK) {
+                continue;
+            }
+            partitions.add(PartitionEvent.builder()
+                                         .topic(partition.getTopic())
+                                         .partition(partition.getPartition())
+                                         .status(partition.getStatus().name())
+                                         .start(partition.getStart())
+                                         .end(partition.getEnd())
+                                         .currentLag(partition.getCurrentLag())
+                                         .complete(partition.getComplete())
+                                         .build());
+        }
+        final GroupEvent groupEvent = GroupEvent.builder()
+                                                .id(state.incidentId)
+                                                .severity(status.getStatus().name())
+                                                .group(status.getGroup())
+                                                .start(formatStart(state.incidentStart))
+                                                .complete(status.getComplete())
+                                                .partitions(partitions)
+                                                .build();
+        return Event.builder()
+                    .burrowId(properties.getBurrowId())
+                    .app("lag-evaluator")
+                    .events(Collections.singletonList(groupEvent))
+                    .build();
+    }
+
+    private Event closeEvent(GroupState state) {
+        return Event.builder()
+                    .burrowId(properties.getBurrowId())
+                    .app("lag-evaluator")
+                    .ids(Collections.singletonList(state.incidentId))
+                    .start(formatStart(state.incidentStart))
+                    .build();
+    }
+
+    private Predicate<String> groupFilter() {
+        final Pattern allowlist = properties.getGroupAllowlist().isEmpty()
+                                  ? null : Pattern.compile(properties.getGroupAllowlist());
+        final Pattern denylist = properties.getGroupDenylist().isEmpty()
+                                 ? null : Pattern.compile(properties.getGroupDenylist());
+        return group -> (allowlist == null || allowlist.matcher(group).matches())
+                        && (denylist == null || !denylist.matcher(group).matches());
+    }
+
+    /**
+     * Formats the start time of an incident the way http-post2.tmpl does.
+     */
+    private static String formatStart(long timestamp) {
+        final SimpleDateFormat format = new SimpleDateFormat("MMM dd, yyyy HH:mm:ss 'UTC'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(timestamp));
+    }
+
+    private static class GroupState {
+        // only accessed by the evaluator thread
+        private final Map<TopicPartition, PartitionWindow> windows = new HashMap<>();
+        private String incidentId;
+        private long incidentStart;
+        // read by getStatuses()
+        private volatile GroupLagStatus status;
+    }
+}
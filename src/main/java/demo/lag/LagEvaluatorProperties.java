@@ -0,0 +1,30 @@
+package demo.lag;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * Settings of the {@link LagEvaluator}, named after the matching settings of burrow.toml.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "demo.lag-evaluator")
+public class LagEvaluatorProperties {
+    private boolean enabled;
+    // number of offsets kept per partition, "intervals" of [storage]
+    private int intervals = 5;
+    // how often committed and end offsets are read, "offset-refresh" of [cluster]
+    private Duration offsetRefresh = Duration.ofSeconds(10L);
+    // how often open incidents are notified again, "interval" of [notifier]
+    private Duration notifyInterval = Duration.ofSeconds(5L);
+    // lowest group status which opens an incident, "threshold" of [notifier]
+    private LagStatus threshold = LagStatus.WARN;
+    private String groupAllowlist = "";
+    private String groupDenylist = "^(console-consumer-|python-kafka-consumer-).*$";
+    // "burrowId" of the events raised by the evaluator
+    private String burrowId = "in-process";
+}
@@ -0,0 +1,208 @@
+package demo.lag;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Committed and end offsets of a partition sampled over time, lag being the difference of both.
+ * <p>
+ * Samples are delta-encoded into chunks of {@link #CHUNK_SAMPLES}: timestamps as the difference of consecutive
+ * intervals, which is 0 for a steady sampling, and offsets as the difference to the previous sample, every
+ * value being a zig-zag varint. Chunks are kept in a ring and the oldest one is dropped as a whole, so a series
+ * holds at least {@code capacity} and fewer than {@code capacity + 2 * CHUNK_SAMPLES} samples, usually in 4 to 6
+ * bytes each.
+ * <p>
+ * Appends and reads are serialized by the lock of the series.
+ */
+final class LagSeries {
+
+    static final int CHUNK_SAMPLES = 64;
+
+    private final Chunk[] chunks;
+    // index of the oldest chunk and number of chunks in the ring
+    private int head;
+    private int count;
+
+    LagSeries(int capacity) {
+        checkArgument(capacity > 0, "capacity must be greater than 0");
+        this.chunks = new Chunk[(capacity + CHUNK_SAMPLES - 1) / CHUNK_SAMPLES + 1];
+    }
+
+    synchronized void append(long timestamp, long committed, long end) {
+        Chunk chunk = count == 0 ? null : chunks[(head + count - 1) % chunks.length];
+        if (chunk != null && timestamp < chunk.lastTimestamp) {
+            return;
+        }
+        if (chunk == null || chunk.samples == CHUNK_SAMPLES) {
+            if (chunk != null) {
+                chunk.trim();
+            }
+            if (count == chunks.length) {
+                chunks[head] = null;
+                head = (head + 1) % chunks.length;
+                count--;
+            }
+            chunk = new Chunk();
+            chunks[(head + count) % chunks.length] = chunk;
+            count++;
+        }
+        chunk.append(timestamp, committed, end);
+    }
+
+    synchronized int size() {
+        int samples = 0;
+        for (int i = 0; i < count; i++) {
+            samples += chunks[(head + i) % chunks.length].samples;
+        }
+        return samples;
+    }
+
+    /**
+     * Returns the number of bytes the encoded samples take.
+     */
+    synchronized long bytes() {
+        long bytes = 0L;
+        for (int i = 0; i < count; i++) {
+            bytes += chunks[(head + i) % chunks.length].data.length;
+        }
+        return bytes;
+    }
+
+    synchronized long getLastTimestamp() {
+        return count == 0 ? Long.MIN_VALUE : chunks[(head + count - 1) % chunks.length].lastTimestamp;
+    }
+
+    /**
+     * Passes the samples of [from, to] to the visitor, oldest first.
+     */
+    synchronized void scan(long from, long to, SampleVisitor visitor) {
+        for (int i = 0; i < count; i++) {
+            final Chunk chunk = chunks[(head + i) % chunks.length];
+            if (chunk.lastTimestamp < from || chunk.firstTimestamp > to) {
+                continue;
+            }
+            chunk.scan(from, to, visitor);
+        }
+    }
+
+    /**
+     * Aggregates the lag of the samples of [from, to] into buckets of equal width, empty buckets are omitted.
+     */
+    List<LagBucket> downsample(long from, long to, int buckets) {
+        checkArgument(to >= from, "to must be greater than or equal to from");
+        checkArgument(buckets > 0, "buckets must be greater than 0");
+        final long width = Math.max(1L, (to - from) / buckets + 1L);
+        final List<LagBucket> result = new ArrayList<>();
+        scan(from, to, (timestamp, committed, end) -> {
+            final long start = from + (timestamp - from) / width * width;
+            LagBucket bucket = result.isEmpty() ? null : result.get(result.size() - 1);
+            if (bucket == null || bucket.getStart() != start) {
+                bucket = LagBucket.builder()
+                                  .start(start)
+                                  .end(start + width - 1L)
+                                  .minLag(Long.MAX_VALUE)
+                                  .maxLag(Long.MIN_VALUE)
+                                  .build();
+                result.add(bucket);
+            }
+            final long lag = Math.max(0L, end - committed);
+            bucket.setMinLag(Math.min(bucket.getMinLag(), lag));
+            bucket.setMaxLag(Math.max(bucket.getMaxLag(), lag));
+            // running mean, so that no sum has to be kept aside
+            bucket.setSamples(bucket.getSamples() + 1);
+            bucket.setAvgLag(bucket.getAvgLag() + (lag - bucket.getAvgLag()) / bucket.getSamples());
+            bucket.setCommittedOffset(committed);
+            bucket.setEndOffset(end);
+        });
+        return result;
+    }
+
+    @FunctionalInterface
+    interface SampleVisitor {
+        void visit(long timestamp, long committed, long end);
+    }
+
+    private static final class Chunk {
+
+        private byte[] data = new byte[CHUNK_SAMPLES * 6];
+        private int size;
+        private int samples;
+        private long firstTimestamp;
+        private long lastTimestamp;
+        private long lastInterval;
+        private long lastCommitted;
+        private long lastEnd;
+
+        void append(long timestamp, long committed, long end) {
+            final long interval = samples == 0 ? 0L : timestamp - lastTimestamp;
+            if (samples == 0) {
+                firstTimestamp = timestamp;
+                write(timestamp);
+            } else {
+                write(interval - lastInterval);
+            }
+            write(committed - lastCommitted);
+            write(end - lastEnd);
+            lastInterval = interval;
+            lastTimestamp = timestamp;
+            lastCommitted = committed;
+            lastEnd = end;
+            samples++;
+        }
+
+        void scan(long from, long to, SampleVisitor visitor) {
+            final int[] position = { 0 };
+            long timestamp = 0L;
+            long interval = 0L;
+            long committed = 0L;
+            long end = 0L;
+            for (int i = 0; i < samples; i++) {
+                if (i == 0) {
+                    timestamp = read(position);
+                } else {
+                    interval += read(position);
+                    timestamp += interval;
+                }
+                committed += read(position);
+                end += read(position);
+                if (timestamp > to) {
+                    return;
+                }
+                if (timestamp >= from) {
+                    visitor.visit(timestamp, committed, end);
+                }
+            }
+        }
+
+        void trim() {
+            data = Arrays.copyOf(data, size);
+        }
+
+        private void write(long value) {
+            if (size + 10 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            long raw = (value << 1) ^ (value >> 63);
+            while ((raw & ~0x7FL) != 0L) {
+                data[size++] = (byte) ((raw & 0x7F) | 0x80);
+                raw >>>= 7;
+            }
+            data[size++] = (byte) raw;
+        }
+
+        private long read(int[] position) {
+            long raw = 0L;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position[0]++];
+                raw |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (raw >>> 1) ^ -(raw & 1L);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package demo.lag;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import demo.cluster.ClusterRegistry;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/lag/series")
+@ConditionalOnProperty(prefix = "demo.lag-series", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class LagSeriesController {
+
+    private static final long DEFAULT_RANGE_MILLS = 15L * 60L * 1000L;
+    private static final int MAX_BUCKETS = 10000;
+
+    private final LagSeriesStore lagSeriesStore;
+    private final ClusterRegistry clusterRegistry;
+
+    /**
+     * Handle "GET /api/lag/series" to get the sampled consumer groups by cluster.
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Set<String>>> getGroups() {
+        return ResponseEntity.ok(lagSeriesStore.getGroups());
+    }
+
+    /**
+     * Handle "GET /api/lag/series/{group}?topic=topic1&from=1630000000000&buckets=60" to get the min, max and
+     * average lag of the partitions of a group over time. The range defaults to the last 15 minutes, and the
+     * group is one of the default cluster unless "cluster" is given.
+     */
+    @GetMapping("/{group}")
+    public ResponseEntity<List<PartitionLagSeries>> getSeries(
+            @PathVariable("group") String group,
+            @RequestParam(value = "topic", required = false) String topic,
+            @RequestParam(value = "partition", required = false) Integer partition,
+            @RequestParam(value = "from", required = false) Long from,
+            @RequestParam(value = "to", required = false) Long to,
+            @RequestParam(value = "buckets", required = false, defaultValue = "60") int buckets,
+            @RequestParam(value = "cluster", required = false) String cluster) {
+        final long end = to != null ? to : System.currentTimeMillis();
+        final long start = from != null ? from : end - DEFAULT_RANGE_MILLS;
+        if (start > end || buckets <= 0 || buckets > MAX_BUCKETS) {
+            return ResponseEntity.badRequest().build();
+        }
+        final List<PartitionLagSeries> series =
+                lagSeriesStore.query(cluster != null ? cluster : clusterRegistry.getDefaultName(), group, topic,
+                                     partition, start, end, buckets);
+        if (series == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(series);
+    }
+}
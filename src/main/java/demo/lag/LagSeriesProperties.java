@@ -0,0 +1,25 @@
+package demo.lag;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * Settings of the {@link LagSeriesStore}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "demo.lag-series")
+public class LagSeriesProperties {
+    private boolean enabled;
+    private Duration interval = Duration.ofSeconds(1L);
+    // how long samples are kept, and a partition which isn't sampled anymore
+    private Duration retention = Duration.ofHours(1L);
+    // groups sampled along with the groups of the consumer workers
+    private List<String> groups = new ArrayList<>();
+}
@@ -0,0 +1,160 @@
+package demo.lag;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import demo.cluster.ClusterRegistry;
+import demo.worker.AbstractWorker;
+import demo.worker.ConsumeWorker;
+import demo.worker.WorkerRegistry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Samples the committed and end offsets of every partition of the sampled consumer groups each
+ * {@code interval} into a {@link LagSeries}, enabled by "demo.lag-series.enabled=true".
+ * <p>
+ * The sampled groups are the groups of the running consumer workers, in the cluster of each worker, and the
+ * configured {@code groups} of the default cluster. The series of a partition which isn't sampled anymore is
+ * dropped once its last sample is older than {@code retention}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "demo.lag-series", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class LagSeriesStore {
+
+    private static final Comparator<PartitionLagSeries> SERIES_ORDER =
+            Comparator.comparing(PartitionLagSeries::getTopic).thenComparingInt(PartitionLagSeries::getPartition);
+
+    private final LagSeriesProperties properties;
+    private final ConsumerGroupOffsetReader offsetReader;
+    private final ClusterRegistry clusterRegistry;
+    private final WorkerRegistry workerRegistry;
+    // cluster -> group -> partition -> series
+    private final Map<String, Map<String, Map<TopicPartition, LagSeries>>> clusters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "lag-series");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        logger.info("Start lag series. interval: {} / retention: {} / groups: {}", properties.getInterval(),
+                    properties.getRetention(), properties.getGroups());
+        executor.scheduleAtFixedRate(this::sample, 0L, properties.getInterval().toMillis(),
+                                     TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the sampled groups by cluster.
+     */
+    public Map<String, Set<String>> getGroups() {
+        final Map<String, Set<String>> result = new TreeMap<>();
+        clusters.forEach((cluster, groups) -> result.put(cluster, new TreeSet<>(groups.keySet())));
+        return result;
+    }
+
+    /**
+     * Returns the lag of the partitions of a group of the cluster over [from, to] in at most {@code buckets}
+     * buckets, or null if the group isn't sampled.
+     */
+    public List<PartitionLagSeries> query(String cluster, String group, String topic, Integer partition, long from,
+                                          long to, int buckets) {
+        final Map<String, Map<TopicPartition, LagSeries>> groups = clusters.get(cluster);
+        final Map<TopicPartition, LagSeries> partitions = groups == null ? null : groups.get(group);
+        if (partitions == null) {
+            return null;
+        }
+        final List<PartitionLagSeries> result = new ArrayList<>();
+        for (Entry<TopicPartition, LagSeries> entry : partitions.entrySet()) {
+            final TopicPartition tp = entry.getKey();
+            if (topic != null && !topic.equals(tp.topic()) || partition != null && partition != tp.partition()) {
+                continue;
+            }
+            final LagSeries series = entry.getValue();
+            result.add(PartitionLagSeries.builder()
+                                         .group(group)
+                                         .topic(tp.topic())
+                                         .partition(tp.partition())
+                                         .samples(series.size())
+                                         .bytes(series.bytes())
+                                         .buckets(series.downsample(from, to, buckets))
+                                         .build());
+        }
+        result.sort(SERIES_ORDER);
+        return result;
+    }
+
+    void sample() {
+        final Map<String, Set<String>> sampled = new TreeMap<>();
+        sampled.put(clusterRegistry.getDefaultName(), new TreeSet<>(properties.getGroups()));
+        for (AbstractWorker worker : workerRegistry.getWorkers().values()) {
+            if (worker instanceof ConsumeWorker) {
+                sampled.computeIfAbsent(worker.getCluster(), k -> new TreeSet<>())
+                       .add(((ConsumeWorker<?>) worker).getGroupId());
+            }
+        }
+        final int capacity = (int) Math.max(1L, properties.getRetention().toMillis()
+                                                / Math.max(1L, properties.getInterval().toMillis()));
+        for (Entry<String, Set<String>> entry : sampled.entrySet()) {
+            try {
+                sample(offsetReader.read(entry.getKey(), entry.getValue()), capacity);
+            } catch (Exception e) {
+                logger.warn("[{}] Exception occur while sampling consumer lag", entry.getKey(), e);
+            }
+        }
+        evict(System.currentTimeMillis() - properties.getRetention().toMillis());
+    }
+
+    private void sample(OffsetsSnapshot snapshot, int capacity) {
+        final Map<String, Map<TopicPartition, LagSeries>> groups =
+                clusters.computeIfAbsent(snapshot.getCluster(), k -> new ConcurrentHashMap<>());
+        for (GroupOffsets offsets : snapshot.getGroups().values()) {
+            final Map<TopicPartition, LagSeries> partitions =
+                    groups.computeIfAbsent(offsets.getGroup(), k -> new ConcurrentHashMap<>());
+            for (Entry<TopicPartition, Long> entry : offsets.getCommitted().entrySet()) {
+                final Long endOffset = snapshot.getEndOffsets().get(entry.getKey());
+                if (endOffset == null) {
+                    continue;
+                }
+                partitions.computeIfAbsent(entry.getKey(), k -> new LagSeries(capacity))
+                          .append(snapshot.getTimestamp(), entry.getValue(), endOffset);
+            }
+        }
+    }
+
+    private void evict(long minTimestamp) {
+        for (Map<String, Map<TopicPartition, LagSeries>> groups : clusters.values()) {
+            for (Map<TopicPartition, LagSeries> partitions : groups.values()) {
+                partitions.values().removeIf(series -> series.getLastTimestamp() < minTimestamp);
+            }
+            groups.values().removeIf(Map::isEmpty);
+        }
+        clusters.values().removeIf(Map::isEmpty);
+    }
+}
@@ -0,0 +1,32 @@
+package demo.lag;
+
+/**
+ * Status of a partition or consumer group, in the same order as Burrow's status codes.
+ */
+public enum LagStatus {
+    NOTFOUND,
+    OK,
+    WARN,
+    ERR,
+    STOP,
+    STALL,
+    REWIND;
+
+    /**
+     * Returns the status of a group which has a partition in this status.
+     */
+    public LagStatus toGroupStatus() {
+        switch (this) {
+            case STOP:
+            case STALL:
+            case REWIND:
+                return ERR;
+            default:
+                return this;
+        }
+    }
+
+    public boolean isAtLeast(LagStatus status) {
+        return compareTo(status) >= 0;
+    }
+}
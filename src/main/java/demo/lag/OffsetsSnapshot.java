@@ -0,0 +1,24 @@
+package demo.lag;
+
+import java.util.Map;
+
+import org.apache.kafka.common.TopicPartition;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Committed offsets of consumer groups of a cluster along with the end offsets of their partitions, read at once.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OffsetsSnapshot {
+    private String cluster;
+    private long timestamp;
+    private Map<String, GroupOffsets> groups;
+    private Map<TopicPartition, Long> endOffsets;
+}
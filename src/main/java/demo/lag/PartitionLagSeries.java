@@ -0,0 +1,25 @@
+package demo.lag;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Downsampled lag of a partition of a consumer group.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PartitionLagSeries {
+    private String group;
+    private String topic;
+    private int partition;
+    // samples held and the bytes they take
+    private int samples;
+    private long bytes;
+    private List<LagBucket> buckets;
+}
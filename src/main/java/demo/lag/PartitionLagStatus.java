@@ -0,0 +1,22 @@
+package demo.lag;
+
+import demo.event.PartitionEvent.OffsetSnapshot;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PartitionLagStatus {
+    private String topic;
+    private int partition;
+    private LagStatus status;
+    private OffsetSnapshot start;
+    private OffsetSnapshot end;
+    private long currentLag;
+    private double complete;
+}
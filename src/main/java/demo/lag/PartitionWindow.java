@@ -0,0 +1,129 @@
+package demo.lag;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import demo.event.PartitionEvent.OffsetSnapshot;
+
+/**
+ * Sliding window of the last {@code intervals} offsets of a partition, evaluated with Burrow's rules.
+ * <p>
+ * An entry is added on every refresh. Its timestamp is when the committed offset was first observed, so that
+ * a consumer which stopped committing keeps the timestamp of its last commit, while {@code observedAt} is
+ * the time of the refresh.
+ * See https://github.com/linkedin/Burrow/wiki/Consumer-Lag-Evaluation-Rules
+ */
+public class PartitionWindow {
+
+    private final long[] offsets;
+    private final long[] lags;
+    private final long[] timestamps;
+    private final long[] observedAts;
+    // index of the oldest entry and number of entries
+    private int head;
+    private int count;
+
+    public PartitionWindow(int intervals) {
+        checkArgument(intervals > 1, "intervals must be greater than 1");
+        offsets = new long[intervals];
+        lags = new long[intervals];
+        timestamps = new long[intervals];
+        observedAts = new long[intervals];
+    }
+
+    public void add(long offset, long lag, long observedAt) {
+        long timestamp = observedAt;
+        if (count > 0) {
+            final int last = index(count - 1);
+            if (offsets[last] == offset) {
+                timestamp = timestamps[last];
+            }
+        }
+        final int idx;
+        if (count < offsets.length) {
+            idx = index(count);
+            count++;
+        } else {
+            idx = head;
+            head = (head + 1) % offsets.length;
+        }
+        offsets[idx] = offset;
+        lags[idx] = lag;
+        timestamps[idx] = timestamp;
+        observedAts[idx] = observedAt;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Returns how much of the window is filled, from 0 to 1.
+     */
+    public double getComplete() {
+        return (double) count / offsets.length;
+    }
+
+    public long getCurrentLag() {
+        return count == 0 ? 0L : lags[index(count - 1)];
+    }
+
+    public OffsetSnapshot first() {
+        return count == 0 ? null : snapshot(index(0));
+    }
+
+    public OffsetSnapshot last() {
+        return count == 0 ? null : snapshot(index(count - 1));
+    }
+
+    /**
+     * Evaluates the window.
+     *
+     * @param groupActive whether the group has members, which tells a stalled consumer that still commits
+     *                    the same offset from a stopped one
+     */
+    public LagStatus evaluate(boolean groupActive) {
+        if (count == 0) {
+            return LagStatus.NOTFOUND;
+        }
+        // Rule 1: the partition is OK if its lag was zero at any point in the window
+        for (int i = 0; i < count; i++) {
+            if (lags[index(i)] == 0L) {
+                return LagStatus.OK;
+            }
+        }
+        // the committed offset moved backwards
+        for (int i = 1; i < count; i++) {
+            if (offsets[index(i)] < offsets[index(i - 1)]) {
+                return LagStatus.REWIND;
+            }
+        }
+        // the remaining rules need a full window
+        if (count < offsets.length) {
+            return LagStatus.OK;
+        }
+        // Rule 2 and 4: the committed offset didn't change over the window while there is lag
+        if (offsets[index(0)] == offsets[index(count - 1)]) {
+            return groupActive ? LagStatus.STALL : LagStatus.STOP;
+        }
+        // Rule 3: the consumer commits, but the lag never decreased over the window
+        for (int i = 1; i < count; i++) {
+            if (lags[index(i)] < lags[index(i - 1)]) {
+                return LagStatus.OK;
+            }
+        }
+        return LagStatus.WARN;
+    }
+
+    private OffsetSnapshot snapshot(int idx) {
+        return OffsetSnapshot.builder()
+                             .offset(offsets[idx])
+                             .lag(lags[idx])
+                             .timestamp(timestamps[idx])
+                             .observedAt(observedAts[idx])
+                             .build();
+    }
+
+    private int index(int i) {
+        return (head + i) % offsets.length;
+    }
+}
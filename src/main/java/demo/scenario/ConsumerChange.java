@@ -0,0 +1,47 @@
+package demo.scenario;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import demo.worker.ProcessingCost;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Behavior applied to the running consumer workers matching a name pattern and a topic when a
+ * {@link ScenarioPhase} starts, as "PUT /api/worker/consumer/{name}/{topic}" would.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConsumerChange {
+
+    @Builder.Default
+    private String namePattern = ".*";
+    // every topic if null
+    private String topic;
+    // unchanged if null
+    private Long consumeInterval;
+    private Boolean shouldFail;
+    private ProcessingCost cost;
+
+    public void validate() {
+        checkArgument(namePattern != null, "namePattern must not be null");
+        try {
+            Pattern.compile(namePattern);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("namePattern is invalid: " + e.getMessage());
+        }
+        checkArgument(consumeInterval == null || consumeInterval >= 0L,
+                      "consumeInterval must be greater than or equal to 0");
+        if (cost != null) {
+            cost.validate();
+        }
+    }
+}
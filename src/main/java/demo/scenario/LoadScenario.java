@@ -0,0 +1,87 @@
+package demo.scenario;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import demo.worker.LoadProfile;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Phases of load a {@link ScenarioEngine} runs one after another, with a paced producer per topic.
+ * <p>
+ * Read from YAML or JSON, e.g.
+ * <pre>
+ * name: daily
+ * repeat: true
+ * cluster: default
+ * phases:
+ *   - name: morning
+ *     durationMills: 60000
+ *     rates:
+ *       topic1: { shape: RAMP, from: 10, to: 500 }
+ *   - name: batch
+ *     durationMills: 30000
+ *     rates:
+ *       topic1: { shape: BURST, rate: 50, burstRate: 5000, burstMills: 2000, periodMills: 10000 }
+ *     consumers:
+ *       - { namePattern: "consumer-.*", consumeInterval: 10 }
+ * </pre>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoadScenario {
+
+    private String name;
+    // name of a cluster of the ClusterRegistry, the default one if null
+    private String cluster;
+    // start over once the last phase ended
+    private boolean repeat;
+    // how often rates are updated, phases start on time regardless
+    @Builder.Default
+    private long tickMills = 100L;
+    @Builder.Default
+    private int maxInFlight = 1000;
+    @Builder.Default
+    private LoadProfile loadProfile = new LoadProfile();
+    @Builder.Default
+    private List<ScenarioPhase> phases = new ArrayList<>();
+
+    /**
+     * Returns the topics produced to by any phase.
+     */
+    public Set<String> topics() {
+        final Set<String> topics = new LinkedHashSet<>();
+        for (ScenarioPhase phase : phases) {
+            topics.addAll(phase.getRates().keySet());
+        }
+        return topics;
+    }
+
+    public long durationMills() {
+        return phases.stream().mapToLong(ScenarioPhase::getDurationMills).sum();
+    }
+
+    public void validate() {
+        checkArgument(name != null && name.matches("[A-Za-z0-9._-]+"),
+                      "name must consist of letters, digits, '.', '_' or '-'");
+        checkArgument(tickMills > 0L, "tickMills must be greater than 0");
+        checkArgument(maxInFlight > 0, "maxInFlight must be greater than 0");
+        checkArgument(loadProfile != null, "loadProfile must not be null");
+        loadProfile.validate();
+        checkArgument(phases != null && !phases.isEmpty(), "phases must not be empty");
+        for (ScenarioPhase phase : phases) {
+            checkArgument(phase != null, "phase must not be null");
+            phase.validate();
+        }
+    }
+}
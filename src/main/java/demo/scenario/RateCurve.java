@@ -0,0 +1,70 @@
+package demo.scenario;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Records per second produced to a topic during a {@link ScenarioPhase}, as a function of the time since the
+ * start of the phase.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RateCurve {
+
+    @Builder.Default
+    private RateShape shape = RateShape.STEP;
+    // rate of a step, base rate of a sine or a burst
+    private double rate;
+    // start and end rate of a ramp
+    private double from;
+    private double to;
+    private double amplitude;
+    // period of a sine or a burst
+    private long periodMills;
+    private double burstRate;
+    private long burstMills;
+
+    /**
+     * Returns the rate {@code elapsedMills} after the start of a phase lasting {@code durationMills}.
+     */
+    public double rateAt(long elapsedMills, long durationMills) {
+        switch (shape) {
+            case RAMP:
+                return from + (to - from) * Math.min(elapsedMills, durationMills) / durationMills;
+            case SINE:
+                return Math.max(0D, rate + amplitude * Math.sin(2D * Math.PI * elapsedMills / periodMills));
+            case BURST:
+                return elapsedMills % periodMills < burstMills ? burstRate : rate;
+            case STEP:
+            default:
+                return rate;
+        }
+    }
+
+    public void validate() {
+        checkArgument(shape != null, "shape must not be null");
+        checkArgument(rate >= 0D, "rate must be greater than or equal to 0");
+        switch (shape) {
+            case RAMP:
+                checkArgument(from >= 0D && to >= 0D, "from and to of a ramp must be greater than or equal to 0");
+                break;
+            case SINE:
+                checkArgument(periodMills > 0L, "periodMills of a sine must be greater than 0");
+                break;
+            case BURST:
+                checkArgument(periodMills > 0L, "periodMills of a burst must be greater than 0");
+                checkArgument(burstMills > 0L && burstMills <= periodMills,
+                              "burstMills of a burst must be in (0, periodMills]");
+                checkArgument(burstRate >= 0D, "burstRate of a burst must be greater than or equal to 0");
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package demo.scenario;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+/**
+ * How the rate of a {@link RateCurve} changes over its phase.
+ */
+public enum RateShape {
+    // a constant rate
+    STEP,
+    // linearly from "from" to "to" over the phase
+    RAMP,
+    // "rate" plus "amplitude" times a sine of period "periodMills"
+    SINE,
+    // "burstRate" for the first "burstMills" of every "periodMills", "rate" the rest of the time
+    BURST;
+
+    @JsonCreator
+    public static RateShape of(String value) {
+        for (RateShape shape : values()) {
+            if (shape.name().equalsIgnoreCase(value)) {
+                return shape;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rate shape: " + value);
+    }
+}
@@ -0,0 +1,75 @@
+package demo.scenario;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/scenario")
+@RequiredArgsConstructor
+public class ScenarioController {
+
+    private final ScenarioEngine scenarioEngine;
+
+    /**
+     * Handle "POST /api/scenario" to start a load scenario written in YAML or JSON. Its progress is read from
+     * "GET /api/scenario/{id}".
+     */
+    @PostMapping(consumes = { MediaType.APPLICATION_JSON_VALUE, "application/yaml", "application/x-yaml",
+                              MediaType.TEXT_PLAIN_VALUE })
+    public ResponseEntity<ScenarioRun> startScenario(@RequestBody String body) {
+        final ScenarioRun run;
+        try {
+            run = scenarioEngine.start(scenarioEngine.parse(body));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid load scenario. reason: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(run);
+    }
+
+    /**
+     * Handle "GET /api/scenario" to get every started scenario.
+     */
+    @GetMapping
+    public ResponseEntity<List<ScenarioRun>> getScenarios() {
+        return ResponseEntity.ok(scenarioEngine.getRuns());
+    }
+
+    /**
+     * Handle "GET /api/scenario/{id}" to get the current phase and rates of a scenario.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ScenarioRun> getScenario(@PathVariable("id") String id) {
+        final ScenarioRun run = scenarioEngine.get(id);
+        if (run == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(run);
+    }
+
+    /**
+     * Handle "DELETE /api/scenario/{id}" to stop a scenario and its producers.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ScenarioRun> stopScenario(@PathVariable("id") String id) {
+        final ScenarioRun run = scenarioEngine.stop(id);
+        if (run == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(run);
+    }
+}
@@ -0,0 +1,325 @@
+package demo.scenario;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import demo.cluster.ClusterRegistry;
+import demo.cluster.KafkaCluster;
+import demo.worker.AbstractWorker;
+import demo.worker.ConsumeWorker;
+import demo.worker.PayloadGenerator;
+import demo.worker.Payloads;
+import demo.worker.ProduceWorker;
+import demo.worker.WorkerMetrics;
+import demo.worker.WorkerRegistry;
+import demo.worker.WorkerScheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs {@link LoadScenario}s, loaded from "demo.scenario.files" once the application is ready or submitted by
+ * "POST /api/scenario".
+ * <p>
+ * A scenario starts a pipelined producer per topic, registered as worker "scenario-{name}", and updates its rate
+ * every {@code tickMills}. Ticks are timers relative to the start of the scenario, and a tick is also scheduled
+ * on every phase boundary, so phases start on time and timing errors don't add up over a long scenario.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ScenarioEngine {
+
+    private final ClusterRegistry clusterRegistry;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+    private final WorkerScheduler workerScheduler;
+    private final WorkerRegistry workerRegistry;
+    private final ScenarioProperties properties;
+    private final Map<String, Execution> executions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "scenario-engine");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startConfigured() {
+        for (String file : properties.getFiles()) {
+            try {
+                final String text = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+                start(parse(text));
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Exception occur while starting the scenario of {}", file, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        // the producers are registered workers, which are stopped on shutdown like any other worker
+        executor.shutdownNow();
+    }
+
+    /**
+     * Parses and validates a YAML or JSON scenario, throws {@link IllegalArgumentException} if it's invalid.
+     */
+    public LoadScenario parse(String text) {
+        return ScenarioParser.parse(text, objectMapper);
+    }
+
+    /**
+     * Starts the producers of the scenario and its first phase, throws {@link IllegalArgumentException} if a
+     * worker with the name of one of its producers already exists or its cluster is unknown.
+     */
+    public ScenarioRun start(LoadScenario scenario) {
+        scenario.validate();
+        final KafkaCluster cluster = clusterRegistry.resolve(scenario.getCluster());
+        final String name = "scenario-" + scenario.getName();
+        final Map<String, ProduceWorker<?>> producers = new LinkedHashMap<>();
+        final List<KafkaProducer<?, ?>> clients = new ArrayList<>();
+        for (String topic : scenario.topics()) {
+            final ProduceWorker<?> producer =
+                    createProducer(cluster, name, topic, scenario,
+                                   new PayloadGenerator(scenario.getLoadProfile()).payloads(), clients);
+            if (!workerRegistry.register(WorkerRegistry.id(name, topic), producer)) {
+                producers.forEach((t, registered) -> workerRegistry.remove(WorkerRegistry.id(name, t), registered));
+                clients.forEach(KafkaProducer::close);
+                throw new IllegalArgumentException(
+                        String.format("worker %s of topic %s already exists", name, topic));
+            }
+            producers.put(topic, producer);
+        }
+
+        final ScenarioRun run = ScenarioRun.builder()
+                                           .id(Integer.toString(nextId.incrementAndGet()))
+                                           .status(ScenarioRun.Status.RUNNING)
+                                           .scenario(scenario)
+                                           .startedAt(System.currentTimeMillis())
+                                           .phaseIndex(-1)
+                                           .rates(Collections.emptyMap())
+                                           .build();
+        final Execution execution = new Execution(run, name, producers, System.nanoTime());
+        executions.put(run.getId(), execution);
+        logger.info("Start scenario {} #{} with producers of {} for {}[ms]", scenario.getName(), run.getId(),
+                    producers.keySet(), scenario.durationMills());
+        // the initial rate is applied before the producers start, so that they don't send a first record early
+        tick(execution, false);
+        producers.values().forEach(ProduceWorker::start);
+        executor.execute(() -> tick(execution, true));
+        return run;
+    }
+
+    /**
+     * Stops a running scenario and its producers, and returns null if there is no such scenario.
+     */
+    public ScenarioRun stop(String id) {
+        final Execution execution = executions.get(id);
+        if (execution == null) {
+            return null;
+        }
+        executor.execute(() -> finish(execution, ScenarioRun.Status.STOPPED, null));
+        return execution.run;
+    }
+
+    public ScenarioRun get(String id) {
+        final Execution execution = executions.get(id);
+        return execution == null ? null : execution.run;
+    }
+
+    public List<ScenarioRun> getRuns() {
+        final List<ScenarioRun> runs = new ArrayList<>();
+        for (Execution execution : executions.values()) {
+            runs.add(execution.run);
+        }
+        return runs;
+    }
+
+    private <T> ProduceWorker<T> createProducer(KafkaCluster cluster, String name, String topic,
+                                                LoadScenario scenario, Payloads<T> payloads,
+                                                List<KafkaProducer<?, ?>> clients) {
+        final KafkaProducer<T, T> client =
+                new KafkaProducer<>(createProducerProps(cluster, scenario, WorkerRegistry.id(name, topic)));
+        clients.add(client);
+        return new ProduceWorker<>(name, client, topic, payloads, 0D, scenario.getMaxInFlight(),
+                                   WorkerMetrics.producer(meterRegistry, name, topic, cluster.getName()),
+                                   workerScheduler);
+    }
+
+    private Properties createProducerProps(KafkaCluster cluster, LoadScenario scenario, String transactionalId) {
+        final Properties props = cluster.clientProps();
+        scenario.getLoadProfile().putProducerConfigs(props, transactionalId);
+        return props;
+    }
+
+    /**
+     * Enters the phase of the current time if it changed, updates the rates and schedules the next tick.
+     */
+    private void tick(Execution execution, boolean reschedule) {
+        final ScenarioRun run = execution.run;
+        if (run.getStatus() != ScenarioRun.Status.RUNNING) {
+            return;
+        }
+        try {
+            final LoadScenario scenario = run.getScenario();
+            final long totalNanos = TimeUnit.MILLISECONDS.toNanos(scenario.durationMills());
+            final long elapsedNanos = System.nanoTime() - execution.startNanos;
+            if (elapsedNanos >= totalNanos && !scenario.isRepeat()) {
+                finish(execution, ScenarioRun.Status.DONE, null);
+                return;
+            }
+            final long iteration = elapsedNanos / totalNanos;
+            final long offsetNanos = elapsedNanos % totalNanos;
+
+            int index = 0;
+            long phaseStartNanos = 0L;
+            long phaseEndNanos = TimeUnit.MILLISECONDS.toNanos(scenario.getPhases().get(0).getDurationMills());
+            while (offsetNanos >= phaseEndNanos) {
+                index++;
+                phaseStartNanos = phaseEndNanos;
+                phaseEndNanos += TimeUnit.MILLISECONDS.toNanos(scenario.getPhases().get(index).getDurationMills());
+            }
+            enter(execution, iteration, index);
+
+            final ScenarioPhase phase = scenario.getPhases().get(index);
+            final long phaseElapsedMills = TimeUnit.NANOSECONDS.toMillis(offsetNanos - phaseStartNanos);
+            final Map<String, Double> rates = new LinkedHashMap<>();
+            for (Entry<String, ProduceWorker<?>> entry : execution.producers.entrySet()) {
+                final RateCurve curve = phase.getRates().get(entry.getKey());
+                final double rate = curve == null ? 0D : curve.rateAt(phaseElapsedMills, phase.getDurationMills());
+                rates.put(entry.getKey(), rate);
+                if (!rate(run, entry.getKey()).equals(rate)) {
+                    entry.getValue().updateRate(rate);
+                }
+            }
+            run.setRates(ImmutableMap.copyOf(rates));
+
+            if (reschedule) {
+                // the next multiple of tickMills since the start, or the end of the phase if it comes first
+                final long tickNanos = TimeUnit.MILLISECONDS.toNanos(scenario.getTickMills());
+                final long nextTickNanos = (elapsedNanos / tickNanos + 1L) * tickNanos;
+                final long nextPhaseNanos = iteration * totalNanos + phaseEndNanos;
+                executor.schedule(() -> tick(execution, true),
+                                  Math.min(nextTickNanos, nextPhaseNanos) - elapsedNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (Exception e) {
+            logger.warn("Exception occur while running scenario {}", run.getId(), e);
+            finish(execution, ScenarioRun.Status.FAILED, e.toString());
+        }
+    }
+
+    /**
+     * Applies the consumer changes of every phase since the current one up to the given one, so that the changes
+     * of a phase shorter than a tick aren't skipped.
+     */
+    private void enter(Execution execution, long iteration, int index) {
+        final ScenarioRun run = execution.run;
+        if (run.getIteration() == iteration && run.getPhaseIndex() == index) {
+            return;
+        }
+        final List<ScenarioPhase> phases = run.getScenario().getPhases();
+        if (run.getIteration() == iteration) {
+            applyConsumerChanges(phases, run.getPhaseIndex() + 1, index);
+        } else {
+            // the end of the previous iteration, then the start of this one
+            applyConsumerChanges(phases, run.getPhaseIndex() + 1, phases.size() - 1);
+            applyConsumerChanges(phases, 0, index);
+        }
+        final ScenarioPhase phase = phases.get(index);
+        logger.info("Scenario {} #{} enters phase {} ({}/{}) of iteration {}", run.getScenario().getName(),
+                    run.getId(), phase.getName(), index + 1, phases.size(), iteration);
+        run.setIteration(iteration);
+        run.setPhaseIndex(index);
+        run.setPhase(phase.getName());
+    }
+
+    private void applyConsumerChanges(List<ScenarioPhase> phases, int from, int to) {
+        for (int i = from; i <= to; i++) {
+            applyConsumerChanges(phases.get(i));
+        }
+    }
+
+    private void applyConsumerChanges(ScenarioPhase phase) {
+        for (ConsumerChange change : phase.getConsumers()) {
+            final Pattern pattern = Pattern.compile(change.getNamePattern());
+            int applied = 0;
+            for (AbstractWorker worker : workerRegistry.getWorkers().values()) {
+                if (!(worker instanceof ConsumeWorker)
+                    || change.getTopic() != null && !change.getTopic().equals(worker.getTopic())
+                    || !pattern.matcher(worker.getName()).matches()) {
+                    continue;
+                }
+                ((ConsumeWorker<?>) worker).update(change.getConsumeInterval(), change.getShouldFail(),
+                                                   change.getCost());
+                applied++;
+            }
+            logger.info("Phase {} updated consumers #{}. namePattern: {} / topic: {} / consumeInterval: {}[ms] / "
+                        + "shouldFail: {} / cost: {}", phase.getName(), applied, change.getNamePattern(),
+                        change.getTopic(), change.getConsumeInterval(), change.getShouldFail(), change.getCost());
+        }
+    }
+
+    private void finish(Execution execution, ScenarioRun.Status status, String error) {
+        final ScenarioRun run = execution.run;
+        if (run.getStatus() != ScenarioRun.Status.RUNNING) {
+            return;
+        }
+        run.setStatus(status);
+        run.setError(error);
+        run.setRates(Collections.emptyMap());
+        for (Entry<String, ProduceWorker<?>> entry : execution.producers.entrySet()) {
+            // the producer may have been stopped through the worker API already
+            if (workerRegistry.remove(WorkerRegistry.id(execution.name, entry.getKey()), entry.getValue())) {
+                entry.getValue().stop();
+            }
+        }
+        logger.info("Scenario {} #{} is {}", run.getScenario().getName(), run.getId(), status);
+    }
+
+    private static Double rate(ScenarioRun run, String topic) {
+        return run.getRates().getOrDefault(topic, -1D);
+    }
+
+    private static class Execution {
+
+        private final ScenarioRun run;
+        private final String name;
+        private final Map<String, ProduceWorker<?>> producers;
+        private final long startNanos;
+
+        Execution(ScenarioRun run, String name, Map<String, ProduceWorker<?>> producers, long startNanos) {
+            this.run = run;
+            this.name = name;
+            this.producers = producers;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package demo.scenario;
+
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads a {@link LoadScenario} from YAML or JSON, JSON being a subset of YAML.
+ */
+final class ScenarioParser {
+
+    private ScenarioParser() {
+    }
+
+    /**
+     * Parses and validates a scenario, throws {@link IllegalArgumentException} if it's invalid.
+     */
+    static LoadScenario parse(String text, ObjectMapper objectMapper) {
+        final Object tree;
+        try {
+            // a new instance per call, since snakeyaml isn't thread-safe. The safe constructor only builds maps,
+            // lists and scalars, and rejects the global tags that would instantiate arbitrary classes
+            tree = new Yaml(new SafeConstructor()).load(text);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("scenario is not valid YAML or JSON: " + e.getMessage(), e);
+        }
+        final LoadScenario scenario = objectMapper.convertValue(tree, LoadScenario.class);
+        if (scenario == null) {
+            throw new IllegalArgumentException("scenario must not be empty");
+        }
+        scenario.validate();
+        return scenario;
+    }
+}
@@ -0,0 +1,47 @@
+package demo.scenario;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A period of a {@link LoadScenario}. A topic of the scenario without a rate in a phase isn't produced to
+ * during that phase.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScenarioPhase {
+
+    private String name;
+    private long durationMills;
+    // rate curve by topic
+    @Builder.Default
+    private Map<String, RateCurve> rates = new LinkedHashMap<>();
+    // applied once when the phase starts
+    @Builder.Default
+    private List<ConsumerChange> consumers = new ArrayList<>();
+
+    public void validate() {
+        checkArgument(durationMills > 0L, "durationMills of a phase must be greater than 0");
+        checkArgument(rates != null, "rates of a phase must not be null");
+        checkArgument(consumers != null, "consumers of a phase must not be null");
+        for (RateCurve curve : rates.values()) {
+            checkArgument(curve != null, "rate curve must not be null");
+            curve.validate();
+        }
+        for (ConsumerChange change : consumers) {
+            checkArgument(change != null, "consumer change must not be null");
+            change.validate();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package demo.scenario;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * Settings of the {@link ScenarioEngine}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "demo.scenario")
+public class ScenarioProperties {
+    // YAML or JSON scenario files started once the application is ready
+    private List<String> files = new ArrayList<>();
+}
@@ -0,0 +1,37 @@
+package demo.scenario;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A {@link LoadScenario} started by the {@link ScenarioEngine}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScenarioRun {
+
+    public enum Status {
+        RUNNING,
+        DONE,
+        STOPPED,
+        FAILED
+    }
+
+    private String id;
+    private volatile Status status;
+    private LoadScenario scenario;
+    private long startedAt;
+    // current phase, and how many times the phases were run through for a repeated scenario
+    private volatile String phase;
+    private volatile int phaseIndex;
+    private volatile long iteration;
+    // current rate by topic
+    private volatile Map<String, Double> rates;
+    private volatile String error;
+}
@@ -0,0 +1,45 @@
+package demo.storm;
+
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.clients.consumer.RangeAssignor;
+import org.apache.kafka.clients.consumer.StickyAssignor;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Values of {@code partition.assignment.strategy} a {@link RebalanceStorm} can compare.
+ */
+public enum Assignor {
+    RANGE("range", RangeAssignor.class.getName()),
+    STICKY("sticky", StickyAssignor.class.getName()),
+    // only revokes the partitions which move, the others keep being consumed during a rebalance
+    COOPERATIVE_STICKY("cooperative-sticky", CooperativeStickyAssignor.class.getName());
+
+    private final String alias;
+    private final String className;
+
+    Assignor(String alias, String className) {
+        this.alias = alias;
+        this.className = className;
+    }
+
+    @JsonValue
+    public String getAlias() {
+        return alias;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    @JsonCreator
+    public static Assignor of(String value) {
+        for (Assignor assignor : values()) {
+            if (assignor.alias.equalsIgnoreCase(value) || assignor.name().equalsIgnoreCase(value)) {
+                return assignor;
+            }
+        }
+        throw new IllegalArgumentException("Unknown assignor: " + value);
+    }
+}
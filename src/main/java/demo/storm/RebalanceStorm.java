@@ -0,0 +1,354 @@
+package demo.storm;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import demo.cluster.KafkaCluster;
+import demo.worker.ConsumeOptions;
+import demo.worker.ConsumeWorker;
+import demo.worker.LoadProfile;
+import demo.worker.PayloadGenerator;
+import demo.worker.ProduceWorker;
+import demo.worker.WorkerListener;
+import demo.worker.WorkerMetrics;
+import demo.worker.WorkerScheduler;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs a {@link StormScenario} against a cluster, with the client configs of the cluster: a producer writes at a
+ * steady rate to a new topic while consumer workers of a single group are added, removed and restarted on schedule.
+ * <p>
+ * The rebalance callbacks measure how long every revoked partition waits for its next owner, which is when
+ * nothing of it is processed, and every processed record goes through a probe counting the records processed
+ * twice. The lag, produced minus consumed records, is sampled every {@link #LAG_SAMPLE_MILLS}. A run is
+ * blocking and owns its clients, the topic is deleted at the end.
+ */
+@Slf4j
+public class RebalanceStorm implements WorkerListener {
+
+    private static final long LAG_SAMPLE_MILLS = 100L;
+    private static final int MAX_IN_FLIGHT = 100;
+
+    private final KafkaCluster cluster;
+    private final StormScenario scenario;
+    private final WorkerScheduler scheduler;
+    private final String topic;
+    private final String groupId;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // consumers from the oldest, only accessed while holding the lock of the storm
+    private final Deque<ConsumeWorker<String>> consumers = new ArrayDeque<>();
+    private final List<String> appliedSteps = Collections.synchronizedList(new ArrayList<>());
+    private int nextConsumerId;
+    private ProduceWorker<byte[]> producer;
+
+    // highest processed offset by partition
+    private final Map<Integer, AtomicLong> processedOffsets = new ConcurrentHashMap<>();
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder reprocessed = new LongAdder();
+    // since when a revoked partition has no owner
+    private final Map<TopicPartition, Long> unownedNanos = new ConcurrentHashMap<>();
+    private final LongAdder stopTheWorldNanos = new LongAdder();
+    private final AtomicLong maxGapNanos = new AtomicLong();
+    // when the partitions of a consumer were revoked, by consumer name
+    private final Map<String, Long> revokedNanos = new ConcurrentHashMap<>();
+    private final LongAdder revocations = new LongAdder();
+    private final LongAdder revokeToAssignNanos = new LongAdder();
+    private final AtomicLong maxRevokeToAssignNanos = new AtomicLong();
+    private volatile boolean measuring;
+    // lag samples, only accessed by the sampling thread until it's terminated
+    private long baselineLagSum;
+    private int baselineLagSamples;
+    private long peakLag;
+
+    public RebalanceStorm(KafkaCluster cluster, StormScenario scenario, WorkerScheduler scheduler) {
+        this.cluster = checkNotNull(cluster, "cluster");
+        this.scenario = checkNotNull(scenario, "scenario");
+        scenario.validate();
+        this.scheduler = checkNotNull(scheduler, "scheduler");
+        final String runId = Long.toString(System.currentTimeMillis(), 36);
+        this.topic = String.format("storm-%s-%s", scenario.getAssignor().getAlias(), runId);
+        this.groupId = topic + "-group";
+    }
+
+    public StormReport run() throws InterruptedException, ExecutionException {
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(
+                2, new ThreadFactoryBuilder().setNameFormat("rebalance-storm-%d").setDaemon(true).build());
+        try (AdminClient admin = AdminClient.create(cluster.clientProps())) {
+            admin.createTopics(Collections.singleton(
+                    new NewTopic(topic, Optional.of(scenario.getPartitions()), Optional.empty()))).all().get();
+            try {
+                return runScenario(executor);
+            } finally {
+                executor.shutdownNow();
+                stopAll();
+                admin.deleteTopics(Collections.singleton(topic)).all().get();
+            }
+        }
+    }
+
+    private StormReport runScenario(ScheduledExecutorService executor) throws InterruptedException {
+        logger.info("Start a rebalance storm. topic: {} / assignor: {} / steps: {}", topic,
+                    scenario.getAssignor().getAlias(), scenario.getSteps().size());
+        final long startNanos = System.nanoTime();
+        startProducer();
+        for (int i = 0; i < scenario.getInitialConsumers(); i++) {
+            startConsumer(String.format("storm-consumer-%d", nextConsumerId++));
+        }
+
+        final long warmupMills = scenario.getWarmupMills();
+        executor.schedule(this::startMeasuring, warmupMills, TimeUnit.MILLISECONDS);
+        executor.scheduleAtFixedRate(() -> sampleLag(startNanos), LAG_SAMPLE_MILLS, LAG_SAMPLE_MILLS,
+                                     TimeUnit.MILLISECONDS);
+        for (StormStep step : scenario.getSteps()) {
+            executor.schedule(() -> apply(step), step.getAtMills(), TimeUnit.MILLISECONDS);
+        }
+
+        TimeUnit.MILLISECONDS.sleep(scenario.getDurationMills());
+        executor.shutdownNow();
+        executor.awaitTermination(10L, TimeUnit.SECONDS);
+        final StormReport report = report(System.nanoTime() - startNanos);
+        measuring = false;
+        return report;
+    }
+
+    /**
+     * Starts measuring the rebalances, once the warmup is over.
+     */
+    void startMeasuring() {
+        measuring = true;
+    }
+
+    private synchronized void apply(StormStep step) {
+        try {
+            for (int i = 0; i < step.getCount(); i++) {
+                final String name;
+                switch (step.getAction()) {
+                    case ADD:
+                        name = String.format("storm-consumer-%d", nextConsumerId++);
+                        startConsumer(name);
+                        break;
+                    case REMOVE:
+                        name = stopOldestConsumer();
+                        break;
+                    case RESTART:
+                        name = stopOldestConsumer();
+                        if (name != null) {
+                            startConsumer(name);
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown action: " + step.getAction());
+                }
+                if (name != null) {
+                    appliedSteps.add(String.format("%dms %s %s", step.getAtMills(), step.getAction(), name));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Exception occur while applying a storm step: {}", step, e);
+        }
+    }
+
+    private void startProducer() {
+        final Properties props = cluster.clientProps();
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        final LoadProfile profile = new LoadProfile();
+        // spread the records over every partition
+        profile.setKeyCardinality(scenario.getPartitions() * 16);
+        producer = new ProduceWorker<>("storm-producer", new KafkaProducer<>(props), topic,
+                                       new PayloadGenerator(profile).payloads(), scenario.getProduceRate(),
+                                       MAX_IN_FLIGHT, WorkerMetrics.producer(meterRegistry, "storm-producer", topic),
+                                       scheduler);
+        producer.start();
+    }
+
+    private void startConsumer(String name) {
+        final Properties props = cluster.clientProps();
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, scenario.getAssignor().getClassName());
+        final KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props);
+        final ConsumeOptions options = ConsumeOptions.builder()
+                                                     .commitIntervalMills(scenario.getCommitIntervalMills())
+                                                     .build();
+        final ConsumeWorker<String> worker = new StormConsumer(name, consumer, options,
+                                                       WorkerMetrics.consumer(meterRegistry, name, topic));
+        consumer.subscribe(Collections.singletonList(topic), worker);
+        consumers.addLast(worker);
+        worker.start();
+    }
+
+    private String stopOldestConsumer() {
+        final ConsumeWorker<String> worker = consumers.pollFirst();
+        if (worker == null) {
+            return null;
+        }
+        worker.stop();
+        worker.getMetrics().remove();
+        return worker.getName();
+    }
+
+    private synchronized void stopAll() {
+        if (producer != null) {
+            producer.stop();
+        }
+        while (stopOldestConsumer() != null) {
+            // stop every consumer
+        }
+    }
+
+    /**
+     * Called by the consumers for every processed record, possibly concurrently.
+     */
+    void onRecord(ConsumerRecord<String, String> record) {
+        consumed.increment();
+        final long previous = processedOffsets.computeIfAbsent(record.partition(), k -> new AtomicLong(-1L))
+                                              .getAndAccumulate(record.offset(), Math::max);
+        if (record.offset() <= previous) {
+            reprocessed.increment();
+        }
+    }
+
+    @Override
+    public void onPartitionsRevoked(ConsumeWorker<?> worker, Collection<TopicPartition> partitions) {
+        // the cooperative protocol calls it only when partitions move
+        final long now = System.nanoTime();
+        revokedNanos.putIfAbsent(worker.getName(), now);
+        for (TopicPartition partition : partitions) {
+            unownedNanos.putIfAbsent(partition, now);
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(ConsumeWorker<?> worker, Collection<TopicPartition> partitions) {
+        final long now = System.nanoTime();
+        for (TopicPartition partition : partitions) {
+            final Long unowned = unownedNanos.remove(partition);
+            if (unowned != null && measuring) {
+                recordGap(now - unowned);
+            }
+        }
+        final Long revoked = revokedNanos.remove(worker.getName());
+        if (revoked != null && measuring) {
+            final long elapsed = now - revoked;
+            revocations.increment();
+            revokeToAssignNanos.add(elapsed);
+            maxRevokeToAssignNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    @Override
+    public void onStopped(ConsumeWorker<?> worker) {
+        revokedNanos.remove(worker.getName());
+    }
+
+    private void recordGap(long nanos) {
+        stopTheWorldNanos.add(nanos);
+        maxGapNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void sampleLag(long startNanos) {
+        final long lag = lag();
+        final long elapsedMills = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (!measuring) {
+            // the second half of the warmup, once the group has settled
+            if (elapsedMills >= scenario.getWarmupMills() / 2) {
+                baselineLagSum += lag;
+                baselineLagSamples++;
+            }
+            return;
+        }
+        peakLag = Math.max(peakLag, lag);
+    }
+
+    private long lag() {
+        long processed = 0L;
+        for (AtomicLong offset : processedOffsets.values()) {
+            processed += offset.get() + 1L;
+        }
+        return Math.max(0L, produced() - processed);
+    }
+
+    private long produced() {
+        return producer == null ? 0L : producer.getMetrics().getTotalRecords();
+    }
+
+    StormReport report(long elapsedNanos) {
+        // partitions still waiting for an owner
+        final long now = System.nanoTime();
+        unownedNanos.values().forEach(since -> recordGap(now - since));
+        final long baselineLag = baselineLagSamples == 0 ? 0L : baselineLagSum / baselineLagSamples;
+        final long count = revocations.sum();
+        return StormReport.builder()
+                          .assignor(scenario.getAssignor().getAlias())
+                          .topic(topic)
+                          .groupId(groupId)
+                          .elapsedMills(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                          .produced(produced())
+                          .consumed(consumed.sum())
+                          .steps(new ArrayList<>(appliedSteps))
+                          .revocations(count)
+                          .maxRevokeToAssignMills(maxRevokeToAssignNanos.get() / 1e6)
+                          .meanRevokeToAssignMills(count == 0L ? 0D : revokeToAssignNanos.sum() / 1e6 / count)
+                          .stopTheWorldMills(TimeUnit.NANOSECONDS.toMillis(stopTheWorldNanos.sum()))
+                          .maxGapMills(TimeUnit.NANOSECONDS.toMillis(maxGapNanos.get()))
+                          .reprocessed(reprocessed.sum())
+                          .baselineLag(baselineLag)
+                          .peakLag(peakLag)
+                          .lagSpike(Math.max(0L, peakLag - baselineLag))
+                          .build();
+    }
+
+    private class StormConsumer extends ConsumeWorker<String> {
+
+        StormConsumer(String name, KafkaConsumer<String, String> consumer, ConsumeOptions options,
+                      WorkerMetrics metrics) {
+            super(name, 0L, consumer, topic, groupId, scenario.getConsumeInterval(), false, options,
+                  RebalanceStorm.this, metrics, RebalanceStorm.this.scheduler);
+        }
+
+        @Override
+        protected boolean process(ConsumerRecord<String, String> record) {
+            onRecord(record);
+            return super.process(record);
+        }
+    }
+}
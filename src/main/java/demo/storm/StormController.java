@@ -0,0 +1,118 @@
+package demo.storm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import demo.cluster.ClusterRegistry;
+import demo.cluster.KafkaCluster;
+import demo.worker.WorkerScheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/storm")
+@RequiredArgsConstructor
+public class StormController {
+
+    private final ClusterRegistry clusterRegistry;
+    private final WorkerScheduler workerScheduler;
+    private final Map<String, StormRun> runs = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    // runs one storm at a time, so that runs don't disturb each other
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("storm-runner").setDaemon(true).build());
+
+    @PreDestroy
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Handle "POST /api/storm?cluster=default" to queue a rebalance storm against a cluster of
+     * {@link ClusterRegistry}, the default one unless "cluster" or "bootstrapServers=localhost:9092" is given.
+     * The clients of the storm get the configs of the cluster, bootstrapServers connects without any.
+     * The storm is run in the background, its report is read from "GET /api/storm/{id}".
+     */
+    @PostMapping
+    public ResponseEntity<StormRun> startStorm(@RequestBody StormScenario scenario,
+                                               @RequestParam(value = "bootstrapServers", required = false)
+                                                       String bootstrapServers,
+                                               @RequestParam(value = "cluster", required = false)
+                                                       String cluster) {
+        final KafkaCluster kafkaCluster;
+        try {
+            scenario.validate();
+            kafkaCluster = bootstrapServers != null ? KafkaCluster.builder()
+                                                                  .name(bootstrapServers)
+                                                                  .bootstrapServers(bootstrapServers)
+                                                                  .properties(Collections.emptyMap())
+                                                                  .build()
+                                                    : clusterRegistry.resolve(cluster);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid storm scenario. reason: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        final StormRun run = StormRun.builder()
+                                     .id(Integer.toString(nextId.incrementAndGet()))
+                                     .status(StormRun.Status.PENDING)
+                                     .scenario(scenario)
+                                     .build();
+        runs.put(run.getId(), run);
+        executor.execute(() -> {
+            run.setStatus(StormRun.Status.RUNNING);
+            try {
+                run.setReport(new RebalanceStorm(kafkaCluster, scenario, workerScheduler).run());
+                run.setStatus(StormRun.Status.DONE);
+                logger.info("Rebalance storm {} is done: {}", run.getId(), run.getReport());
+            } catch (Exception e) {
+                logger.warn("Exception occur while running rebalance storm {}", run.getId(), e);
+                run.setError(e.toString());
+                run.setStatus(StormRun.Status.FAILED);
+            }
+        });
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(run);
+    }
+
+    /**
+     * Handle "GET /api/storm" to get every submitted storm.
+     */
+    @GetMapping
+    public ResponseEntity<List<StormRun>> getStorms() {
+        return ResponseEntity.ok(new ArrayList<>(runs.values()));
+    }
+
+    /**
+     * Handle "GET /api/storm/{id}" to get the status and the report of a storm.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<StormRun> getStorm(@PathVariable("id") String id) {
+        final StormRun run = runs.get(id);
+        if (run == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(run);
+    }
+}
@@ -0,0 +1,40 @@
+package demo.storm;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cost of the rebalances of a {@link RebalanceStorm} run.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StormReport {
+    private String assignor;
+    private String topic;
+    private String groupId;
+    private long elapsedMills;
+    private long produced;
+    private long consumed;
+    // steps applied, e.g. "5000ms RESTART storm-consumer-0"
+    private List<String> steps;
+    // revocations of every consumer, and the time from each one to the next assignment of the consumer
+    private long revocations;
+    private double maxRevokeToAssignMills;
+    private double meanRevokeToAssignMills;
+    // sum over the partitions of the time from their revocation to their next assignment, in which nothing of
+    // them is processed, and the longest of these gaps
+    private long stopTheWorldMills;
+    private long maxGapMills;
+    // records processed again because their offset wasn't committed before their partition moved
+    private long reprocessed;
+    // produced minus consumed records, before the first step and at its highest afterwards
+    private long baselineLag;
+    private long peakLag;
+    private long lagSpike;
+}
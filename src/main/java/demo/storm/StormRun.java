@@ -0,0 +1,29 @@
+package demo.storm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A {@link RebalanceStorm} submitted by "POST /api/storm".
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StormRun {
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private String id;
+    private volatile Status status;
+    private StormScenario scenario;
+    private volatile StormReport report;
+    private volatile String error;
+}
@@ -0,0 +1,63 @@
+package demo.storm;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Consumer churn a {@link RebalanceStorm} applies to a group while a producer keeps a steady rate.
+ * <p>
+ * Bound from the body of "POST /api/storm", e.g. {"assignor": "cooperative-sticky", "steps": [{"atMills": 5000,
+ * "action": "RESTART"}]}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StormScenario {
+
+    @Builder.Default
+    private Assignor assignor = Assignor.RANGE;
+    @Builder.Default
+    private int partitions = 12;
+    @Builder.Default
+    private int initialConsumers = 3;
+    // time before the first step, so that the baseline lag is measured on a settled group
+    @Builder.Default
+    private long warmupMills = 5000L;
+    @Builder.Default
+    private long durationMills = 30000L;
+    @Builder.Default
+    private List<StormStep> steps = new ArrayList<>();
+    // records produced per second
+    @Builder.Default
+    private double produceRate = 1000D;
+    // time spent on every record by a consumer
+    private long consumeInterval;
+    @Builder.Default
+    private long commitIntervalMills = 1000L;
+
+    public void validate() {
+        checkArgument(assignor != null, "assignor must not be null");
+        checkArgument(partitions > 0, "partitions must be greater than 0");
+        checkArgument(initialConsumers > 0, "initialConsumers must be greater than 0");
+        checkArgument(warmupMills >= 0L, "warmupMills must be greater than or equal to 0");
+        checkArgument(durationMills > warmupMills, "durationMills must be greater than warmupMills");
+        checkArgument(produceRate > 0D, "produceRate must be greater than 0");
+        checkArgument(consumeInterval >= 0L, "consumeInterval must be greater than or equal to 0");
+        checkArgument(commitIntervalMills >= 0L, "commitIntervalMills must be greater than or equal to 0");
+        checkArgument(steps != null, "steps must not be null");
+        for (StormStep step : steps) {
+            checkArgument(step.getAction() != null, "action of a step must not be null");
+            checkArgument(step.getCount() > 0, "count of a step must be greater than 0");
+            checkArgument(step.getAtMills() >= 0L && step.getAtMills() < durationMills,
+                          "atMills of a step must be in [0, durationMills)");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package demo.storm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A change of the consumer group at some point of a {@link StormScenario}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StormStep {
+
+    public enum Action {
+        // start new consumers
+        ADD,
+        // stop the oldest consumers
+        REMOVE,
+        // stop the oldest consumers and start them again under the same name
+        RESTART
+    }
+
+    // time from the start of the run
+    private long atMills;
+    private Action action;
+    @Builder.Default
+    private int count = 1;
+}
@@ -0,0 +1,25 @@
+package demo.stream;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AssignmentChange {
+    private String worker;
+    private String topic;
+    private String group;
+    // "assigned" or "revoked"
+    private String change;
+    // partitions of the change, as "{topic}-{partition}"
+    private List<String> partitions;
+    // every partition assigned to the worker after the change
+    private List<String> assigned;
+    private long timestamp;
+}
@@ -0,0 +1,31 @@
+package demo.stream;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/stream")
+@RequiredArgsConstructor
+public class StreamController {
+
+    private final StreamHub streamHub;
+
+    /**
+     * Handle "GET /api/stream?types=EVENT,ASSIGNMENT&topic=topic1&group=consumers-1&worker=consumer-1" to
+     * receive Burrow notifications, assignment changes and throughput of workers as Server-Sent Events.
+     * Every filter is optional.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(StreamFilter filter) {
+        logger.info("Try to subscribe the stream. filter: {}", filter);
+        return ResponseEntity.ok(streamHub.subscribe(filter));
+    }
+}
@@ -0,0 +1,32 @@
+package demo.stream;
+
+import java.util.Set;
+
+import lombok.Data;
+
+/**
+ * Filters of a stream subscription. Null filters match every message.
+ */
+@Data
+public class StreamFilter {
+    private Set<StreamMessageType> types;
+    private String topic;
+    private String group;
+    private String worker;
+
+    public boolean matches(StreamMessage message) {
+        if (message.getType() == StreamMessageType.DROPPED) {
+            return true;
+        }
+        if (types != null && !types.isEmpty() && !types.contains(message.getType())) {
+            return false;
+        }
+        if (topic != null && (message.getTopics() == null || !message.getTopics().contains(topic))) {
+            return false;
+        }
+        if (group != null && (message.getGroups() == null || !message.getGroups().contains(group))) {
+            return false;
+        }
+        return worker == null || worker.equals(message.getWorker());
+    }
+}
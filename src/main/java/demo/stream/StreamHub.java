@@ -0,0 +1,88 @@
+package demo.stream;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pushes {@link StreamMessage}s to Server-Sent Events subscribers.
+ * <p>
+ * {@link #publish(StreamMessage)} only hands the message to the queue of each matching subscriber, which is
+ * sent by a sender thread of its own, so a slow subscriber never holds back publishers or other subscribers.
+ */
+@Slf4j
+@Component
+public class StreamHub {
+
+    private final List<StreamSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService sender = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("stream-sender-%d").setDaemon(true).build());
+    private final int maxPending;
+    private final long timeoutMills;
+
+    public StreamHub(@Value("${demo.stream.max-pending:1000}") int maxPending,
+                     @Value("${demo.stream.timeout-mills:0}") long timeoutMills) {
+        this.maxPending = maxPending;
+        this.timeoutMills = timeoutMills;
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        subscribers.forEach(StreamSubscriber::close);
+        sender.shutdownNow();
+    }
+
+    /**
+     * Returns an emitter which receives every message matching the filter until the client disconnects.
+     */
+    public SseEmitter subscribe(StreamFilter filter) {
+        final SseEmitter emitter = new SseEmitter(timeoutMills);
+        final StreamSubscriber subscriber = subscribe(filter, (seq, message) -> emitter.send(
+                SseEmitter.event()
+                          .id(String.valueOf(seq))
+                          .name(message.getType().name().toLowerCase(Locale.ROOT))
+                          .data(message.getPayload(), MediaType.APPLICATION_JSON)));
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        return emitter;
+    }
+
+    StreamSubscriber subscribe(StreamFilter filter, StreamSubscriber.Sink sink) {
+        final StreamSubscriber subscriber = new StreamSubscriber(filter, sink, maxPending, sender,
+                                                                 subscribers::remove);
+        subscribers.add(subscriber);
+        logger.info("Add a stream subscriber. filter: {} / subscribers: {}", filter, subscribers.size());
+        return subscriber;
+    }
+
+    public void publish(StreamMessage message) {
+        for (StreamSubscriber subscriber : subscribers) {
+            subscriber.offer(message);
+        }
+    }
+
+    /**
+     * Returns whether anyone subscribed, so that publishers can skip building messages nobody receives.
+     */
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+}
@@ -0,0 +1,27 @@
+package demo.stream;
+
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A message pushed to stream subscribers. Only {@code payload} is sent, the other fields are used to filter
+ * and coalesce messages.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StreamMessage {
+    private StreamMessageType type;
+    private Set<String> topics;
+    private Set<String> groups;
+    private String worker;
+    // a pending message of a subscriber is replaced by a newer message with the same key.
+    // messages without a key are never coalesced
+    private String coalesceKey;
+    private Object payload;
+}
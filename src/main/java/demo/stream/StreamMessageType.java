@@ -0,0 +1,12 @@
+package demo.stream;
+
+public enum StreamMessageType {
+    // a Burrow notification, open or close
+    EVENT,
+    // partitions assigned to or revoked from a consumer worker
+    ASSIGNMENT,
+    // records of a worker since the previous throughput message
+    THROUGHPUT,
+    // number of messages a slow subscriber missed
+    DROPPED
+}
@@ -0,0 +1,118 @@
+package demo.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A subscription of the {@link StreamHub} with its own queue of pending messages, drained by at most one
+ * sender thread at a time.
+ * <p>
+ * Publishing never waits for a subscriber. While a slow subscriber is still sending, a newer message
+ * replaces its pending message with the same coalesce key, and once more than {@code maxPending} messages
+ * are pending the oldest ones are dropped and reported in a {@link StreamMessageType#DROPPED} message.
+ */
+@Slf4j
+class StreamSubscriber {
+
+    /**
+     * Writes a message to the subscriber, blocking until it was written.
+     */
+    interface Sink {
+        void send(long seq, StreamMessage message) throws IOException;
+    }
+
+    private final StreamFilter filter;
+    private final Sink sink;
+    private final int maxPending;
+    private final Executor executor;
+    private final Consumer<StreamSubscriber> onClose;
+    // guarded by itself. coalesced messages keep the position of the message they replaced
+    private final Map<Object, StreamMessage> pending = new LinkedHashMap<>();
+    private long dropped;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    // only accessed by the sender thread
+    private long seq;
+
+    StreamSubscriber(StreamFilter filter, Sink sink, int maxPending, Executor executor,
+                     Consumer<StreamSubscriber> onClose) {
+        this.filter = filter;
+        this.sink = sink;
+        this.maxPending = maxPending;
+        this.executor = executor;
+        this.onClose = onClose;
+    }
+
+    void offer(StreamMessage message) {
+        if (closed.get() || !filter.matches(message)) {
+            return;
+        }
+        synchronized (pending) {
+            pending.put(message.getCoalesceKey() != null ? message.getCoalesceKey() : new Object(), message);
+            if (pending.size() > maxPending) {
+                final Iterator<StreamMessage> oldest = pending.values().iterator();
+                oldest.next();
+                oldest.remove();
+                dropped++;
+            }
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            synchronized (pending) {
+                pending.clear();
+            }
+            onClose.accept(this);
+        }
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    private void drain() {
+        try {
+            while (!closed.get()) {
+                final List<StreamMessage> messages;
+                final long droppedMessages;
+                synchronized (pending) {
+                    if (pending.isEmpty()) {
+                        // an offer after this point schedules a new drain
+                        scheduled.set(false);
+                        return;
+                    }
+                    messages = new ArrayList<>(pending.values());
+                    pending.clear();
+                    droppedMessages = dropped;
+                    dropped = 0L;
+                }
+                if (droppedMessages > 0L) {
+                    sink.send(++seq, StreamMessage.builder()
+                                                  .type(StreamMessageType.DROPPED)
+                                                  .payload(Collections.singletonMap("dropped", droppedMessages))
+                                                  .build());
+                }
+                for (StreamMessage message : messages) {
+                    sink.send(++seq, message);
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Close a stream subscriber which failed to send. reason: {}", e.getMessage());
+            close();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package demo.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ThroughputDelta {
+    private String worker;
+    // "producer" or "consumer"
+    private String type;
+    private String topic;
+    private String group;
+    // records since the previous message of the worker
+    private long records;
+    // records since the worker started, so a client which missed a coalesced delta stays accurate
+    private long totalRecords;
+    private long intervalMills;
+    private double rate;
+    private long timestamp;
+}
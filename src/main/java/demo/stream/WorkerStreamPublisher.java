@@ -0,0 +1,155 @@
+package demo.stream;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import demo.worker.AbstractWorker;
+import demo.worker.ConsumeWorker;
+import demo.worker.WorkerListener;
+import demo.worker.WorkerRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes assignment changes of consumer workers as they happen, and the throughput of every worker
+ * every {@code demo.stream.throughput-interval-mills}, to the {@link StreamHub}.
+ */
+@Slf4j
+@Component
+public class WorkerStreamPublisher implements WorkerListener {
+
+    private final StreamHub streamHub;
+    private final WorkerRegistry workerRegistry;
+    private final long intervalMills;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "stream-throughput");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // total records and last delta by worker id, only accessed by the executor
+    private final Map<String, long[]> lastTotals = new HashMap<>();
+    private long lastTickMills = System.currentTimeMillis();
+
+    public WorkerStreamPublisher(StreamHub streamHub, WorkerRegistry workerRegistry,
+                                 @Value("${demo.stream.throughput-interval-mills:1000}") long intervalMills) {
+        this.streamHub = streamHub;
+        this.workerRegistry = workerRegistry;
+        this.intervalMills = intervalMills;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor.scheduleAtFixedRate(this::publishThroughput, intervalMills, intervalMills, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void onPartitionsAssigned(ConsumeWorker<?> worker, Collection<TopicPartition> partitions) {
+        publishAssignment(worker, "assigned", partitions);
+    }
+
+    @Override
+    public void onPartitionsRevoked(ConsumeWorker<?> worker, Collection<TopicPartition> partitions) {
+        publishAssignment(worker, "revoked", partitions);
+    }
+
+    private void publishAssignment(ConsumeWorker<?> worker, String change, Collection<TopicPartition> partitions) {
+        if (!streamHub.hasSubscribers()) {
+            return;
+        }
+        final Set<String> topics = partitions.stream().map(TopicPartition::topic).collect(Collectors.toSet());
+        topics.add(worker.getTopic());
+        streamHub.publish(StreamMessage.builder()
+                                       .type(StreamMessageType.ASSIGNMENT)
+                                       .topics(topics)
+                                       .groups(Collections.singleton(worker.getGroupId()))
+                                       .worker(worker.getName())
+                                       .coalesceKey("assignment:" + WorkerRegistry.id(worker.getName(),
+                                                                                      worker.getTopic()))
+                                       .payload(AssignmentChange.builder()
+                                                                .worker(worker.getName())
+                                                                .topic(worker.getTopic())
+                                                                .group(worker.getGroupId())
+                                                                .change(change)
+                                                                .partitions(format(partitions))
+                                                                .assigned(format(worker.getAssignedTopics()))
+                                                                .timestamp(System.currentTimeMillis())
+                                                                .build())
+                                       .build());
+    }
+
+    private void publishThroughput() {
+        try {
+            final long now = System.currentTimeMillis();
+            final long elapsedMills = Math.max(now - lastTickMills, 1L);
+            lastTickMills = now;
+            final Map<String, AbstractWorker> workers = workerRegistry.getWorkers();
+            lastTotals.keySet().retainAll(workers.keySet());
+            for (Entry<String, AbstractWorker> entry : workers.entrySet()) {
+                final AbstractWorker worker = entry.getValue();
+                final long total = worker.getMetrics().getTotalRecords();
+                final long[] last = lastTotals.computeIfAbsent(entry.getKey(), k -> new long[2]);
+                final long delta = total - last[0];
+                // skip idle workers, but tell once that a worker became idle
+                final boolean changed = delta != 0L || last[1] != 0L;
+                last[0] = total;
+                last[1] = delta;
+                if (changed && streamHub.hasSubscribers()) {
+                    streamHub.publish(throughputMessage(entry.getKey(), worker, delta, total, elapsedMills, now));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Exception occur while publishing throughput", e);
+        }
+    }
+
+    private static StreamMessage throughputMessage(String id, AbstractWorker worker, long delta, long total,
+                                                   long elapsedMills, long now) {
+        final String group = worker instanceof ConsumeWorker ? ((ConsumeWorker<?>) worker).getGroupId() : null;
+        return StreamMessage.builder()
+                            .type(StreamMessageType.THROUGHPUT)
+                            .topics(Collections.singleton(worker.getTopic()))
+                            .groups(group == null ? Collections.emptySet() : Collections.singleton(group))
+                            .worker(worker.getName())
+                            .coalesceKey("throughput:" + id)
+                            .payload(ThroughputDelta.builder()
+                                                    .worker(worker.getName())
+                                                    .type(worker instanceof ConsumeWorker ? "consumer" : "producer")
+                                                    .topic(worker.getTopic())
+                                                    .group(group)
+                                                    .records(delta)
+                                                    .totalRecords(total)
+                                                    .intervalMills(elapsedMills)
+                                                    .rate(delta * 1000D / elapsedMills)
+                                                    .timestamp(now)
+                                                    .build())
+                            .build();
+    }
+
+    private static List<String> format(Collection<TopicPartition> partitions) {
+        return partitions.stream()
+                         .map(p -> String.format("%s-%d", p.topic(), p.partition()))
+                         .sorted()
+                         .collect(Collectors.toList());
+    }
+}
@@ -1,21 +1,52 @@
 package demo.worker;
 
+import java.time.Duration;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Base class of workers which run on the shared {@link WorkerScheduler}.
+ * <p>
+ * Each call of {@link #workInternal()} is a single run on the scheduler and returns how long to wait before
+ * the next run, so waiting never blocks a scheduler thread. A run which can't go on until something else happens,
+ * such as an acknowledgement, returns {@link #PARK} instead of polling for it, and {@link #wakeUp()} schedules the
+ * next run once it happened. The bytes a run allocates on the heap are recorded into the {@link WorkerMetrics} of
+ * the worker.
+ * <p>
+ * Stopping is split into {@link #signalStop(long)} and {@link #awaitTermination(long, TimeUnit)}, so that many
+ * workers can be stopped at once under a single deadline, which {@link #onStop()} reads through
+ * {@link #remainingStopTime()} to bound its final flush or commit.
+ * <p>
+ * {@link #snapshot()} describes the worker from any thread, reading its counters from the {@link WorkerMetrics}.
+ */
 @Slf4j
 @RequiredArgsConstructor
 public abstract class AbstractWorker {
 
+    /**
+     * Returned by {@link #workInternal()} to wait for {@link #wakeUp()} instead of a timer.
+     */
+    protected static final long PARK = Long.MAX_VALUE;
+
     protected final AtomicBoolean running = new AtomicBoolean(false);
     protected final String name;
     protected final long intervalMills;
-    protected Thread thread;
-    protected CountDownLatch terminationLatch;
+    protected final WorkerMetrics metrics;
+    protected final WorkerScheduler scheduler;
+    protected volatile CountDownLatch terminationLatch;
+    private final AtomicBoolean terminated = new AtomicBoolean(false);
+    // only written while holding the lock of the worker, see scheduleNext()
+    private volatile ScheduledFuture<?> next;
+    // whether the worker waits for wakeUp(), and how many wake-ups were requested so far
+    private final AtomicBoolean parked = new AtomicBoolean(false);
+    private final AtomicLong wakeUps = new AtomicLong();
+    private volatile Long stopDeadlineNanos;
 
     public void start() {
         if (!running.compareAndSet(false, true)) {
@@ -23,30 +54,14 @@ public abstract class AbstractWorker {
         }
 
         terminationLatch = new CountDownLatch(1);
-        thread = new Thread(() -> {
-            try {
-                while (running.get()) {
-                    try {
-                        workInternal();
-                        if (intervalMills != 0L) {
-                            TimeUnit.MILLISECONDS.sleep(intervalMills);
-                        }
-                    } catch (InterruptedException e) {
-                        logger.info("{} try to stop", name);
-                        return;
-                    }
-                }
-            } finally {
-                onStop();
-                terminationLatch.countDown();
-            }
-        });
-        thread.setDaemon(true);
-        thread.start();
+        terminated.set(false);
+        stopDeadlineNanos = null;
+        metrics.register();
+        scheduler.execute(this::runOnce);
     }
 
     public void stop() {
-        if (!running.compareAndSet(true, false)) {
+        if (!signal(null)) {
             throw new RuntimeException("Already worker was stopped");
         }
 
@@ -57,11 +72,204 @@ public abstract class AbstractWorker {
         }
     }
 
+    /**
+     * Signals the worker to stop without waiting for it, and returns false if it was already stopped.
+     *
+     * @param deadlineNanos {@link System#nanoTime()} by which {@link #onStop()} should have completed
+     */
+    public boolean signalStop(long deadlineNanos) {
+        return signal(deadlineNanos);
+    }
+
+    /**
+     * Waits for a signaled worker to terminate, and returns false if it didn't within the timeout.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminationLatch.await(timeout, unit);
+    }
+
     public String getName() {
         return name;
     }
 
-    protected abstract void workInternal();
+    public long getIntervalMills() {
+        return intervalMills;
+    }
+
+    public WorkerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public abstract String getTopic();
+
+    /**
+     * Returns the consumer group of the worker, or null if it doesn't consume.
+     */
+    public String getGroup() {
+        return null;
+    }
+
+    /**
+     * Returns the name of the Kafka cluster the worker runs against.
+     */
+    public String getCluster() {
+        return metrics.getCluster();
+    }
+
+    public WorkerState getState() {
+        if (running.get()) {
+            return WorkerState.RUNNING;
+        }
+        if (terminationLatch == null) {
+            return WorkerState.NEW;
+        }
+        return terminated.get() ? WorkerState.STOPPED : WorkerState.STOPPING;
+    }
+
+    public WorkerSnapshot snapshot() {
+        return WorkerSnapshot.builder()
+                             .id(WorkerRegistry.id(name, getTopic()))
+                             .name(name)
+                             .type(metrics.getType())
+                             .cluster(metrics.getCluster())
+                             .topic(getTopic())
+                             .group(getGroup())
+                             .state(getState())
+                             .counters(metrics.snapshot())
+                             .build();
+    }
+
+    /**
+     * Does a single unit of work and returns the time in nanoseconds to wait before the next run.
+     */
+    protected abstract long workInternal();
 
     protected abstract void onStop();
+
+    /**
+     * Called on the signaling thread once the worker is signaled to stop, for example to abort a blocking call
+     * of a run in progress. Must not block.
+     */
+    protected void onStopSignal() {
+    }
+
+    /**
+     * Returns how long {@link #onStop()} may still take, or null if the worker is stopped without a deadline.
+     */
+    protected Duration remainingStopTime() {
+        final Long deadlineNanos = stopDeadlineNanos;
+        return deadlineNanos == null ? null : Duration.ofNanos(Math.max(deadlineNanos - System.nanoTime(), 0L));
+    }
+
+    /**
+     * Schedules the next run of a worker which returned {@link #PARK}. May be called from any thread, before or
+     * while the worker parks, in which case the worker runs again right away. Doesn't do anything for a worker
+     * which isn't parked, beyond counting the wake-up.
+     */
+    protected void wakeUp() {
+        wakeUps.incrementAndGet();
+        if (parked.get() && parked.compareAndSet(true, false)) {
+            scheduler.execute(this::runOnce);
+        }
+    }
+
+    protected long intervalNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(intervalMills);
+    }
+
+    private synchronized boolean signal(Long deadlineNanos) {
+        if (!running.get()) {
+            return false;
+        }
+        // published before running is cleared, so that onStop() always sees the deadline
+        stopDeadlineNanos = deadlineNanos;
+        running.set(false);
+
+        // don't wait for a pending timer, a run in progress terminates by itself once it completes
+        final ScheduledFuture<?> future = next;
+        if ((future != null && future.cancel(false)) || parked.compareAndSet(true, false)) {
+            scheduler.execute(this::terminate);
+        }
+        try {
+            onStopSignal();
+        } catch (Exception e) {
+            logger.warn("[{}] Exception occur while signaling stop", name, e);
+        }
+        return true;
+    }
+
+    private void runOnce() {
+        if (!running.get()) {
+            terminate();
+            return;
+        }
+
+        long delayNanos;
+        // a wake-up requested from here on may be missed by the run, so it's checked again before parking
+        final long wakeUpsBefore = wakeUps.get();
+        final long allocatedBytes = ThreadAllocation.allocatedBytes();
+        try {
+            delayNanos = workInternal();
+        } catch (Exception e) {
+            logger.error("[{}] Exception occur while working", name, e);
+            metrics.recordError();
+            delayNanos = intervalNanos();
+        }
+        if (allocatedBytes >= 0L) {
+            metrics.recordAllocatedBytes(ThreadAllocation.allocatedBytes() - allocatedBytes);
+        }
+
+        if (!running.get()) {
+            terminate();
+            return;
+        }
+
+        if (delayNanos == PARK) {
+            park(wakeUpsBefore);
+        } else {
+            scheduleNext(Math.max(delayNanos, 0L));
+        }
+    }
+
+    private void park(long wakeUpsBefore) {
+        parked.set(true);
+        // either we see the wake-up or stop signal which raced with the run, or it sees the worker parked
+        if (wakeUps.get() != wakeUpsBefore && parked.compareAndSet(true, false)) {
+            scheduleNext(0L);
+        } else if (!running.get() && parked.compareAndSet(true, false)) {
+            terminate();
+        }
+    }
+
+    /**
+     * Schedules the next run under the lock of the worker, so that a run scheduled without delay can't publish
+     * its own timer before this one is published, and stop() can't miss it.
+     */
+    private synchronized void scheduleNext(long delayNanos) {
+        next = scheduler.schedule(this::runOnce, delayNanos, TimeUnit.NANOSECONDS);
+
+        // stop() may have missed the timer we've just scheduled
+        if (!running.get() && next.cancel(false)) {
+            scheduler.execute(this::terminate);
+        }
+    }
+
+    private void terminate() {
+        if (!terminated.compareAndSet(false, true)) {
+            return;
+        }
+        logger.info("{} try to stop", name);
+        try {
+            onStop();
+        } catch (Exception e) {
+            logger.error("[{}] Exception occur while stopping", name, e);
+        } finally {
+            metrics.remove();
+            terminationLatch.countDown();
+        }
+    }
 }
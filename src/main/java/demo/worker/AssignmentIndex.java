@@ -0,0 +1,191 @@
+package demo.worker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+
+/**
+ * Owner of every partition consumed by a consumer worker by cluster, kept up to date by the rebalance callbacks.
+ * <p>
+ * Updates are serialized and rebuild the summary of the topics they touch only, then publish a new immutable
+ * snapshot, so that reads never lock nor copy. The time from the revocation of a worker's partitions to its
+ * next assignment is recorded as the rebalance duration of its group and cluster.
+ */
+@Component
+@RequiredArgsConstructor
+public class AssignmentIndex implements WorkerListener {
+
+    public static final String REBALANCE_DURATION = "worker.consume.rebalance.duration";
+
+    private static final Comparator<PartitionSummary> PARTITION_ORDER =
+            Comparator.comparingInt(PartitionSummary::getPartition).thenComparing(PartitionSummary::getGroup);
+
+    private final MeterRegistry meterRegistry;
+    // cluster and topic -> partition -> group -> worker name, only accessed under the lock of this index
+    private final Map<ClusterTopic, Map<Integer, Map<String, String>>> owners = new HashMap<>();
+    // when the partitions of a worker were revoked by worker id, only accessed under the lock of this index
+    private final Map<String, Long> revokedNanos = new HashMap<>();
+    // by cluster and group
+    private final Map<Tags, Timer> rebalanceTimers = new ConcurrentHashMap<>();
+    private volatile Map<String, Map<String, TopicSummary>> snapshot = ImmutableMap.of();
+
+    /**
+     * Returns the owners of the partitions by cluster and topic.
+     */
+    public Map<String, Map<String, TopicSummary>> getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public void onPartitionsAssigned(ConsumeWorker<?> worker, Collection<TopicPartition> partitions) {
+        synchronized (this) {
+            final Set<ClusterTopic> topics = new HashSet<>();
+            for (TopicPartition partition : partitions) {
+                final ClusterTopic topic = new ClusterTopic(worker.getCluster(), partition.topic());
+                owners.computeIfAbsent(topic, k -> new HashMap<>())
+                      .computeIfAbsent(partition.partition(), k -> new HashMap<>(2))
+                      .put(worker.getGroupId(), worker.getName());
+                topics.add(topic);
+            }
+            publish(topics);
+            final Long revoked = revokedNanos.remove(id(worker));
+            if (revoked != null) {
+                rebalanceTimer(worker.getCluster(), worker.getGroupId())
+                        .record(System.nanoTime() - revoked, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void onPartitionsRevoked(ConsumeWorker<?> worker, Collection<TopicPartition> partitions) {
+        synchronized (this) {
+            revokedNanos.putIfAbsent(id(worker), System.nanoTime());
+            final Set<ClusterTopic> topics = new HashSet<>();
+            for (TopicPartition partition : partitions) {
+                final ClusterTopic topic = new ClusterTopic(worker.getCluster(), partition.topic());
+                if (removeOwner(worker, topic, partition.partition())) {
+                    topics.add(topic);
+                }
+            }
+            publish(topics);
+        }
+    }
+
+    @Override
+    public void onStopped(ConsumeWorker<?> worker) {
+        synchronized (this) {
+            revokedNanos.remove(id(worker));
+            final Set<ClusterTopic> topics = new HashSet<>();
+            for (ClusterTopic topic : new ArrayList<>(owners.keySet())) {
+                if (!topic.cluster.equals(worker.getCluster())) {
+                    continue;
+                }
+                for (Integer partition : new ArrayList<>(owners.get(topic).keySet())) {
+                    if (removeOwner(worker, topic, partition)) {
+                        topics.add(topic);
+                    }
+                }
+            }
+            publish(topics);
+        }
+    }
+
+    /**
+     * Removes the worker as owner of the partition, unless another worker of its group was assigned the
+     * partition in the meantime.
+     */
+    private boolean removeOwner(ConsumeWorker<?> worker, ClusterTopic topic, int partition) {
+        final Map<Integer, Map<String, String>> partitions = owners.get(topic);
+        final Map<String, String> groups = partitions == null ? null : partitions.get(partition);
+        if (groups == null || !worker.getName().equals(groups.get(worker.getGroupId()))) {
+            return false;
+        }
+        groups.remove(worker.getGroupId());
+        if (groups.isEmpty()) {
+            partitions.remove(partition);
+        }
+        if (partitions.isEmpty()) {
+            owners.remove(topic);
+        }
+        return true;
+    }
+
+    private void publish(Set<ClusterTopic> topics) {
+        if (topics.isEmpty()) {
+            return;
+        }
+        final Map<String, Map<String, TopicSummary>> next = new TreeMap<>();
+        snapshot.forEach((cluster, summaries) -> next.put(cluster, new TreeMap<>(summaries)));
+        for (ClusterTopic topic : topics) {
+            final Map<String, TopicSummary> clusterTopics = next.computeIfAbsent(topic.cluster, k -> new TreeMap<>());
+            final Map<Integer, Map<String, String>> partitions = owners.get(topic);
+            if (partitions == null) {
+                clusterTopics.remove(topic.topic);
+                continue;
+            }
+            final List<PartitionSummary> summaries = new ArrayList<>();
+            for (Entry<Integer, Map<String, String>> partition : partitions.entrySet()) {
+                for (Entry<String, String> owner : partition.getValue().entrySet()) {
+                    summaries.add(PartitionSummary.builder()
+                                                  .partition(partition.getKey())
+                                                  .group(owner.getKey())
+                                                  .consumerName(owner.getValue())
+                                                  .build());
+                }
+            }
+            summaries.sort(PARTITION_ORDER);
+            clusterTopics.put(topic.topic, new TopicSummary(topic.topic, Collections.unmodifiableList(summaries)));
+        }
+        final ImmutableMap.Builder<String, Map<String, TopicSummary>> builder = ImmutableMap.builder();
+        next.forEach((cluster, summaries) -> {
+            if (!summaries.isEmpty()) {
+                builder.put(cluster, ImmutableMap.copyOf(summaries));
+            }
+        });
+        snapshot = builder.build();
+    }
+
+    private Timer rebalanceTimer(String cluster, String group) {
+        return rebalanceTimers.computeIfAbsent(
+                Tags.of("cluster", cluster, "group", group),
+                tags -> Timer.builder(REBALANCE_DURATION)
+                             .description("Time from the revocation of a consumer's partitions to its next "
+                                          + "assignment")
+                             .tags(tags)
+                             .publishPercentiles(0.5, 0.99, 0.999)
+                             .publishPercentileHistogram()
+                             .register(meterRegistry));
+    }
+
+    private static String id(ConsumeWorker<?> worker) {
+        return WorkerRegistry.id(worker.getName(), worker.getTopic());
+    }
+
+    @Value
+    private static class ClusterTopic {
+        String cluster;
+        String topic;
+    }
+}
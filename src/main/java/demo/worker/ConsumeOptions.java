@@ -0,0 +1,46 @@
+package demo.worker;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Commit and processing options of a {@link ConsumeWorker}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConsumeOptions {
+
+    // commit once this many records were processed since the last commit
+    @Builder.Default
+    private int commitBatchSize = 100;
+    // commit once this much time elapsed since the last commit
+    @Builder.Default
+    private long commitIntervalMills = 1000L;
+    // process the records of each partition in its own lane on the worker scheduler
+    private boolean parallel;
+    // pause a partition once its lane holds this many unprocessed records, resume at half of it
+    @Builder.Default
+    private int maxLaneRecords = 500;
+    // what processing a record costs
+    @Builder.Default
+    private ProcessingCost cost = new ProcessingCost();
+    // max.poll.interval.ms of the consumer, the worker warns when a poll brings more records than it can process
+    // within it
+    @Builder.Default
+    private long maxPollIntervalMills = 300000L;
+
+    public void validate() {
+        checkArgument(commitBatchSize > 0, "commitBatchSize must be greater than 0");
+        checkArgument(commitIntervalMills >= 0L, "commitIntervalMills must be greater than or equal to 0");
+        checkArgument(maxLaneRecords > 0, "maxLaneRecords must be greater than 0");
+        checkArgument(cost != null, "cost must not be null");
+        cost.validate();
+        checkArgument(maxPollIntervalMills > 0L, "maxPollIntervalMills must be greater than 0");
+    }
+}
@@ -3,115 +3,571 @@ package demo.worker;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoField;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
 
 import com.google.common.collect.ImmutableSet;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Consumes records from a topic and commits the highest processed offset of each partition in batches.
+ * <p>
+ * Offsets are committed asynchronously once {@code commitBatchSize} records were processed or
+ * {@code commitIntervalMills} elapsed since the last commit, and synchronously when partitions are revoked
+ * or the worker stops.
+ * <p>
+ * The consumer is polled without blocking and the records of a poll are buffered, so that waiting for
+ * {@code consumeInterval} between records is a timer of the {@link WorkerScheduler} instead of a sleep.
+ * In parallel mode the records of each partition are handed off to a {@link PartitionLane} instead, and a
+ * partition is paused while its lane is full. An idle consumer backs off between polls, see {@link IdleBackoff}.
+ * <p>
+ * Every record costs what its {@link ProcessingCost} draws: spinning in {@link #process(ConsumerRecord)}, or a
+ * timer before the record is processed in the wait mode. A run which spent {@link #TIME_SLICE_NANOS} on records
+ * leaves the rest of the poll to its next run, so that spinning consumers don't hold the threads of the
+ * {@link WorkerScheduler} the other workers need. Since the records of a poll are processed before the
+ * next poll unless in parallel mode, the worker warns when a poll brings more records than it can likely process
+ * within {@code max.poll.interval.ms}, after which the consumer would leave its group.
+ * <p>
+ * Keys and values are strings or byte arrays, see {@link PayloadFormat}. Byte arrays are only checked, never
+ * decoded.
+ * <p>
+ * A stop signal wakes up a run which is inside a call of the consumer, and the final commit and close are
+ * bounded by the stop deadline.
+ */
 @Slf4j
 @Getter
-public class ConsumeWorker extends AbstractWorker implements ConsumerRebalanceListener {
+public class ConsumeWorker<T> extends AbstractWorker implements ConsumerRebalanceListener {
 
-    private final KafkaConsumer<String, String> consumer;
+    // how long a revocation waits for the record in progress of a lane
+    private static final long LANE_CANCEL_TIMEOUT_MILLS = 1000L;
+    // share of max.poll.interval.ms a poll may take to process before the worker warns
+    private static final double POLL_RISK_RATIO = 0.8D;
+    // how often the worker warns about risky polls at most
+    private static final long POLL_WARN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1L);
+    // how long a run, or a drain of a lane, processes records before it yields its thread to the other workers
+    static final long TIME_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+    // keeps the busy-work of the cpu cost from being optimized away
+    private static volatile long spinSink;
+
+    private final Consumer<T, T> consumer;
     private final String topic;
-    private long consumeInterval;
-    private boolean shouldFail;
-    private long processed;
-    private LocalDateTime lastCommitTime;
-    private final Set<TopicPartition> assignedTopics = new HashSet<>();
-
-    public ConsumeWorker(String name, long intervalMills, KafkaConsumer<String, String> consumer,
-                         String topic, long consumeInterval, boolean shouldFail) {
-        super(checkNotNull(name, "name"), intervalMills);
+    private final String groupId;
+    private final ConsumeOptions options;
+    @Getter(AccessLevel.NONE)
+    private final WorkerListener listener;
+    private volatile long consumeInterval;
+    private volatile boolean shouldFail;
+    private volatile ProcessingCost cost;
+    // polls which brought more records than the worker can likely process within max.poll.interval.ms
+    private volatile long riskyPolls;
+    // records which failed the check of isIntact()
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong invalid = new AtomicLong();
+    // updated by the polling thread only, read by anyone
+    private final Set<TopicPartition> assignedTopics = ConcurrentHashMap.newKeySet();
+    @Getter(AccessLevel.NONE)
+    private final Map<TopicPartition, OffsetAndMetadata> pendingOffsets = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    private int pendingRecords;
+    @Getter(AccessLevel.NONE)
+    private long lastCommitNanos = System.nanoTime();
+    @Getter(AccessLevel.NONE)
+    private long lastProcessNanos;
+    // whether the next buffered record waits for its cost, and until when
+    @Getter(AccessLevel.NONE)
+    private boolean waiting;
+    @Getter(AccessLevel.NONE)
+    private long waitUntilNanos;
+    @Getter(AccessLevel.NONE)
+    private long lastPollNanos;
+    // delay before polling again while polls return nothing
+    @Getter(AccessLevel.NONE)
+    private final IdleBackoff idleBackoff = new IdleBackoff();
+    @Getter(AccessLevel.NONE)
+    private long lastPollWarnNanos;
+    // records of the last poll which are not processed yet
+    @Getter(AccessLevel.NONE)
+    private Iterator<ConsumerRecord<T, T>> buffered = Collections.emptyIterator();
+    // lanes and paused partitions of the parallel mode, only accessed by the polling thread
+    @Getter(AccessLevel.NONE)
+    private final Map<TopicPartition, PartitionLane<T>> lanes = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final Set<TopicPartition> pausedPartitions = new HashSet<>();
+    // whether a run is in progress, so that a stop signal only wakes up a consumer which is in use
+    @Getter(AccessLevel.NONE)
+    private volatile boolean working;
+
+    public ConsumeWorker(String name, long intervalMills, Consumer<T, T> consumer,
+                         String topic, String groupId, long consumeInterval, boolean shouldFail,
+                         ConsumeOptions options, WorkerListener listener, WorkerMetrics metrics,
+                         WorkerScheduler scheduler) {
+        super(checkNotNull(name, "name"), intervalMills, checkNotNull(metrics, "metrics"),
+              checkNotNull(scheduler, "scheduler"));
         this.consumer = checkNotNull(consumer, "consumer");
         this.topic = checkNotNull(topic, "topic");
+        this.groupId = checkNotNull(groupId, "groupId");
+        this.options = checkNotNull(options, "options");
+        options.validate();
+        this.listener = checkNotNull(listener, "listener");
         this.consumeInterval = consumeInterval;
         this.shouldFail = shouldFail;
-        this.lastCommitTime = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(consumeInterval));
+        this.cost = options.getCost();
+        this.lastProcessNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(consumeInterval);
+        this.lastPollWarnNanos = System.nanoTime() - POLL_WARN_INTERVAL_NANOS;
+    }
+
+    public long getProcessed() {
+        return metrics.getTotalRecords();
     }
 
-    protected void workInternal() {
+    public long getInvalid() {
+        return invalid.get();
+    }
+
+    @Override
+    public String getGroup() {
+        return groupId;
+    }
+
+    @Override
+    protected long workInternal() {
+        working = true;
         try {
-            ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(100L));
-            for (ConsumerRecord<String, String> record : records) {
-                processed++;
-                if (processed % 100 == 0) {
-                    logger.info("[{}} Consume record. message: {} / topic: {} / partition: {} / offset: {}",
-                                name,
-                                record.value(),
-                                record.topic(),
-                                record.partition(),
-                                record.offset());
-                }
-                if (shouldFail) {
-                    continue;
-                }
-                if (consumeInterval != 0L) {
-                    // Wait for commit interval
-                    final LocalDateTime now = LocalDateTime.now();
-                    final LocalDateTime nextCommitTime = lastCommitTime.plus(consumeInterval,
-                                                                             ChronoField.MILLI_OF_DAY.getBaseUnit());
-                    if (now.isBefore(nextCommitTime)) {
-                        TimeUnit.NANOSECONDS.sleep(Duration.between(now, nextCommitTime).toNanos());
-                    }
+            return options.isParallel() ? pollToLanes() : pollAndProcess();
+        } catch (WakeupException e) {
+            if (isRunning()) {
+                throw e;
+            }
+            return 0L;
+        } finally {
+            working = false;
+        }
+    }
+
+    @Override
+    protected void onStopSignal() {
+        if (working) {
+            consumer.wakeup();
+        }
+    }
+
+    private long pollAndProcess() {
+        final long runStartNanos = System.nanoTime();
+        if (!buffered.hasNext()) {
+            final ConsumerRecords<T, T> records = poll();
+            if (records.isEmpty()) {
+                commitIfDue();
+                return Math.max(intervalNanos(), idleBackoff.next());
+            }
+            idleBackoff.reset();
+            checkPollRisk(records.count());
+            buffered = records.iterator();
+        }
+        while (buffered.hasNext()) {
+            final long waitNanos = consumeDelayNanos(lastProcessNanos);
+            if (waitNanos > 0L) {
+                commitIfDue();
+                return waitNanos;
+            }
+            if (!waiting) {
+                final long costNanos = nextWaitNanos();
+                waiting = costNanos > 0L;
+                waitUntilNanos = System.nanoTime() + costNanos;
+            }
+            if (waiting) {
+                final long costNanos = waitUntilNanos - System.nanoTime();
+                if (costNanos > 0L) {
+                    commitIfDue();
+                    return costNanos;
                 }
-                // commit
-                consumer.commitSync();
-                lastCommitTime = LocalDateTime.now();
+                waiting = false;
+            }
+            lastProcessNanos = System.nanoTime();
+            final ConsumerRecord<T, T> record = buffered.next();
+            if (process(record)) {
+                markProcessed(record);
+            }
+            if (pendingRecords >= options.getCommitBatchSize()) {
+                commitAsync();
+            }
+            if (buffered.hasNext() && System.nanoTime() - runStartNanos >= TIME_SLICE_NANOS) {
+                // run again behind the workers which are already due, the buffered records are kept
+                commitIfDue();
+                return 0L;
             }
-        } catch (Exception e) {
-            logger.error("Exception occur while consuming records", e);
         }
+        commitIfDue();
+        return intervalNanos();
+    }
+
+    private long pollToLanes() {
+        resumeDrainedLanes();
+        final ConsumerRecords<T, T> records = poll();
+        for (TopicPartition partition : records.partitions()) {
+            final PartitionLane<T> lane = lanes.computeIfAbsent(
+                    partition, p -> new PartitionLane<>(p, this, scheduler));
+            for (ConsumerRecord<T, T> record : records.records(partition)) {
+                lane.enqueue(record);
+            }
+            lane.signal();
+            if (lane.size() >= options.getMaxLaneRecords() && pausedPartitions.add(partition)) {
+                consumer.pause(Collections.singleton(partition));
+            }
+        }
+        collectLaneOffsets();
+        if (pendingRecords >= options.getCommitBatchSize()) {
+            commitAsync();
+        } else {
+            commitIfDue();
+        }
+        if (!records.isEmpty() || !pausedPartitions.isEmpty()) {
+            // a paused partition resumes on a poll, so keep polling while its lane drains
+            idleBackoff.reset();
+        }
+        return records.isEmpty() ? Math.max(intervalNanos(), idleBackoff.next()) : intervalNanos();
+    }
+
+    private ConsumerRecords<T, T> poll() {
+        final long pollNanos = System.nanoTime();
+        final long sinceLastPollNanos = pollNanos - lastPollNanos;
+        if (lastPollNanos != 0L
+            && sinceLastPollNanos > TimeUnit.MILLISECONDS.toNanos(options.getMaxPollIntervalMills())) {
+            logger.warn("[{}] {}[ms] passed since the last poll, longer than max.poll.interval.ms of {}[ms]", name,
+                        TimeUnit.NANOSECONDS.toMillis(sinceLastPollNanos), options.getMaxPollIntervalMills());
+        }
+        lastPollNanos = pollNanos;
+        final ConsumerRecords<T, T> records = consumer.poll(Duration.ZERO);
+        metrics.recordPollLatency(System.nanoTime() - pollNanos);
+        return records;
+    }
+
+    /**
+     * Warns if processing {@code count} records likely takes longer than {@link #POLL_RISK_RATIO} of
+     * max.poll.interval.ms, from the mean cost plus three standard deviations of the sum of their costs.
+     */
+    private void checkPollRisk(int count) {
+        final ProcessingCost cost = this.cost;
+        final double meanMills = cost.getCostMills() + consumeInterval;
+        final double stddevMills = cost.getCostDistribution() == ProcessingCost.Distribution.CONSTANT
+                                   ? 0D : cost.getCostStddevMills();
+        final double expectedMills = count * meanMills + 3D * Math.sqrt(count) * stddevMills;
+        if (expectedMills < options.getMaxPollIntervalMills() * POLL_RISK_RATIO) {
+            return;
+        }
+        riskyPolls++;
+        final long now = System.nanoTime();
+        if (now - lastPollWarnNanos < POLL_WARN_INTERVAL_NANOS) {
+            return;
+        }
+        lastPollWarnNanos = now;
+        logger.warn("[{}] A poll of {} records may take {}[ms] to process, close to max.poll.interval.ms of {}[ms]. "
+                    + "Lower max.poll.records or the processing cost before the group rebalances. riskyPolls: {}",
+                    name, count, (long) expectedMills, options.getMaxPollIntervalMills(), riskyPolls);
+    }
+
+    /**
+     * Draws the cost of the next record if it's waited for rather than spent on the processing thread,
+     * otherwise returns 0.
+     */
+    long nextWaitNanos() {
+        final ProcessingCost cost = this.cost;
+        if (!cost.isWait()) {
+            return 0L;
+        }
+        final long costNanos = cost.nextNanos();
+        metrics.recordProcessingCost(costNanos);
+        return costNanos;
+    }
+
+    /**
+     * Returns how long to wait before the next record may be processed, given when the previous one was.
+     */
+    long consumeDelayNanos(long lastProcessNanos) {
+        final long interval = consumeInterval;
+        if (shouldFail || interval == 0L) {
+            return 0L;
+        }
+        return lastProcessNanos + TimeUnit.MILLISECONDS.toNanos(interval) - System.nanoTime();
+    }
+
+    /**
+     * Processes a record and returns whether its offset should be committed.
+     * May be called concurrently by the lanes of the parallel mode.
+     */
+    protected boolean process(ConsumerRecord<T, T> record) {
+        final long processNanos = System.nanoTime();
+        metrics.recordRecords(1L);
+        metrics.recordBytes(record.serializedKeySize(), record.serializedValueSize());
+        if (!isIntact(record)) {
+            invalid.incrementAndGet();
+            metrics.recordError();
+        }
+        final ProcessingCost cost = this.cost;
+        if (cost.isEnabled() && !cost.isWait()) {
+            final long costNanos = cost.nextNanos();
+            metrics.recordProcessingCost(costNanos);
+            spin(costNanos);
+        }
+        // sampled from the shared sum, so concurrent lanes may log the same count twice or skip it
+        if (metrics.getTotalRecords() % 100 == 0) {
+            logger.info("[{}} Consume record. message: {} / topic: {} / partition: {} / offset: {}",
+                        name,
+                        record.value() instanceof byte[] ? record.serializedValueSize() + " bytes" : record.value(),
+                        record.topic(),
+                        record.partition(),
+                        record.offset());
+        }
+        metrics.recordProcessLatency(System.nanoTime() - processNanos);
+        return !shouldFail;
+    }
+
+    /**
+     * Checks a record without decoding it: its value must be present and a byte array value must be as long as
+     * the value on the wire.
+     */
+    static boolean isIntact(ConsumerRecord<?, ?> record) {
+        final Object value = record.value();
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length == record.serializedValueSize();
+        }
+        return value != null;
+    }
+
+    /**
+     * Keeps the current thread busy for the given time, like a record which takes that long to compute.
+     */
+    static void spin(long nanos) {
+        final long deadline = System.nanoTime() + nanos;
+        long x = deadline;
+        while (System.nanoTime() - deadline < 0L) {
+            for (int i = 0; i < 64; i++) {
+                // xorshift, cheap and not foldable
+                x ^= x << 13;
+                x ^= x >>> 7;
+                x ^= x << 17;
+            }
+        }
+        if (x == 0L) {
+            spinSink = x;
+        }
+    }
+
+    private void resumeDrainedLanes() {
+        if (pausedPartitions.isEmpty()) {
+            return;
+        }
+        final Set<TopicPartition> drained = new HashSet<>();
+        for (TopicPartition partition : pausedPartitions) {
+            final PartitionLane<T> lane = lanes.get(partition);
+            if (lane == null || lane.size() <= options.getMaxLaneRecords() / 2) {
+                drained.add(partition);
+            }
+        }
+        if (!drained.isEmpty()) {
+            pausedPartitions.removeAll(drained);
+            consumer.resume(drained);
+        }
+    }
+
+    private void collectLaneOffsets() {
+        for (PartitionLane<T> lane : lanes.values()) {
+            collectLaneOffset(lane, pendingOffsets);
+        }
+    }
+
+    private void collectLaneOffset(PartitionLane<T> lane, Map<TopicPartition, OffsetAndMetadata> offsets) {
+        final long offset = lane.collectCompletedOffset();
+        if (offset >= 0L) {
+            offsets.put(lane.getPartition(), new OffsetAndMetadata(offset));
+        }
+        pendingRecords += lane.collectCompletedRecords();
     }
 
     @Override
     protected void onStop() {
-        consumer.close();
+        try {
+            for (PartitionLane<T> lane : lanes.values()) {
+                lane.cancel(laneCancelTimeoutMills(), TimeUnit.MILLISECONDS);
+                collectLaneOffset(lane, pendingOffsets);
+            }
+            commitSync(pendingOffsets);
+        } finally {
+            try {
+                final Duration timeout = remainingStopTime();
+                if (timeout == null) {
+                    consumer.close();
+                } else {
+                    consumer.close(timeout);
+                }
+            } catch (Exception e) {
+                logger.warn("[{}] Exception occur while closing consumer", name, e);
+            }
+            assignedTopics.clear();
+            try {
+                listener.onStopped(this);
+            } catch (Exception e) {
+                logger.warn("[{}] Exception occur while notifying stop", name, e);
+            }
+        }
+    }
+
+    private void markProcessed(ConsumerRecord<T, T> record) {
+        pendingOffsets.put(new TopicPartition(record.topic(), record.partition()),
+                           new OffsetAndMetadata(record.offset() + 1));
+        pendingRecords++;
+    }
+
+    private void commitIfDue() {
+        if (pendingRecords > 0 && commitIntervalElapsed()) {
+            commitAsync();
+        }
+    }
+
+    private boolean commitIntervalElapsed() {
+        return System.nanoTime() - lastCommitNanos
+               >= TimeUnit.MILLISECONDS.toNanos(options.getCommitIntervalMills());
+    }
+
+    private void commitAsync() {
+        final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>(pendingOffsets);
+        pendingOffsets.clear();
+        pendingRecords = 0;
+        lastCommitNanos = System.nanoTime();
+        if (offsets.isEmpty()) {
+            return;
+        }
+        final long commitNanos = lastCommitNanos;
+        consumer.commitAsync(offsets, (committed, exception) -> {
+            metrics.recordCommitLatency(System.nanoTime() - commitNanos);
+            if (exception != null) {
+                logger.warn("[{}] Failed to commit offsets asynchronously: {}", name, committed, exception);
+                metrics.recordError();
+                return;
+            }
+            metrics.recordCommit();
+        });
+    }
+
+    private void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        if (offsets.isEmpty()) {
+            return;
+        }
+        final long commitNanos = System.nanoTime();
+        try {
+            try {
+                commitSyncWithinDeadline(offsets);
+            } catch (WakeupException e) {
+                // a stop signal aborts a single blocking call, which may have been this commit
+                commitSyncWithinDeadline(offsets);
+            }
+            metrics.recordCommitLatency(System.nanoTime() - commitNanos);
+            metrics.recordCommit();
+        } catch (Exception e) {
+            logger.warn("[{}] Failed to commit offsets: {}", name, offsets, e);
+            metrics.recordError();
+        }
+        lastCommitNanos = System.nanoTime();
+    }
+
+    private void commitSyncWithinDeadline(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        final Duration timeout = remainingStopTime();
+        if (timeout == null) {
+            consumer.commitSync(offsets);
+        } else {
+            consumer.commitSync(offsets, timeout);
+        }
+    }
+
+    private long laneCancelTimeoutMills() {
+        final Duration timeout = remainingStopTime();
+        return timeout == null ? LANE_CANCEL_TIMEOUT_MILLS : Math.min(timeout.toMillis(), LANE_CANCEL_TIMEOUT_MILLS);
     }
 
     public void update(Long consumeInterval, Boolean shouldFail) {
+        update(consumeInterval, shouldFail, null);
+    }
+
+    /**
+     * Updates the behavior of the worker, leaving what's null unchanged.
+     */
+    public void update(Long consumeInterval, Boolean shouldFail, ProcessingCost cost) {
         if (consumeInterval != null) {
             this.consumeInterval = consumeInterval;
         }
         if (shouldFail != null) {
             this.shouldFail = shouldFail;
         }
+        if (cost != null) {
+            cost.validate();
+            this.cost = cost;
+        }
     }
 
     @Override
     public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
-        synchronized (assignedTopics) {
-            assignedTopics.clear();
+        // commit what we processed from the revoked partitions before the new owner starts from there
+        final Map<TopicPartition, OffsetAndMetadata> revoked = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            final PartitionLane<T> lane = lanes.remove(partition);
+            if (lane != null) {
+                lane.cancel(laneCancelTimeoutMills(), TimeUnit.MILLISECONDS);
+                collectLaneOffset(lane, pendingOffsets);
+            }
+            pausedPartitions.remove(partition);
+            final OffsetAndMetadata offset = pendingOffsets.remove(partition);
+            if (offset != null) {
+                revoked.put(partition, offset);
+            }
+        }
+        commitSync(revoked);
+        if (pendingOffsets.isEmpty()) {
+            pendingRecords = 0;
         }
+        // the cooperative protocol only revokes the partitions which move
+        assignedTopics.removeAll(partitions);
         logger.info("[{}] partitions revoked: {}", name,
                     partitions.stream()
                               .map(p -> String.format("%s-%d", p.topic(), p.partition()))
                               .collect(Collectors.joining(",")));
+        try {
+            listener.onPartitionsRevoked(this, partitions);
+        } catch (Exception e) {
+            logger.warn("[{}] Exception occur while notifying revoked partitions", name, e);
+        }
     }
 
     @Override
     public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
-        synchronized (assignedTopics) {
-            assignedTopics.addAll(partitions);
-        }
+        assignedTopics.addAll(partitions);
         logger.info("[{}] partitions assigned: {}", name,
                     partitions.stream()
                               .map(p -> String.format("%s-%d", p.topic(), p.partition()))
                               .collect(Collectors.joining(",")));
+        try {
+            listener.onPartitionsAssigned(this, partitions);
+        } catch (Exception e) {
+            logger.warn("[{}] Exception occur while notifying assigned partitions", name, e);
+        }
     }
 
     public Set<TopicPartition> getAssignedTopics() {
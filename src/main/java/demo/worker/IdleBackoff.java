@@ -0,0 +1,34 @@
+package demo.worker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delay before an idle worker polls again, doubling with every empty poll up to a cap, so that thousands of
+ * workers on an empty topic don't keep the {@link WorkerScheduler} busy. Not thread-safe, a worker only uses it
+ * from its runs.
+ */
+class IdleBackoff {
+
+    // delay after the first empty poll
+    static final long MIN_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+    // bounds how late an idle worker sees the first new record, or the rebalance it has to join
+    static final long MAX_NANOS = TimeUnit.MILLISECONDS.toNanos(250L);
+
+    private long nanos = MIN_NANOS;
+
+    /**
+     * Returns the delay after an empty poll and doubles the next one.
+     */
+    long next() {
+        final long delay = nanos;
+        nanos = Math.min(nanos * 2L, MAX_NANOS);
+        return delay;
+    }
+
+    /**
+     * Starts over from the minimum delay, once a poll brought records.
+     */
+    void reset() {
+        nanos = MIN_NANOS;
+    }
+}
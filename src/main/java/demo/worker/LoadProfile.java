@@ -0,0 +1,109 @@
+package demo.worker;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+
+import com.google.common.collect.ImmutableSet;
+
+import lombok.Data;
+
+/**
+ * Describes the shape of the records a {@link ProduceWorker} generates and how its producer batches and
+ * delivers them.
+ * <p>
+ * Bound from the query parameters of "POST /api/worker/producer/{name}/{topic}", e.g.
+ * "?payloadSize=512&payloadMaxSize=4096&keyCardinality=1000&keyDistribution=ZIPF&lingerMs=5".
+ * "idempotence=true" enables the idempotent producer, and "recordsPerTransaction=100" sends the records in
+ * transactions of that many records, the transactional id being the id of the worker.
+ */
+@Data
+public class LoadProfile {
+
+    // values of compression.type and acks the producer accepts
+    private static final Set<String> COMPRESSION_TYPES = ImmutableSet.of("none", "gzip", "snappy", "lz4", "zstd");
+    private static final Set<String> ACKS = ImmutableSet.of("all", "-1", "0", "1");
+
+    public enum KeyDistribution {
+        UNIFORM,
+        ZIPF
+    }
+
+    // payload size in bytes, or the lower bound when payloadMaxSize is greater than it
+    private int payloadSize = 16;
+    // upper bound of a random payload size, ignored unless greater than payloadSize
+    private int payloadMaxSize;
+    // number of distinct keys, 0 produces records with a null key
+    private int keyCardinality;
+    private KeyDistribution keyDistribution = KeyDistribution.UNIFORM;
+    // skew of the zipf distribution, the higher the hotter the first keys
+    private double zipfExponent = 1.0D;
+
+    // producer configs, the client defaults are used if null
+    private String compressionType;
+    private Integer batchSize;
+    private Integer lingerMs;
+    private String acks;
+    private Boolean idempotence;
+    // records per transaction, 0 sends the records without transactions
+    private int recordsPerTransaction;
+
+    /**
+     * Puts the serializers of the pre-encoded payloads of {@link PayloadGenerator#payloads()} and the producer
+     * configs which are set into the given properties, and the transactional id if the records are sent in
+     * transactions.
+     */
+    public void putProducerConfigs(Properties props, String transactionalId) {
+        props.put("key.serializer", ByteArraySerializer.class.getName());
+        props.put("value.serializer", ByteArraySerializer.class.getName());
+        if (compressionType != null) {
+            props.put("compression.type", compressionType);
+        }
+        if (batchSize != null) {
+            props.put("batch.size", batchSize);
+        }
+        if (lingerMs != null) {
+            props.put("linger.ms", lingerMs);
+        }
+        if (acks != null) {
+            props.put("acks", acks);
+        }
+        if (idempotence != null) {
+            props.put("enable.idempotence", idempotence);
+        }
+        if (isTransactional()) {
+            props.put("transactional.id", transactionalId);
+        }
+    }
+
+    public boolean isTransactional() {
+        return recordsPerTransaction > 0;
+    }
+
+    public boolean isRandomPayloadSize() {
+        return payloadMaxSize > payloadSize;
+    }
+
+    public void validate() {
+        checkArgument(payloadSize >= 0, "payloadSize must be greater than or equal to 0");
+        checkArgument(payloadMaxSize >= 0, "payloadMaxSize must be greater than or equal to 0");
+        checkArgument(keyCardinality >= 0, "keyCardinality must be greater than or equal to 0");
+        checkArgument(keyDistribution != null, "keyDistribution must not be null");
+        checkArgument(zipfExponent > 0D, "zipfExponent must be greater than 0");
+        checkArgument(compressionType == null || COMPRESSION_TYPES.contains(compressionType),
+                      "compressionType must be one of %s", COMPRESSION_TYPES);
+        checkArgument(acks == null || ACKS.contains(acks), "acks must be one of %s", ACKS);
+        checkArgument(batchSize == null || batchSize >= 0, "batchSize must be greater than or equal to 0");
+        checkArgument(lingerMs == null || lingerMs >= 0, "lingerMs must be greater than or equal to 0");
+        checkArgument(recordsPerTransaction >= 0, "recordsPerTransaction must be greater than or equal to 0");
+        // the client requires both with transactions
+        checkArgument(!isTransactional() || !Boolean.FALSE.equals(idempotence),
+                      "idempotence must not be disabled with transactions");
+        checkArgument(!isTransactional() && !Boolean.TRUE.equals(idempotence)
+                      || acks == null || "all".equals(acks) || "-1".equals(acks),
+                      "acks must be all with idempotence");
+    }
+}
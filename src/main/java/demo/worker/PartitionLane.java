@@ -0,0 +1,178 @@
+package demo.worker;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Processes the records of a single partition in order on the {@link WorkerScheduler}, independently of the
+ * other partitions of the same {@link ConsumeWorker}.
+ * <p>
+ * The polling thread enqueues records and collects the offset up to which the lane completed, while at most
+ * one drain task of the lane runs at a time. Like a run of its worker, a drain task yields its thread once it
+ * processed records for {@link ConsumeWorker#TIME_SLICE_NANOS}.
+ */
+@Slf4j
+class PartitionLane<T> {
+
+    private final TopicPartition partition;
+    private final ConsumeWorker<T> owner;
+    private final WorkerScheduler scheduler;
+    private final Queue<ConsumerRecord<T, T>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger completedRecords = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    // held while a record is processed, so that cancel() can wait for the record in progress
+    private final ReentrantLock processLock = new ReentrantLock();
+    private volatile boolean cancelled;
+    // next offset to commit, -1 until the first record completed
+    private volatile long completedOffset = -1L;
+    // only accessed by the polling thread
+    private long collectedOffset = -1L;
+    // only accessed by the drain task
+    private long lastProcessNanos;
+    private boolean waiting;
+    private long waitUntilNanos;
+
+    PartitionLane(TopicPartition partition, ConsumeWorker<T> owner, WorkerScheduler scheduler) {
+        this.partition = partition;
+        this.owner = owner;
+        this.scheduler = scheduler;
+        this.lastProcessNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1L);
+    }
+
+    TopicPartition getPartition() {
+        return partition;
+    }
+
+    /**
+     * Returns the number of records waiting in this lane.
+     */
+    int size() {
+        return size.get();
+    }
+
+    void enqueue(ConsumerRecord<T, T> record) {
+        queue.add(record);
+        size.incrementAndGet();
+    }
+
+    /**
+     * Starts draining the lane unless a drain task is already running or waiting.
+     */
+    void signal() {
+        if (!cancelled && scheduled.compareAndSet(false, true)) {
+            scheduler.execute(this::drain);
+        }
+    }
+
+    /**
+     * Returns the offset to commit if the lane completed records since the last call, otherwise -1.
+     */
+    long collectCompletedOffset() {
+        final long offset = completedOffset;
+        if (offset <= collectedOffset) {
+            return -1L;
+        }
+        collectedOffset = offset;
+        return offset;
+    }
+
+    /**
+     * Returns the number of records completed since the last call.
+     */
+    int collectCompletedRecords() {
+        return completedRecords.getAndSet(0);
+    }
+
+    /**
+     * Drops the records waiting in this lane and waits for the record in progress, so that
+     * {@link #collectCompletedOffset()} is final once this returns.
+     */
+    void cancel(long timeout, TimeUnit unit) {
+        cancelled = true;
+        try {
+            if (processLock.tryLock(timeout, unit)) {
+                processLock.unlock();
+            } else {
+                logger.warn("[{}] Timed out waiting for the lane of {} to complete", owner.getName(), partition);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        queue.clear();
+        size.set(0);
+    }
+
+    private void drain() {
+        final long allocatedBytes = ThreadAllocation.allocatedBytes();
+        try {
+            drainRecords();
+        } finally {
+            if (allocatedBytes >= 0L) {
+                owner.getMetrics().recordAllocatedBytes(ThreadAllocation.allocatedBytes() - allocatedBytes);
+            }
+        }
+    }
+
+    private void drainRecords() {
+        final long drainStartNanos = System.nanoTime();
+        while (true) {
+            ConsumerRecord<T, T> record;
+            while (!cancelled && (record = queue.peek()) != null) {
+                final long waitNanos = owner.consumeDelayNanos(lastProcessNanos);
+                if (waitNanos > 0L) {
+                    // keep the lane scheduled while waiting, so that signal() doesn't start another drain
+                    scheduler.schedule(this::drain, waitNanos, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                if (!waiting) {
+                    final long costNanos = owner.nextWaitNanos();
+                    waiting = costNanos > 0L;
+                    waitUntilNanos = System.nanoTime() + costNanos;
+                }
+                if (waiting) {
+                    final long costNanos = waitUntilNanos - System.nanoTime();
+                    if (costNanos > 0L) {
+                        scheduler.schedule(this::drain, costNanos, TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                    waiting = false;
+                }
+                processLock.lock();
+                try {
+                    if (cancelled) {
+                        return;
+                    }
+                    queue.poll();
+                    size.decrementAndGet();
+                    lastProcessNanos = System.nanoTime();
+                    if (owner.process(record)) {
+                        completedOffset = record.offset() + 1;
+                        completedRecords.incrementAndGet();
+                    }
+                } finally {
+                    processLock.unlock();
+                }
+                if (!queue.isEmpty() && System.nanoTime() - drainStartNanos >= ConsumeWorker.TIME_SLICE_NANOS) {
+                    // keep the lane scheduled, so that signal() doesn't start another drain
+                    scheduler.execute(this::drain);
+                    return;
+                }
+            }
+            scheduled.set(false);
+            // records may have been enqueued after the queue looked empty
+            if (cancelled || queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package demo.worker;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PartitionSummary {
+    private int partition;
+    private String group;
+    private String consumerName;
+}
@@ -0,0 +1,33 @@
+package demo.worker;
+
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+/**
+ * How consumers hand keys and values to the workers. Producers always send the byte arrays which the
+ * {@link PayloadGenerator} encoded once, the same bytes a string would be serialized into.
+ */
+public enum PayloadFormat {
+    // every consumed record is decoded into strings
+    STRING(StringSerializer.class.getName(), StringDeserializer.class.getName()),
+    // consumed records are checked without being decoded
+    BYTES(ByteArraySerializer.class.getName(), ByteArrayDeserializer.class.getName());
+
+    private final String serializer;
+    private final String deserializer;
+
+    PayloadFormat(String serializer, String deserializer) {
+        this.serializer = serializer;
+        this.deserializer = deserializer;
+    }
+
+    public String getSerializer() {
+        return serializer;
+    }
+
+    public String getDeserializer() {
+        return deserializer;
+    }
+}
@@ -0,0 +1,158 @@
+package demo.worker;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import demo.worker.LoadProfile.KeyDistribution;
+
+/**
+ * Hands out keys and payloads described by a {@link LoadProfile}.
+ * <p>
+ * Every key and payload is generated once up front and reused, so producing a record doesn't format or
+ * allocate a new message. {@link #bytes()} hands out the same keys and payloads as pooled byte arrays, encoded
+ * once, which is what {@link #payloads()} gives producers so that they don't serialize the same strings on every
+ * send.
+ */
+public class PayloadGenerator implements Payloads<String> {
+
+    // number of distinct payloads generated for a random payload size
+    private static final int RANDOM_PAYLOAD_POOL_SIZE = 64;
+    private static final char[] ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
+            .toCharArray();
+
+    private final LoadProfile profile;
+    private final String[] payloads;
+    private final String[] keys;
+    // cumulative probabilities of each key, only used for the zipf distribution
+    private final double[] keyCdf;
+    private final Payloads<byte[]> bytes;
+
+    public PayloadGenerator(LoadProfile profile) {
+        this.profile = checkNotNull(profile, "profile");
+        profile.validate();
+
+        final Random random = new Random();
+        if (profile.isRandomPayloadSize()) {
+            payloads = new String[RANDOM_PAYLOAD_POOL_SIZE];
+            for (int i = 0; i < payloads.length; i++) {
+                final int size = profile.getPayloadSize()
+                                 + random.nextInt(profile.getPayloadMaxSize() - profile.getPayloadSize() + 1);
+                payloads[i] = randomString(random, size);
+            }
+        } else {
+            payloads = new String[] { randomString(random, profile.getPayloadSize()) };
+        }
+
+        keys = new String[profile.getKeyCardinality()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = String.format("key-%d", i);
+        }
+        keyCdf = profile.getKeyDistribution() == KeyDistribution.ZIPF ? zipfCdf(keys.length,
+                                                                                profile.getZipfExponent())
+                                                                       : null;
+        bytes = new BytePayloads(encode(keys), encode(payloads));
+    }
+
+    @Override
+    public LoadProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Returns the keys and payloads a producer sends, pre-encoded whatever the {@link PayloadFormat} of the
+     * profile, see {@link LoadProfile#putProducerConfigs(java.util.Properties, String)}.
+     */
+    public Payloads<byte[]> payloads() {
+        return bytes;
+    }
+
+    /**
+     * Returns the keys and payloads of this generator encoded in UTF-8, every array being shared by every record
+     * which uses it, so it must not be modified.
+     */
+    public Payloads<byte[]> bytes() {
+        return bytes;
+    }
+
+    @Override
+    public String nextKey() {
+        return keys.length == 0 ? null : keys[nextKeyIndex()];
+    }
+
+    @Override
+    public String nextPayload() {
+        return payloads[nextPayloadIndex()];
+    }
+
+    private int nextKeyIndex() {
+        final double random = ThreadLocalRandom.current().nextDouble();
+        if (keyCdf == null) {
+            return (int) (random * keys.length);
+        }
+        final int idx = Arrays.binarySearch(keyCdf, random);
+        return Math.min(idx >= 0 ? idx : -idx - 1, keys.length - 1);
+    }
+
+    private int nextPayloadIndex() {
+        return payloads.length == 1 ? 0 : ThreadLocalRandom.current().nextInt(payloads.length);
+    }
+
+    private static byte[][] encode(String[] values) {
+        final byte[][] encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private static String randomString(Random random, int length) {
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return new String(chars);
+    }
+
+    private static double[] zipfCdf(int cardinality, double exponent) {
+        final double[] cdf = new double[cardinality];
+        double sum = 0D;
+        for (int i = 0; i < cardinality; i++) {
+            sum += 1D / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < cardinality; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private class BytePayloads implements Payloads<byte[]> {
+
+        private final byte[][] keyBytes;
+        private final byte[][] payloadBytes;
+
+        BytePayloads(byte[][] keyBytes, byte[][] payloadBytes) {
+            this.keyBytes = keyBytes;
+            this.payloadBytes = payloadBytes;
+        }
+
+        @Override
+        public LoadProfile getProfile() {
+            return profile;
+        }
+
+        @Override
+        public byte[] nextKey() {
+            return keyBytes.length == 0 ? null : keyBytes[nextKeyIndex()];
+        }
+
+        @Override
+        public byte[] nextPayload() {
+            return payloadBytes[nextPayloadIndex()];
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package demo.worker;
+
+/**
+ * Keys and payloads of the records a {@link ProduceWorker} sends, in the type its producer serializes.
+ */
+public interface Payloads<T> {
+
+    LoadProfile getProfile();
+
+    /**
+     * Returns the next record key, or null if the profile doesn't use keys.
+     */
+    T nextKey();
+
+    T nextPayload();
+}
@@ -0,0 +1,88 @@
+package demo.worker;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Data;
+
+/**
+ * Describes what processing a single record costs a {@link ConsumeWorker}, drawn for every record from a
+ * distribution of mean {@code costMills} and standard deviation {@code costStddevMills}.
+ * <p>
+ * {@link Mode#CPU} spins the processing thread for the cost, like a service which computes, and {@link Mode#WAIT}
+ * delays the record on the {@link WorkerScheduler} without holding a thread, like a service which waits on I/O.
+ * The log-normal distribution has the long tail of real services, a few records costing many times the mean.
+ * <p>
+ * Bound from the query parameters of "POST /api/worker/consumer/{name}/{topic}", e.g.
+ * "?costMills=2&costStddevMills=4&costDistribution=LOG_NORMAL&costMode=WAIT".
+ */
+@Data
+public class ProcessingCost {
+
+    public enum Distribution {
+        CONSTANT,
+        NORMAL,
+        LOG_NORMAL
+    }
+
+    public enum Mode {
+        CPU,
+        WAIT
+    }
+
+    // mean cost of a record, records cost nothing if 0
+    private double costMills;
+    // standard deviation of the cost, ignored by the constant distribution
+    private double costStddevMills;
+    private Distribution costDistribution = Distribution.CONSTANT;
+    private Mode costMode = Mode.CPU;
+
+    public boolean isEnabled() {
+        return costMills > 0D;
+    }
+
+    public boolean isWait() {
+        return isEnabled() && costMode == Mode.WAIT;
+    }
+
+    /**
+     * Returns the mean cost of a record in nanoseconds.
+     */
+    public long meanNanos() {
+        return (long) (costMills * TimeUnit.MILLISECONDS.toNanos(1L));
+    }
+
+    /**
+     * Draws the cost of the next record in nanoseconds, never negative.
+     */
+    public long nextNanos() {
+        if (!isEnabled()) {
+            return 0L;
+        }
+        final double nanosPerMill = TimeUnit.MILLISECONDS.toNanos(1L);
+        switch (costDistribution) {
+            case NORMAL:
+                final double normal = costMills + costStddevMills * ThreadLocalRandom.current().nextGaussian();
+                return (long) (Math.max(0D, normal) * nanosPerMill);
+            case LOG_NORMAL:
+                // parameters of the underlying normal distribution, so that the draws have the configured moments
+                final double variance = Math.log(1D + costStddevMills * costStddevMills / (costMills * costMills));
+                final double mu = Math.log(costMills) - variance / 2D;
+                final double logNormal = Math.exp(mu + Math.sqrt(variance) * ThreadLocalRandom.current()
+                                                                                              .nextGaussian());
+                return (long) (logNormal * nanosPerMill);
+            case CONSTANT:
+            default:
+                return meanNanos();
+        }
+    }
+
+    public void validate() {
+        checkArgument(costMills >= 0D, "costMills must be greater than or equal to 0");
+        checkArgument(costStddevMills >= 0D, "costStddevMills must be greater than or equal to 0");
+        checkArgument(costDistribution != null, "costDistribution must not be null");
+        checkArgument(costMode != null, "costMode must not be null");
+    }
+}
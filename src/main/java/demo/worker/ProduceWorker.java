@@ -1,46 +1,361 @@
 package demo.worker;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
-import org.apache.kafka.clients.producer.KafkaProducer;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.AuthorizationException;
+import org.apache.kafka.common.errors.OutOfOrderSequenceException;
+import org.apache.kafka.common.errors.ProducerFencedException;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Produces records to a topic in one of two modes.
+ * <ul>
+ *     <li>synchronous: keeps a single record in flight and sends the next one {@code intervalMills} after
+ *     the previous one, or as soon as the previous one was acknowledged if that takes longer</li>
+ *     <li>pipelined: keeps up to {@code maxInFlight} records in flight, completes them through callbacks
+ *     and paces sends to {@code rate} messages per second (0 means as fast as the in-flight limit allows)</li>
+ * </ul>
+ * Both modes only wait on timers of the {@link WorkerScheduler}, and a producer whose in-flight permits are all
+ * taken parks until an acknowledgement releases one. The rate of a pipelined producer can be changed while it
+ * runs, e.g. by a load scenario. Keys and payloads come from {@link Payloads}, usually the pooled byte arrays of
+ * {@link PayloadGenerator#payloads()}.
+ * <p>
+ * With {@code recordsPerTransaction} of its {@link LoadProfile}, records are sent in transactions which are
+ * committed once they hold that many records, or once they are open for a second. Committing flushes the
+ * producer and waits for the acknowledgements on the run's thread, which is the cost transactions are measured
+ * for, and its duration is recorded as the commit latency. Records are counted when acknowledged, including
+ * those of a transaction which is aborted later. A fenced producer stops sending.
+ */
 @Slf4j
-public class ProduceWorker extends AbstractWorker {
+public class ProduceWorker<T> extends AbstractWorker {
+
+    // how long to back off after the producer rejected a record
+    private static final long ERROR_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+    // how far the pacer may fall behind before it gives up catching up and resets its schedule
+    private static final long MAX_LAG_NANOS = TimeUnit.SECONDS.toNanos(1L);
+    // max records sent in a single run, so that a fast producer doesn't starve the other workers
+    private static final int MAX_SENDS_PER_RUN = 500;
+    // max time a paced or paused producer waits before it checks whether its rate was updated
+    private static final long RATE_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+    // max time a transaction stays open, so that a slow producer doesn't hold its records back
+    private static final long MAX_TRANSACTION_NANOS = TimeUnit.SECONDS.toNanos(1L);
 
-    private final KafkaProducer<String, String> producer;
+    private final Producer<T, T> producer;
     private final String topic;
-    private int processed;
+    private final Payloads<T> payloads;
+    private final boolean pipelined;
+    private volatile double rate;
+    private volatile boolean paused;
+    private final AtomicBoolean rateUpdated = new AtomicBoolean(false);
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private long nextSendNanos;
+    // 0 without transactions
+    private final int recordsPerTransaction;
+    // only accessed by the run in progress and onStop()
+    private boolean transactionsInitialized;
+    private boolean inTransaction;
+    private int transactionRecords;
+    private long transactionStartNanos;
+    private volatile boolean fenced;
 
-    public ProduceWorker(String name, long intervalMills, KafkaProducer<String, String> producer, String topic) {
-        super(name, intervalMills);
+    /**
+     * Creates a synchronous producer worker.
+     */
+    public ProduceWorker(String name, long intervalMills, Producer<T, T> producer, String topic,
+                         Payloads<T> payloads, WorkerMetrics metrics, WorkerScheduler scheduler) {
+        super(name, intervalMills, checkNotNull(metrics, "metrics"), checkNotNull(scheduler, "scheduler"));
         this.producer = checkNotNull(producer, "producer");
         this.topic = checkNotNull(topic, "topic");
+        this.payloads = checkNotNull(payloads, "payloads");
+        this.pipelined = false;
+        this.rate = 0D;
+        this.maxInFlight = 0;
+        this.inFlight = new Semaphore(1);
+        this.recordsPerTransaction = payloads.getProfile().getRecordsPerTransaction();
+    }
+
+    /**
+     * Creates a pipelined producer worker.
+     */
+    public ProduceWorker(String name, Producer<T, T> producer, String topic,
+                         Payloads<T> payloads, double rate, int maxInFlight,
+                         WorkerMetrics metrics, WorkerScheduler scheduler) {
+        super(name, 0L, checkNotNull(metrics, "metrics"), checkNotNull(scheduler, "scheduler"));
+        checkArgument(rate >= 0D, "rate must be greater than or equal to 0");
+        checkArgument(maxInFlight > 0, "maxInFlight must be greater than 0");
+        this.producer = checkNotNull(producer, "producer");
+        this.topic = checkNotNull(topic, "topic");
+        this.payloads = checkNotNull(payloads, "payloads");
+        this.pipelined = true;
+        this.rate = rate;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.recordsPerTransaction = payloads.getProfile().getRecordsPerTransaction();
     }
 
     @Override
-    protected void workInternal() {
+    public String getTopic() {
+        return topic;
+    }
+
+    public LoadProfile getLoadProfile() {
+        return payloads.getProfile();
+    }
+
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public boolean isTransactional() {
+        return recordsPerTransaction > 0;
+    }
+
+    public boolean isFenced() {
+        return fenced;
+    }
+
+    @Override
+    public WorkerState getState() {
+        final WorkerState state = super.getState();
+        return state == WorkerState.RUNNING && paused ? WorkerState.PAUSED : state;
+    }
+
+    /**
+     * Changes the rate of a pipelined producer while it runs. Unlike a rate of 0 at creation,
+     * which means as fast as possible, updating the rate to 0 pauses the producer until the next update.
+     */
+    public void updateRate(double rate) {
+        checkState(pipelined, "rate of a synchronous producer can't be updated");
+        checkArgument(rate >= 0D, "rate must be greater than or equal to 0");
+        if (rate > 0D) {
+            this.rate = rate;
+        }
+        paused = rate == 0D;
+        rateUpdated.set(true);
+    }
+
+    @Override
+    protected long workInternal() {
+        if (isTransactional()) {
+            if (fenced) {
+                return RATE_CHECK_NANOS;
+            }
+            if (!transactionsInitialized) {
+                try {
+                    // blocks until the transaction coordinator is found, and fences older producers of the same id
+                    producer.initTransactions();
+                    transactionsInitialized = true;
+                } catch (KafkaException e) {
+                    if (isFatal(e)) {
+                        onFatalError(e);
+                    } else {
+                        logger.warn("[{}] Exception occur while initializing transactions", name, e);
+                        metrics.recordError();
+                    }
+                    return ERROR_BACKOFF_NANOS;
+                }
+            }
+        }
+        final long delayNanos = pipelined ? sendPipelined() : sendSync();
+        if (inTransaction && System.nanoTime() - transactionStartNanos >= MAX_TRANSACTION_NANOS) {
+            commitTransaction();
+        }
+        return delayNanos;
+    }
+
+    /**
+     * Sends a record once the previous one was acknowledged.
+     */
+    private long sendSync() {
+        if (!inFlight.tryAcquire()) {
+            return PARK;
+        }
+        return send() ? intervalNanos() : Math.max(intervalNanos(), ERROR_BACKOFF_NANOS);
+    }
+
+    /**
+     * Sends every record that is due according to the target rate, bounded by the in-flight limit,
+     * and returns the time until the next record is due.
+     */
+    private long sendPipelined() {
+        if (paused) {
+            return RATE_CHECK_NANOS;
+        }
+        final double rate = this.rate;
+        final long now = System.nanoTime();
+        if (nextSendNanos == 0L || now - nextSendNanos > MAX_LAG_NANOS) {
+            nextSendNanos = now;
+        } else if (rateUpdated.getAndSet(false) && rate > 0D) {
+            // a higher rate brings the next send forward, a lower one applies from the next send on
+            nextSendNanos = Math.min(nextSendNanos, now + (long) (TimeUnit.SECONDS.toNanos(1L) / rate));
+        }
+        for (int sent = 0; sent < MAX_SENDS_PER_RUN; sent++) {
+            if (rate > 0D) {
+                final long waitNanos = nextSendNanos - System.nanoTime();
+                if (waitNanos > 0L) {
+                    return Math.min(waitNanos, RATE_CHECK_NANOS);
+                }
+            }
+            if (!inFlight.tryAcquire()) {
+                return PARK;
+            }
+            if (!send()) {
+                return ERROR_BACKOFF_NANOS;
+            }
+            if (rate > 0D) {
+                nextSendNanos += (long) (TimeUnit.SECONDS.toNanos(1L) / rate);
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Sends a record holding an in-flight permit, which is released once the record completes.
+     */
+    private boolean send() {
         try {
-            final ProducerRecord<String, String> data = new ProducerRecord<>(topic,
-                                                                             String.format("Message-%d", processed));
-            final RecordMetadata metadata = producer.send(data).get();
-            processed++;
-            if (processed % 100 == 0) {
-                logger.debug("Success to produce record. topic: {} / partition: {} / offset: {}",
-                             metadata.topic(),
-                             metadata.partition(),
-                             metadata.offset());
+            final long sentNanos = System.nanoTime();
+            if (isTransactional() && !inTransaction) {
+                producer.beginTransaction();
+                inTransaction = true;
+                transactionStartNanos = sentNanos;
+            }
+            producer.send(nextRecord(), (metadata, exception) -> {
+                inFlight.release();
+                wakeUp();
+                if (exception != null) {
+                    logger.error("Exception occur while producing records", exception);
+                    metrics.recordError();
+                    return;
+                }
+                onAcknowledged(metadata, sentNanos);
+            });
+            if (inTransaction && ++transactionRecords >= recordsPerTransaction) {
+                commitTransaction();
             }
+            return true;
         } catch (Exception e) {
+            inFlight.release();
+            if (isTransactional() && isFatal(e)) {
+                onFatalError((KafkaException) e);
+                return false;
+            }
             logger.error("Exception occur while producing records", e);
+            metrics.recordError();
+            if (inTransaction) {
+                abortTransaction();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Commits the open transaction, or aborts it if the commit fails.
+     */
+    private void commitTransaction() {
+        final long commitNanos = System.nanoTime();
+        try {
+            producer.commitTransaction();
+            metrics.recordCommitLatency(System.nanoTime() - commitNanos);
+            metrics.recordCommit();
+            inTransaction = false;
+            transactionRecords = 0;
+        } catch (ProducerFencedException | OutOfOrderSequenceException | AuthorizationException e) {
+            onFatalError(e);
+        } catch (KafkaException e) {
+            logger.warn("[{}] Exception occur while committing a transaction of {} records, aborting it",
+                        name, transactionRecords, e);
+            metrics.recordError();
+            abortTransaction();
+        }
+    }
+
+    private void abortTransaction() {
+        inTransaction = false;
+        transactionRecords = 0;
+        try {
+            producer.abortTransaction();
+        } catch (ProducerFencedException | OutOfOrderSequenceException | AuthorizationException e) {
+            onFatalError(e);
+        } catch (KafkaException e) {
+            logger.warn("[{}] Exception occur while aborting a transaction", name, e);
+        }
+    }
+
+    /**
+     * Returns whether a transactional producer can't recover from the exception and must be closed.
+     */
+    static boolean isFatal(Exception e) {
+        return e instanceof ProducerFencedException || e instanceof OutOfOrderSequenceException
+               || e instanceof AuthorizationException;
+    }
+
+    /**
+     * Stops sending after an error which the producer can't recover from, such as another producer with the same
+     * transactional id.
+     */
+    private void onFatalError(KafkaException e) {
+        logger.error("[{}] Exception occur while producing records in a transaction, stop sending", name, e);
+        metrics.recordError();
+        inTransaction = false;
+        transactionRecords = 0;
+        fenced = true;
+    }
+
+    private ProducerRecord<T, T> nextRecord() {
+        return new ProducerRecord<>(topic, payloads.nextKey(), payloads.nextPayload());
+    }
+
+    private void onAcknowledged(RecordMetadata metadata, long sentNanos) {
+        metrics.recordSendLatency(System.nanoTime() - sentNanos);
+        metrics.recordRecords(1L);
+        metrics.recordBytes(metadata.serializedKeySize(), metadata.serializedValueSize());
+        if (metrics.getTotalRecords() % 100 == 0) {
+            logger.debug("Success to produce record. topic: {} / partition: {} / offset: {}",
+                         metadata.topic(),
+                         metadata.partition(),
+                         metadata.offset());
         }
     }
 
     @Override
     protected void onStop() {
-        producer.close();
+        // close() flushes and waits for records in flight, so every callback completes before we return,
+        // unless the stop deadline passes first. a producer of the ProducerPool is flushed without a deadline
+        // and only closed once its last worker stopped
+        if (inTransaction && !fenced) {
+            commitTransaction();
+        }
+        final Duration timeout = remainingStopTime();
+        if (timeout == null) {
+            producer.close();
+        } else {
+            producer.close(timeout);
+        }
     }
 }
@@ -0,0 +1,201 @@
+package demo.worker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.stereotype.Component;
+
+import com.google.common.hash.Hashing;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shares a single {@link KafkaProducer} between the producer workers of the same cluster, topic and configs,
+ * instead of a producer with its own buffer, metadata and sender thread per worker.
+ * <p>
+ * Each worker gets its own lease. Closing a lease flushes the shared producer, so the records of the worker
+ * complete before it stops, and the producer is closed once its last lease is closed.
+ */
+@Slf4j
+@Component
+public class ProducerPool {
+
+    private final Map<String, PooledProducer<?>> producers = new HashMap<>();
+
+    @PreDestroy
+    public void tearDown() {
+        final List<PooledProducer<?>> remaining;
+        synchronized (producers) {
+            remaining = new ArrayList<>(producers.values());
+            producers.clear();
+        }
+        for (PooledProducer<?> pooled : remaining) {
+            logger.info("Close a pooled producer with {} leases. cluster: {} / topic: {}",
+                        pooled.leases, pooled.cluster, pooled.topic);
+            pooled.producer.close();
+        }
+    }
+
+    /**
+     * Returns a lease of the shared producer of the given cluster, topic and configs, creating the producer if
+     * needed. Keys and values are of the type the serializers of the configs take.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Producer<T, T> acquire(String cluster, String topic, Properties props) {
+        // the configs of the cluster may hold credentials, so the key only holds a hash of them. The serializers
+        // are part of the hash, so the producers of the same key take the same type
+        final String key = cluster + '/' + topic + '/' + Hashing.sha256().hashUnencodedChars(
+                new TreeMap<>(props).toString());
+        synchronized (producers) {
+            final PooledProducer<T> pooled = (PooledProducer<T>) producers.computeIfAbsent(
+                    key, k -> new PooledProducer<>(k, cluster, topic, new KafkaProducer<T, T>(props)));
+            pooled.leases++;
+            return new Lease<>(pooled);
+        }
+    }
+
+    /**
+     * Returns the number of shared producers.
+     */
+    public int size() {
+        synchronized (producers) {
+            return producers.size();
+        }
+    }
+
+    private void release(PooledProducer<?> pooled) {
+        synchronized (producers) {
+            if (--pooled.leases > 0 || producers.get(pooled.key) != pooled) {
+                return;
+            }
+            producers.remove(pooled.key);
+        }
+        logger.info("Close a pooled producer without leases. cluster: {} / topic: {}", pooled.cluster, pooled.topic);
+        pooled.producer.close();
+    }
+
+    private static class PooledProducer<T> {
+        private final String key;
+        private final String cluster;
+        private final String topic;
+        private final KafkaProducer<T, T> producer;
+        // guarded by the producers map
+        private int leases;
+
+        private PooledProducer(String key, String cluster, String topic, KafkaProducer<T, T> producer) {
+            this.key = key;
+            this.cluster = cluster;
+            this.topic = topic;
+            this.producer = producer;
+        }
+    }
+
+    /**
+     * Producer handed out to a single worker. Transactions are not supported, since they would span the
+     * records of every worker sharing the producer.
+     */
+    private class Lease<T> implements Producer<T, T> {
+
+        private final PooledProducer<T> pooled;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        private Lease(PooledProducer<T> pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Future<RecordMetadata> send(ProducerRecord<T, T> record) {
+            return pooled.producer.send(record);
+        }
+
+        @Override
+        public Future<RecordMetadata> send(ProducerRecord<T, T> record, Callback callback) {
+            return pooled.producer.send(record, callback);
+        }
+
+        @Override
+        public void flush() {
+            pooled.producer.flush();
+        }
+
+        @Override
+        public List<PartitionInfo> partitionsFor(String topic) {
+            return pooled.producer.partitionsFor(topic);
+        }
+
+        @Override
+        public Map<MetricName, ? extends Metric> metrics() {
+            return pooled.producer.metrics();
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                pooled.producer.flush();
+            } finally {
+                release(pooled);
+            }
+        }
+
+        @Override
+        public void close(Duration timeout) {
+            close();
+        }
+
+        @Override
+        public void initTransactions() {
+            throw new UnsupportedOperationException("Transactions are not supported by a pooled producer");
+        }
+
+        @Override
+        public void beginTransaction() {
+            throw new UnsupportedOperationException("Transactions are not supported by a pooled producer");
+        }
+
+        @Override
+        @Deprecated
+        public void sendOffsetsToTransaction(Map<TopicPartition, OffsetAndMetadata> offsets,
+                                             String consumerGroupId) {
+            throw new UnsupportedOperationException("Transactions are not supported by a pooled producer");
+        }
+
+        @Override
+        public void sendOffsetsToTransaction(Map<TopicPartition, OffsetAndMetadata> offsets,
+                                             ConsumerGroupMetadata groupMetadata) {
+            throw new UnsupportedOperationException("Transactions are not supported by a pooled producer");
+        }
+
+        @Override
+        public void commitTransaction() {
+            throw new UnsupportedOperationException("Transactions are not supported by a pooled producer");
+        }
+
+        @Override
+        public void abortTransaction() {
+            throw new UnsupportedOperationException("Transactions are not supported by a pooled producer");
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package demo.worker;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stops many workers under a single deadline.
+ * <p>
+ * Every worker is signaled at once, which wakes up consumers blocked in a call, so that workers flush their
+ * producer and commit their offsets in parallel on the {@link WorkerScheduler} instead of one after another.
+ * Their final flush and commit are bounded by the remaining time, and the workers which didn't terminate by
+ * the deadline are reported instead of being waited for.
+ */
+@Slf4j
+@Component
+public class ShutdownCoordinator {
+
+    private final Duration timeout;
+
+    public ShutdownCoordinator(@Value("${demo.worker.shutdown-timeout-mills:20000}") long timeoutMills) {
+        checkArgument(timeoutMills >= 0L, "shutdown-timeout-mills must be greater than or equal to 0");
+        this.timeout = Duration.ofMillis(timeoutMills);
+    }
+
+    /**
+     * Stops the workers by id and waits for them until the configured timeout elapses.
+     */
+    public ShutdownReport shutdown(Map<String, AbstractWorker> workers) {
+        return shutdown(workers, timeout);
+    }
+
+    /**
+     * Stops the workers by id and waits for them until the timeout elapses.
+     */
+    public ShutdownReport shutdown(Map<String, AbstractWorker> workers, Duration timeout) {
+        checkArgument(!timeout.isNegative(), "timeout must not be negative");
+        final long startNanos = System.nanoTime();
+        final long deadlineNanos = startNanos + timeout.toNanos();
+
+        final List<Entry<String, AbstractWorker>> signaled = new ArrayList<>(workers.size());
+        for (Entry<String, AbstractWorker> entry : workers.entrySet()) {
+            try {
+                if (entry.getValue().signalStop(deadlineNanos)) {
+                    signaled.add(entry);
+                }
+            } catch (Exception e) {
+                logger.warn("[{}] Exception occur while signaling stop", entry.getKey(), e);
+            }
+        }
+
+        int stopped = 0;
+        final List<String> missed = new ArrayList<>();
+        boolean interrupted = false;
+        for (Entry<String, AbstractWorker> entry : signaled) {
+            try {
+                if (!interrupted
+                    && entry.getValue().awaitTermination(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    stopped++;
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                logger.warn("InterruptedException exception occur while waiting for workers to stop", e);
+                interrupted = true;
+            }
+            missed.add(entry.getKey());
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        final ShutdownReport report = ShutdownReport.builder()
+                                                    .workers(signaled.size())
+                                                    .stopped(stopped)
+                                                    .missed(missed)
+                                                    .timeoutMills(timeout.toMillis())
+                                                    .elapsedMills(TimeUnit.NANOSECONDS.toMillis(
+                                                            System.nanoTime() - startNanos))
+                                                    .build();
+        if (missed.isEmpty()) {
+            logger.info("Stopped workers #{} in {}[ms]", stopped, report.getElapsedMills());
+        } else {
+            logger.warn("Workers #{} missed the shutdown deadline of {}[ms]: {}", missed.size(),
+                        report.getTimeoutMills(), missed);
+        }
+        return report;
+    }
+}
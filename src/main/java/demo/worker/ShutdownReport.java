@@ -0,0 +1,24 @@
+package demo.worker;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of stopping workers through the {@link ShutdownCoordinator}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShutdownReport {
+    private int workers;
+    private int stopped;
+    // ids of the workers which didn't terminate before the deadline
+    private List<String> missed;
+    private long timeoutMills;
+    private long elapsedMills;
+}
@@ -0,0 +1,84 @@
+package demo.worker;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts events in one second buckets and reports the average rate over the last completed seconds.
+ * <p>
+ * Recording is a compare-and-set on a fixed array, so it can be called from worker threads and client callbacks
+ * on every record. A bucket packs its second into the high and its count into the low 32 bits, so that claiming
+ * a bucket for a new second and counting into it is a single atomic step and no concurrent add is lost.
+ */
+public class ThroughputMeter {
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final LongSupplier nanoClock;
+    private final long startNanos;
+    private final int windowSeconds;
+    // second << 32 | count
+    private final AtomicLongArray buckets;
+
+    public ThroughputMeter(int windowSeconds) {
+        this(windowSeconds, System::nanoTime);
+    }
+
+    ThroughputMeter(int windowSeconds, LongSupplier nanoClock) {
+        checkArgument(windowSeconds > 0, "windowSeconds must be greater than 0");
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+        this.windowSeconds = windowSeconds;
+        // one more bucket for the second being recorded
+        this.buckets = new AtomicLongArray(windowSeconds + 1);
+    }
+
+    public void record(long count) {
+        final long second = currentSecond();
+        final int idx = (int) (second % buckets.length());
+        while (true) {
+            final long bucket = buckets.get(idx);
+            final long bucketSecond = bucket >>> 32;
+            final long next;
+            if (bucketSecond == second) {
+                // saturates rather than overflowing into the second
+                next = (second << 32) | Math.min((bucket & COUNT_MASK) + count, COUNT_MASK);
+            } else if (bucketSecond < second) {
+                next = (second << 32) | Math.min(count, COUNT_MASK);
+            } else {
+                // recorded too late, the bucket already counts a later second
+                return;
+            }
+            if (buckets.compareAndSet(idx, bucket, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the average events per second over the last {@code lastSeconds} completed seconds.
+     */
+    public double rate(int lastSeconds) {
+        checkArgument(lastSeconds > 0 && lastSeconds <= windowSeconds,
+                      "lastSeconds must be between 1 and %s", windowSeconds);
+        final long current = currentSecond();
+        long sum = 0L;
+        for (long second = current - lastSeconds; second < current; second++) {
+            if (second < 0L) {
+                continue;
+            }
+            final long bucket = buckets.get((int) (second % buckets.length()));
+            if (bucket >>> 32 == second) {
+                sum += bucket & COUNT_MASK;
+            }
+        }
+        return (double) sum / lastSeconds;
+    }
+
+    private long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(nanoClock.getAsLong() - startNanos);
+    }
+}
@@ -0,0 +1,20 @@
+package demo.worker;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Owners of the partitions of a topic, ordered by partition and group.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TopicSummary {
+    private String topic;
+    private List<PartitionSummary> partitions;
+}
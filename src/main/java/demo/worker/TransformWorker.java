@@ -0,0 +1,210 @@
+package demo.worker;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Copies the records of a topic to an output topic exactly once: the records of a poll are sent and their offsets
+ * committed in a single transaction through {@code sendOffsetsToTransaction}, so that a record is either both
+ * copied and consumed, or neither.
+ * <p>
+ * The consumer must read committed records only and never commit by itself, and the producer must have a
+ * transactional id. A transaction holds the records of a single poll, so {@code max.poll.records} sizes it.
+ * Committing waits for the acknowledgements of the transaction on the run's thread, and the time from sending the
+ * offsets to the end of the commit is recorded as the commit latency. Records are counted once their transaction
+ * committed.
+ * <p>
+ * An aborted transaction rewinds the consumer to the first record of its poll, so that the records are copied
+ * again by the next run. A fenced worker stops copying.
+ */
+@Slf4j
+public class TransformWorker<T> extends AbstractWorker {
+
+    // how long to back off after a transaction failed
+    private static final long ERROR_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    private final Consumer<T, T> consumer;
+    private final Producer<T, T> producer;
+    private final String topic;
+    private final String outputTopic;
+    private final String groupId;
+    // only accessed by the run in progress
+    private boolean transactionsInitialized;
+    private final IdleBackoff idleBackoff = new IdleBackoff();
+    private volatile boolean fenced;
+    // whether a run is in progress, so that a stop signal only wakes up a consumer which is in use
+    private volatile boolean working;
+
+    public TransformWorker(String name, Consumer<T, T> consumer, Producer<T, T> producer, String topic,
+                           String outputTopic, String groupId, WorkerMetrics metrics, WorkerScheduler scheduler) {
+        super(checkNotNull(name, "name"), 0L, checkNotNull(metrics, "metrics"),
+              checkNotNull(scheduler, "scheduler"));
+        this.consumer = checkNotNull(consumer, "consumer");
+        this.producer = checkNotNull(producer, "producer");
+        this.topic = checkNotNull(topic, "topic");
+        this.outputTopic = checkNotNull(outputTopic, "outputTopic");
+        this.groupId = checkNotNull(groupId, "groupId");
+        checkArgument(!topic.equals(outputTopic), "outputTopic must not be the consumed topic");
+    }
+
+    @Override
+    public String getTopic() {
+        return topic;
+    }
+
+    public String getOutputTopic() {
+        return outputTopic;
+    }
+
+    @Override
+    public String getGroup() {
+        return groupId;
+    }
+
+    public boolean isFenced() {
+        return fenced;
+    }
+
+    @Override
+    protected long workInternal() {
+        if (fenced) {
+            return ERROR_BACKOFF_NANOS;
+        }
+        working = true;
+        try {
+            if (!transactionsInitialized && !initTransactions()) {
+                return ERROR_BACKOFF_NANOS;
+            }
+            final long pollNanos = System.nanoTime();
+            final ConsumerRecords<T, T> records = consumer.poll(Duration.ZERO);
+            metrics.recordPollLatency(System.nanoTime() - pollNanos);
+            if (records.isEmpty()) {
+                return idleBackoff.next();
+            }
+            idleBackoff.reset();
+            return transform(records) ? 0L : ERROR_BACKOFF_NANOS;
+        } catch (WakeupException e) {
+            if (isRunning()) {
+                throw e;
+            }
+            return 0L;
+        } finally {
+            working = false;
+        }
+    }
+
+    @Override
+    protected void onStopSignal() {
+        if (working) {
+            consumer.wakeup();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        // a transaction never outlives its run, so there is nothing to commit
+        final Duration timeout = remainingStopTime();
+        try {
+            if (timeout == null) {
+                consumer.close();
+            } else {
+                consumer.close(timeout);
+            }
+        } catch (Exception e) {
+            logger.warn("[{}] Exception occur while closing consumer", name, e);
+        }
+        if (timeout == null) {
+            producer.close();
+        } else {
+            producer.close(remainingStopTime());
+        }
+    }
+
+    private boolean initTransactions() {
+        try {
+            // blocks until the transaction coordinator is found, and fences older producers of the same id
+            producer.initTransactions();
+            transactionsInitialized = true;
+            return true;
+        } catch (KafkaException e) {
+            onTransactionError(e, "initializing transactions");
+            return false;
+        }
+    }
+
+    /**
+     * Copies the records and commits their offsets in a transaction, and returns whether it committed.
+     */
+    private boolean transform(ConsumerRecords<T, T> records) {
+        final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        try {
+            producer.beginTransaction();
+            for (ConsumerRecord<T, T> record : records) {
+                producer.send(new ProducerRecord<>(outputTopic, record.key(), record.value()));
+                offsets.put(new TopicPartition(record.topic(), record.partition()),
+                            new OffsetAndMetadata(record.offset() + 1));
+            }
+            final long commitNanos = System.nanoTime();
+            producer.sendOffsetsToTransaction(offsets, consumer.groupMetadata());
+            producer.commitTransaction();
+            metrics.recordCommitLatency(System.nanoTime() - commitNanos);
+        } catch (KafkaException e) {
+            onTransactionError(e, String.format("copying %d records", records.count()));
+            if (!fenced) {
+                abortTransaction();
+                rewind(records);
+            }
+            return false;
+        }
+        metrics.recordCommit();
+        metrics.recordRecords(records.count());
+        for (ConsumerRecord<T, T> record : records) {
+            metrics.recordBytes(record.serializedKeySize(), record.serializedValueSize());
+        }
+        return true;
+    }
+
+    private void abortTransaction() {
+        try {
+            producer.abortTransaction();
+        } catch (KafkaException e) {
+            onTransactionError(e, "aborting a transaction");
+        }
+    }
+
+    /**
+     * Seeks every partition of the records back to its first record, so that the next poll returns them again.
+     */
+    private void rewind(ConsumerRecords<T, T> records) {
+        for (TopicPartition partition : records.partitions()) {
+            consumer.seek(partition, records.records(partition).get(0).offset());
+        }
+    }
+
+    private void onTransactionError(KafkaException e, String action) {
+        metrics.recordError();
+        if (ProduceWorker.isFatal(e)) {
+            logger.error("[{}] Exception occur while {}, stop copying", name, action, e);
+            fenced = true;
+            return;
+        }
+        logger.warn("[{}] Exception occur while {}", name, action, e);
+    }
+}
@@ -1,23 +1,30 @@
 package demo.worker;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import javax.annotation.PreDestroy;
 
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
-import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.apache.kafka.clients.producer.Producer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -30,6 +37,12 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import demo.cluster.ClusterRegistry;
+import demo.cluster.KafkaCluster;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -44,58 +57,172 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class WorkerController {
 
-    private final KafkaProperties kafkaProperties;
-    private final Map<String, AbstractWorker> workers = new ConcurrentHashMap<>();
+    // how many workers of a bulk request are created or stopped at once
+    private static final int FLEET_PARALLELISM = 16;
+    // most workers a bulk request creates, each of them owns a client and its network thread
+    private static final int MAX_FLEET_SIZE = 1000;
+
+    private final ClusterRegistry clusterRegistry;
+    private final MeterRegistry meterRegistry;
+    private final WorkerScheduler workerScheduler;
+    private final ProducerPool producerPool;
+    private final WorkerRegistry workers;
+    private final List<WorkerListener> workerListeners;
+    private final AssignmentIndex assignmentIndex;
+    private final ShutdownCoordinator shutdownCoordinator;
+    private final ExecutorService fleetExecutor = Executors.newFixedThreadPool(
+            FLEET_PARALLELISM, new ThreadFactoryBuilder().setNameFormat("worker-fleet-%d").setDaemon(true).build());
 
     @PreDestroy
     public void tearDown() {
         logger.info("Try to shutdown workers #{}", workers.size());
-        for (Entry<String, AbstractWorker> entry : workers.entrySet()) {
-            entry.getValue().stop();
-        }
+        fleetExecutor.shutdownNow();
+        shutdownCoordinator.shutdown(workers.getWorkers());
     }
 
     /**
-     * Handle "POST /api/worker/producer/{name}/{topic}?interval=500" to create a new producer
+     * Handle "GET /api/worker?type=consumer&topic=topic1&cluster=default" to list the workers by id with their
+     * state, counters and rates, read from the workers' counters without touching their threads.
+     */
+    @GetMapping
+    public ResponseEntity<List<WorkerSnapshot>> getWorkers(@RequestParam(value = "type", required = false)
+                                                                   String type,
+                                                           @RequestParam(value = "topic", required = false)
+                                                                   String topic,
+                                                           @RequestParam(value = "cluster", required = false)
+                                                                   String cluster) {
+        return ResponseEntity.ok(workers.getWorkers()
+                                        .values()
+                                        .stream()
+                                        .filter(w -> topic == null || topic.equals(w.getTopic()))
+                                        .filter(w -> cluster == null || cluster.equals(w.getCluster()))
+                                        .map(AbstractWorker::snapshot)
+                                        .filter(w -> type == null || type.equals(w.getType()))
+                                        .sorted(Comparator.comparing(WorkerSnapshot::getId))
+                                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Handle "POST /api/worker/producer/{name}/{topic}?interval=500" to create a new synchronous producer or
+     * "POST /api/worker/producer/{name}/{topic}?rate=1000&maxInFlight=100" to create a new pipelined producer.
+     * The records and producer configs are shaped by {@link LoadProfile} parameters such as
+     * "payloadSize=512&keyCardinality=1000&keyDistribution=ZIPF&lingerMs=5", and the payloads are sent as pooled
+     * byte arrays encoded once. "idempotence=true" enables the idempotent producer and
+     * "recordsPerTransaction=100" sends the records in transactions of 100 records.
+     * With "shared=true" the producer is shared with other workers of the same topic and configs, unless it is
+     * transactional. "cluster=name" runs the producer against a cluster of {@link ClusterRegistry} instead of the
+     * default one. Ids don't include the cluster, so a name and topic taken on a cluster are taken on all of them.
      */
     @PostMapping("/producer/{name}/{topic}")
     public ResponseEntity<CommandResult> startProducer(@PathVariable("name") String name,
                                                        @PathVariable("topic") String topic,
-                                                       @RequestParam("interval") long interval) {
-
-        logger.info("Try to start a new producer. name: {} / topic: {} / interval: {}[ms]", name, topic, interval);
-
-        final String id = convertId(name, topic);
-        final KafkaProducer<String, String> producer = new KafkaProducer<>(createProducerProps());
-        final ProduceWorker worker = new ProduceWorker(name, interval, producer, topic);
+                                                       @RequestParam(value = "interval", required = false,
+                                                               defaultValue = "0") long interval,
+                                                       @RequestParam(value = "rate", required = false,
+                                                               defaultValue = "0") double rate,
+                                                       @RequestParam(value = "maxInFlight", required = false,
+                                                               defaultValue = "0") int maxInFlight,
+                                                       @RequestParam(value = "shared", required = false,
+                                                               defaultValue = "false") boolean shared,
+                                                       @RequestParam(value = "cluster", required = false)
+                                                               String cluster,
+                                                       LoadProfile loadProfile) {
+
+        logger.info("Try to start a new producer. name: {} / topic: {} / interval: {}[ms] / rate: {}[msg/s] / "
+                    + "maxInFlight: {} / shared: {} / cluster: {} / loadProfile: {}",
+                    name, topic, interval, rate, maxInFlight, shared, cluster, loadProfile);
+
+        final KafkaCluster kafkaCluster;
+        final Payloads<?> payloads;
+        try {
+            kafkaCluster = clusterRegistry.resolve(cluster);
+            payloads = createPayloads(rate, maxInFlight, shared, loadProfile);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid producer parameters. reason: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
 
-        if (workers.putIfAbsent(id, worker) != null) {
+        final ProduceWorker<?> worker = startProducerWorker(kafkaCluster, name, topic, interval, rate, maxInFlight,
+                                                            shared, payloads);
+        if (worker == null) {
             return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
 
-        worker.start();
-
         return ResponseEntity.ok(CommandResult.builder()
                                               .status("created")
-                                              .name(id)
+                                              .name(convertId(name, topic))
                                               .topic(topic)
+                                              .cluster(kafkaCluster.getName())
                                               .metadata(ImmutableMap.<String, Object>builder()
-                                                                    .put("interval", interval)
+                                                                    .put("interval", worker.getIntervalMills())
+                                                                    .put("pipelined", worker.isPipelined())
+                                                                    .put("rate", worker.getRate())
+                                                                    .put("maxInFlight", worker.getMaxInFlight())
+                                                                    .put("shared", shared)
+                                                                    .put("transactional", worker.isTransactional())
+                                                                    .put("loadProfile", worker.getLoadProfile())
                                                                     .build())
                                               .build());
     }
 
     /**
-     * Handle "DELETE /api/worker/producer/{name}/{topic}" to terminate the producer.
+     * Handle "POST /api/worker/producers/{topic}?prefix=producer-&count=100&rate=10&shared=true" to create
+     * producers "producer-1" to "producer-100" in parallel. Takes the same parameters as a single producer,
+     * and "from" to number the producers from another index. At most 1000 producers are created by a request.
+     */
+    @PostMapping("/producers/{topic}")
+    public ResponseEntity<FleetResult> startProducers(@PathVariable("topic") String topic,
+                                                      @RequestParam("prefix") String prefix,
+                                                      @RequestParam("count") int count,
+                                                      @RequestParam(value = "from", required = false,
+                                                              defaultValue = "1") int from,
+                                                      @RequestParam(value = "interval", required = false,
+                                                              defaultValue = "0") long interval,
+                                                      @RequestParam(value = "rate", required = false,
+                                                              defaultValue = "0") double rate,
+                                                      @RequestParam(value = "maxInFlight", required = false,
+                                                              defaultValue = "0") int maxInFlight,
+                                                      @RequestParam(value = "shared", required = false,
+                                                              defaultValue = "false") boolean shared,
+                                                      @RequestParam(value = "cluster", required = false)
+                                                              String cluster,
+                                                      LoadProfile loadProfile) {
+
+        logger.info("Try to start producers. prefix: {} / count: {} / topic: {} / interval: {}[ms] / "
+                    + "rate: {}[msg/s] / maxInFlight: {} / shared: {} / cluster: {} / loadProfile: {}",
+                    prefix, count, topic, interval, rate, maxInFlight, shared, cluster, loadProfile);
+
+        // the generator is thread-safe, so the whole fleet shares its payloads
+        final KafkaCluster kafkaCluster;
+        final Payloads<?> payloads;
+        try {
+            checkArgument(count > 0 && count <= MAX_FLEET_SIZE, "count must be between 1 and %s", MAX_FLEET_SIZE);
+            kafkaCluster = clusterRegistry.resolve(cluster);
+            payloads = createPayloads(rate, maxInFlight, shared, loadProfile);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid producer parameters. reason: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(runFleet("created", topic, kafkaCluster.getName(), fleetNames(prefix, from, count),
+                                          name -> startProducerWorker(kafkaCluster, name, topic, interval, rate,
+                                                                      maxInFlight, shared, payloads) != null));
+    }
+
+    /**
+     * Handle "DELETE /api/worker/producer/{name}/{topic}" to terminate the producer, only if it runs against "cluster"
+     * when it's given.
      */
     @DeleteMapping("/producer/{name}/{topic}")
     public ResponseEntity<CommandResult> stopProducer(@PathVariable("name") String name,
-                                                      @PathVariable("topic") String topic) {
-        logger.info("Try to stop a producer. name: {} / topic: {}", name, topic);
+                                                      @PathVariable("topic") String topic,
+                                                      @RequestParam(value = "cluster", required = false)
+                                                              String cluster) {
+        logger.info("Try to stop a producer. name: {} / topic: {} / cluster: {}", name, topic, cluster);
 
         final String id = convertId(name, topic);
         final AbstractWorker worker = workers.get(id);
-        if (!(worker instanceof ProduceWorker)) {
+        if (!(worker instanceof ProduceWorker) || !inCluster(worker, cluster)) {
             return ResponseEntity.notFound().build();
         }
 
@@ -106,49 +233,168 @@ public class WorkerController {
                                               .status("deleted")
                                               .name(id)
                                               .topic(topic)
+                                              .cluster(worker.getCluster())
                                               .build());
     }
 
+    /**
+     * Handle "DELETE /api/worker/producers?namePattern=producer-.*&topic=topic1&cluster=default" to terminate
+     * the producers whose name matches the pattern in parallel. Without parameters, every producer is terminated.
+     */
+    @DeleteMapping("/producers")
+    public ResponseEntity<FleetResult> stopProducers(@RequestParam(value = "namePattern", required = false,
+                                                             defaultValue = ".*") String namePattern,
+                                                     @RequestParam(value = "topic", required = false)
+                                                             String topic,
+                                                     @RequestParam(value = "cluster", required = false)
+                                                             String cluster) {
+        logger.info("Try to stop producers. namePattern: {} / topic: {} / cluster: {}", namePattern, topic, cluster);
+        return stopFleet(ProduceWorker.class, namePattern, topic, cluster);
+    }
+
     /**
      * Handle "POST /api/worker/consumer/{name}/{topic}" to start a new consumer.
+     * With "format=BYTES" the records are consumed as byte arrays, without decoding them into strings.
+     * Each record costs what {@link ProcessingCost} parameters such as
+     * "costMills=2&costStddevMills=4&costDistribution=LOG_NORMAL&costMode=WAIT" describe.
+     * "cluster=name" runs the consumer against a cluster of {@link ClusterRegistry} instead of the default one.
      */
     @PostMapping("/consumer/{name}/{topic}")
     public ResponseEntity<CommandResult> startConsumer(@PathVariable("name") String name,
                                                        @PathVariable("topic") String topic,
                                                        @RequestParam("groupId") String groupId,
-                                                       @RequestParam(value = "interval", required = false)
-                                                               long interval,
+                                                       @RequestParam(value = "interval", required = false,
+                                                               defaultValue = "0") long interval,
                                                        @RequestParam(value = "shouldFail", required = false,
-                                                               defaultValue = "true") boolean shouldFail) {
+                                                               defaultValue = "true") boolean shouldFail,
+                                                       @RequestParam(value = "commitBatchSize", required = false,
+                                                               defaultValue = "100") int commitBatchSize,
+                                                       @RequestParam(value = "commitInterval", required = false,
+                                                               defaultValue = "1000") long commitInterval,
+                                                       @RequestParam(value = "parallel", required = false,
+                                                               defaultValue = "false") boolean parallel,
+                                                       @RequestParam(value = "maxLaneRecords", required = false,
+                                                               defaultValue = "500") int maxLaneRecords,
+                                                       @RequestParam(value = "format", required = false,
+                                                               defaultValue = "STRING") PayloadFormat format,
+                                                       @RequestParam(value = "maxPollInterval", required = false,
+                                                               defaultValue = "300000") long maxPollInterval,
+                                                       @RequestParam(value = "cluster", required = false)
+                                                               String cluster,
+                                                       ProcessingCost cost) {
         logger.info("Try to start a new consumer. name: {} / topic: {} / groupId: {} / "
-                    + "shouldFail: {} / commitInterval: {}[ms]",
-                    name, topic, groupId, shouldFail, interval);
-
-        final String id = convertId(name, topic);
-        final KafkaConsumer<String, String> consumer = new KafkaConsumer<>(createConsumerProps(groupId));
+                    + "shouldFail: {} / consumeInterval: {}[ms] / commitBatchSize: {} / commitInterval: {}[ms] / "
+                    + "parallel: {} / maxLaneRecords: {} / format: {} / maxPollInterval: {}[ms] / cluster: {} / "
+                    + "cost: {}",
+                    name, topic, groupId, shouldFail, interval, commitBatchSize, commitInterval, parallel,
+                    maxLaneRecords, format, maxPollInterval, cluster, cost);
+
+        final ConsumeOptions options = ConsumeOptions.builder()
+                                                     .commitBatchSize(commitBatchSize)
+                                                     .commitIntervalMills(commitInterval)
+                                                     .parallel(parallel)
+                                                     .maxLaneRecords(maxLaneRecords)
+                                                     .cost(cost)
+                                                     .maxPollIntervalMills(maxPollInterval)
+                                                     .build();
+        final KafkaCluster kafkaCluster;
+        try {
+            options.validate();
+            kafkaCluster = clusterRegistry.resolve(cluster);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid consumer parameters. reason: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
 
-        final ConsumeWorker worker = new ConsumeWorker(name, 0, consumer, topic, interval, shouldFail);
-        if (workers.putIfAbsent(id, worker) != null) {
+        if (startConsumerWorker(kafkaCluster, name, topic, groupId, interval, shouldFail, options, format) == null) {
             return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
 
-        consumer.subscribe(Collections.singletonList(topic), worker);
-        worker.start();
-
         return ResponseEntity.ok(CommandResult.builder()
                                               .status("created")
                                               .name(name)
                                               .topic(topic)
+                                              .cluster(kafkaCluster.getName())
                                               .metadata(ImmutableMap.<String, Object>builder()
                                                                     .put("groupId", groupId)
                                                                     .put("shouldFail", shouldFail)
                                                                     .put("interval", interval)
+                                                                    .put("commitBatchSize", commitBatchSize)
+                                                                    .put("commitInterval", commitInterval)
+                                                                    .put("parallel", parallel)
+                                                                    .put("maxLaneRecords", maxLaneRecords)
+                                                                    .put("format", format)
+                                                                    .put("maxPollInterval", maxPollInterval)
+                                                                    .put("cost", cost)
                                                                     .build()
                                               ).build());
     }
 
     /**
-     * Handle "PUT /api/worker/consumer/{name}/{topic}" to update consumer's commit state.
+     * Handle "POST /api/worker/consumers/{topic}?prefix=consumer-&count=10&groupId=consumers-1" to start
+     * consumers "consumer-1" to "consumer-10" in parallel. Takes the same parameters as a single consumer,
+     * and "from" to number the consumers from another index. At most 1000 consumers are started by a request.
+     */
+    @PostMapping("/consumers/{topic}")
+    public ResponseEntity<FleetResult> startConsumers(@PathVariable("topic") String topic,
+                                                      @RequestParam("prefix") String prefix,
+                                                      @RequestParam("count") int count,
+                                                      @RequestParam(value = "from", required = false,
+                                                              defaultValue = "1") int from,
+                                                      @RequestParam("groupId") String groupId,
+                                                      @RequestParam(value = "interval", required = false,
+                                                              defaultValue = "0") long interval,
+                                                      @RequestParam(value = "shouldFail", required = false,
+                                                              defaultValue = "true") boolean shouldFail,
+                                                      @RequestParam(value = "commitBatchSize", required = false,
+                                                              defaultValue = "100") int commitBatchSize,
+                                                      @RequestParam(value = "commitInterval", required = false,
+                                                              defaultValue = "1000") long commitInterval,
+                                                      @RequestParam(value = "parallel", required = false,
+                                                              defaultValue = "false") boolean parallel,
+                                                      @RequestParam(value = "maxLaneRecords", required = false,
+                                                              defaultValue = "500") int maxLaneRecords,
+                                                      @RequestParam(value = "format", required = false,
+                                                              defaultValue = "STRING") PayloadFormat format,
+                                                      @RequestParam(value = "maxPollInterval", required = false,
+                                                              defaultValue = "300000") long maxPollInterval,
+                                                      @RequestParam(value = "cluster", required = false)
+                                                              String cluster,
+                                                      ProcessingCost cost) {
+        logger.info("Try to start consumers. prefix: {} / count: {} / topic: {} / groupId: {} / "
+                    + "shouldFail: {} / consumeInterval: {}[ms] / commitBatchSize: {} / commitInterval: {}[ms] / "
+                    + "parallel: {} / maxLaneRecords: {} / format: {} / maxPollInterval: {}[ms] / cluster: {} / "
+                    + "cost: {}",
+                    prefix, count, topic, groupId, shouldFail, interval, commitBatchSize, commitInterval,
+                    parallel, maxLaneRecords, format, maxPollInterval, cluster, cost);
+
+        // the workers only read the cost, so the whole fleet shares it
+        final ConsumeOptions options = ConsumeOptions.builder()
+                                                     .commitBatchSize(commitBatchSize)
+                                                     .commitIntervalMills(commitInterval)
+                                                     .parallel(parallel)
+                                                     .maxLaneRecords(maxLaneRecords)
+                                                     .cost(cost)
+                                                     .maxPollIntervalMills(maxPollInterval)
+                                                     .build();
+        final KafkaCluster kafkaCluster;
+        try {
+            checkArgument(count > 0 && count <= MAX_FLEET_SIZE, "count must be between 1 and %s", MAX_FLEET_SIZE);
+            options.validate();
+            kafkaCluster = clusterRegistry.resolve(cluster);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid consumer parameters. reason: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(runFleet("created", topic, kafkaCluster.getName(), fleetNames(prefix, from, count),
+                                          name -> startConsumerWorker(kafkaCluster, name, topic, groupId, interval,
+                                                                      shouldFail, options, format) != null));
+    }
+
+    /**
+     * Handle "PUT /api/worker/consumer/{name}/{topic}" to update consumer's commit state, only if it runs against
+     * "cluster" when it's given.
      */
     @PutMapping("/consumer/{name}/{topic}")
     public ResponseEntity<CommandResult> updateConsumer(@PathVariable("name") String name,
@@ -157,25 +403,28 @@ public class WorkerController {
                                                         @RequestParam(value = "interval", required = false)
                                                                 Long interval,
                                                         @RequestParam(value = "shouldFail", required = false)
-                                                                Boolean shouldFail) {
+                                                                Boolean shouldFail,
+                                                        @RequestParam(value = "cluster", required = false)
+                                                                String cluster) {
         logger.info("Try to update a consumer. name: {} / topic: {} / groupId: {} / "
-                    + "shouldFail: {} / commitInterval: {}[ms]",
-                    name, topic, groupId, shouldFail, interval);
+                    + "shouldFail: {} / commitInterval: {}[ms] / cluster: {}",
+                    name, topic, groupId, shouldFail, interval, cluster);
 
         final String id = convertId(name, topic);
         final AbstractWorker worker = workers.get(id);
 
-        if (!(worker instanceof ConsumeWorker)) {
+        if (!(worker instanceof ConsumeWorker) || !inCluster(worker, cluster)) {
             return ResponseEntity.notFound().build();
         }
 
-        final ConsumeWorker consumeWorker = (ConsumeWorker) worker;
+        final ConsumeWorker<?> consumeWorker = (ConsumeWorker<?>) worker;
         consumeWorker.update(interval, shouldFail);
 
         return ResponseEntity.ok(CommandResult.builder()
                                               .status("updated")
                                               .name(name)
                                               .topic(topic)
+                                              .cluster(worker.getCluster())
                                               .metadata(ImmutableMap.<String, Object>builder()
                                                                     .put("groupId", groupId)
                                                                     .put("shouldFail", consumeWorker.isShouldFail())
@@ -185,16 +434,138 @@ public class WorkerController {
     }
 
     /**
-     * Handle "DELETE /api/worker/consumer/{name}/{topic}" to terminate the consumer.
+     * Handle "DELETE /api/worker/consumer/{name}/{topic}" to terminate the consumer, only if it runs against "cluster"
+     * when it's given.
      */
     @DeleteMapping("/consumer/{name}/{topic}")
     public ResponseEntity<CommandResult> stopConsumer(@PathVariable("name") String name,
-                                                      @PathVariable("topic") String topic) {
-        logger.info("Try to stop a consumer. name: {} / topic: {}", name, topic);
+                                                      @PathVariable("topic") String topic,
+                                                      @RequestParam(value = "cluster", required = false)
+                                                              String cluster) {
+        logger.info("Try to stop a consumer. name: {} / topic: {} / cluster: {}", name, topic, cluster);
+
+        final String id = convertId(name, topic);
+        final AbstractWorker worker = workers.get(id);
+        if (!(worker instanceof ConsumeWorker) || !inCluster(worker, cluster)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        workers.remove(id);
+        worker.stop();
+
+        return ResponseEntity.ok(CommandResult.builder()
+                                              .status("deleted")
+                                              .name(id)
+                                              .topic(topic)
+                                              .cluster(worker.getCluster())
+                                              .build());
+    }
+
+    /**
+     * Handle "DELETE /api/worker/consumers?namePattern=consumer-.*&topic=topic1&cluster=default" to terminate
+     * the consumers whose name matches the pattern in parallel. Without parameters, every consumer is terminated.
+     */
+    @DeleteMapping("/consumers")
+    public ResponseEntity<FleetResult> stopConsumers(@RequestParam(value = "namePattern", required = false,
+                                                             defaultValue = ".*") String namePattern,
+                                                     @RequestParam(value = "topic", required = false)
+                                                             String topic,
+                                                     @RequestParam(value = "cluster", required = false)
+                                                             String cluster) {
+        logger.info("Try to stop consumers. namePattern: {} / topic: {} / cluster: {}", namePattern, topic, cluster);
+        return stopFleet(ConsumeWorker.class, namePattern, topic, cluster);
+    }
+
+    /**
+     * Handle "POST /api/worker/transformer/{name}/{topic}?outputTopic=topic2&groupId=transformers-1" to start a
+     * worker which copies the records of the topic to the output topic exactly once, committing the offsets of
+     * every poll of up to "recordsPerTransaction" records in the transaction of their copies.
+     */
+    @PostMapping("/transformer/{name}/{topic}")
+    public ResponseEntity<CommandResult> startTransformer(@PathVariable("name") String name,
+                                                          @PathVariable("topic") String topic,
+                                                          @RequestParam("outputTopic") String outputTopic,
+                                                          @RequestParam("groupId") String groupId,
+                                                          @RequestParam(value = "recordsPerTransaction",
+                                                                  required = false, defaultValue = "100")
+                                                                  int recordsPerTransaction,
+                                                          @RequestParam(value = "format", required = false,
+                                                                  defaultValue = "STRING") PayloadFormat format,
+                                                          @RequestParam(value = "cluster", required = false)
+                                                                  String cluster) {
+        logger.info("Try to start a new transformer. name: {} / topic: {} / outputTopic: {} / groupId: {} / "
+                    + "recordsPerTransaction: {} / format: {} / cluster: {}",
+                    name, topic, outputTopic, groupId, recordsPerTransaction, format, cluster);
+
+        final KafkaCluster kafkaCluster;
+        try {
+            checkArgument(recordsPerTransaction > 0, "recordsPerTransaction must be greater than 0");
+            checkArgument(!topic.equals(outputTopic), "outputTopic must not be the consumed topic");
+            kafkaCluster = clusterRegistry.resolve(cluster);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid transformer parameters. reason: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        final String id = convertId(name, topic);
+        if (workers.contains(id)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        final Properties consumerProps = createConsumerProps(kafkaCluster, groupId, format, 300000L);
+        consumerProps.put("isolation.level", "read_committed");
+        consumerProps.put("max.poll.records", recordsPerTransaction);
+        final Properties producerProps = kafkaCluster.clientProps();
+        producerProps.put("key.serializer", format.getSerializer());
+        producerProps.put("value.serializer", format.getSerializer());
+        producerProps.put("transactional.id", id);
+
+        final KafkaConsumer<Object, Object> consumer = new KafkaConsumer<>(consumerProps);
+        final KafkaProducer<Object, Object> producer = new KafkaProducer<>(producerProps);
+        final TransformWorker<Object> worker = new TransformWorker<>(name, consumer, producer, topic, outputTopic,
+                                                                     groupId,
+                                                                     WorkerMetrics.transformer(meterRegistry, name,
+                                                                                               topic,
+                                                                                               kafkaCluster.getName()),
+                                                                     workerScheduler);
+        if (!workers.register(id, worker)) {
+            consumer.close();
+            producer.close();
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        consumer.subscribe(Collections.singletonList(topic));
+        worker.start();
+
+        return ResponseEntity.ok(CommandResult.builder()
+                                              .status("created")
+                                              .name(id)
+                                              .topic(topic)
+                                              .cluster(kafkaCluster.getName())
+                                              .metadata(ImmutableMap.<String, Object>builder()
+                                                                    .put("outputTopic", outputTopic)
+                                                                    .put("groupId", groupId)
+                                                                    .put("recordsPerTransaction",
+                                                                         recordsPerTransaction)
+                                                                    .put("format", format)
+                                                                    .build())
+                                              .build());
+    }
+
+    /**
+     * Handle "DELETE /api/worker/transformer/{name}/{topic}" to terminate the transformer, only if it runs against
+     * "cluster" when it's given.
+     */
+    @DeleteMapping("/transformer/{name}/{topic}")
+    public ResponseEntity<CommandResult> stopTransformer(@PathVariable("name") String name,
+                                                         @PathVariable("topic") String topic,
+                                                         @RequestParam(value = "cluster", required = false)
+                                                                 String cluster) {
+        logger.info("Try to stop a transformer. name: {} / topic: {} / cluster: {}", name, topic, cluster);
 
         final String id = convertId(name, topic);
         final AbstractWorker worker = workers.get(id);
-        if (!(worker instanceof ConsumeWorker)) {
+        if (!(worker instanceof TransformWorker) || !inCluster(worker, cluster)) {
             return ResponseEntity.notFound().build();
         }
 
@@ -205,44 +576,180 @@ public class WorkerController {
                                               .status("deleted")
                                               .name(id)
                                               .topic(topic)
+                                              .cluster(worker.getCluster())
                                               .build());
     }
 
+    /**
+     * Handle "GET /api/worker/consumer/leader?cluster=default" to get the owners of the consumed partitions by
+     * cluster and topic, of every cluster unless "cluster" is given.
+     */
     @GetMapping("/consumer/leader")
-    public ResponseEntity<Map<String, TopicSummary>> getPartitionAssigned() {
-        final Stream<ConsumeWorker> consumers = workers.values()
-                                                       .stream()
-                                                       .filter(w -> w instanceof ConsumeWorker)
-                                                       .map(w -> (ConsumeWorker) w);
-
-        final Map<String, TopicSummary> topics = new HashMap<>();
-
-        consumers.forEach(c -> {
-            final String topic = c.getTopic();
-            final TopicSummary summary = topics.computeIfAbsent(topic, k -> new TopicSummary(topic, new ArrayList<>()));
-            summary.getPartitions().addAll(
-                    c.getAssignedTopics()
-                     .stream()
-                     .map(p -> PartitionSummary.builder()
-                                               .partition(p.partition())
-                                               .consumerName(c.getName())
-                                               .build())
-                     .collect(Collectors.toList())
-            );
-        });
-
-        return ResponseEntity.ok(topics);
+    public ResponseEntity<Map<String, Map<String, TopicSummary>>> getPartitionAssigned(
+            @RequestParam(value = "cluster", required = false)
+                    String cluster) {
+        final Map<String, Map<String, TopicSummary>> snapshot = assignmentIndex.getSnapshot();
+        if (cluster == null) {
+            return ResponseEntity.ok(snapshot);
+        }
+        return ResponseEntity.ok(snapshot.containsKey(cluster)
+                                 ? Collections.singletonMap(cluster, snapshot.get(cluster))
+                                 : Collections.emptyMap());
+    }
+
+    private Payloads<?> createPayloads(double rate, int maxInFlight, boolean shared, LoadProfile loadProfile) {
+        checkArgument(rate >= 0D, "rate must be greater than or equal to 0");
+        checkArgument(maxInFlight >= 0, "maxInFlight must be greater than or equal to 0");
+        // a transaction spans every record of its producer, whichever worker sent it
+        checkArgument(!shared || !loadProfile.isTransactional(), "a transactional producer can't be shared");
+        return new PayloadGenerator(loadProfile).payloads();
+    }
+
+    /**
+     * Creates and starts a producer, or returns null if a worker with the same name and topic already exists.
+     */
+    private <T> ProduceWorker<T> startProducerWorker(KafkaCluster cluster, String name, String topic, long interval,
+                                                     double rate, int maxInFlight, boolean shared,
+                                                     Payloads<T> payloads) {
+        final String id = convertId(name, topic);
+        if (workers.contains(id)) {
+            return null;
+        }
+
+        final Properties props = createProducerProps(cluster, payloads.getProfile(), id);
+        final Producer<T, T> producer = shared ? producerPool.acquire(cluster.getName(), topic, props)
+                                               : new KafkaProducer<>(props);
+        final WorkerMetrics metrics = WorkerMetrics.producer(meterRegistry, name, topic, cluster.getName());
+        // a target rate without an in-flight limit is paced one record at a time
+        final ProduceWorker<T> worker = maxInFlight > 0 || rate > 0D
+                                        ? new ProduceWorker<>(name, producer, topic, payloads, rate,
+                                                              Math.max(maxInFlight, 1), metrics, workerScheduler)
+                                        : new ProduceWorker<>(name, interval, producer, topic, payloads, metrics,
+                                                              workerScheduler);
+
+        if (!workers.register(id, worker)) {
+            producer.close();
+            return null;
+        }
+
+        worker.start();
+        return worker;
+    }
+
+    /**
+     * Creates and starts a consumer, or returns null if a worker with the same name and topic already exists.
+     */
+    private ConsumeWorker<?> startConsumerWorker(KafkaCluster cluster, String name, String topic, String groupId,
+                                                 long interval, boolean shouldFail, ConsumeOptions options,
+                                                 PayloadFormat format) {
+        final String id = convertId(name, topic);
+        if (workers.contains(id)) {
+            return null;
+        }
+
+        final KafkaConsumer<Object, Object> consumer = new KafkaConsumer<>(
+                createConsumerProps(cluster, groupId, format, options.getMaxPollIntervalMills()));
+        final WorkerMetrics metrics = WorkerMetrics.consumer(meterRegistry, name, topic, cluster.getName());
+        final ConsumeWorker<Object> worker = new ConsumeWorker<>(name, 0, consumer, topic, groupId, interval,
+                                                                 shouldFail, options,
+                                                                 WorkerListener.of(workerListeners), metrics,
+                                                                 workerScheduler);
+        if (!workers.register(id, worker)) {
+            consumer.close();
+            return null;
+        }
+
+        consumer.subscribe(Collections.singletonList(topic), worker);
+        worker.start();
+        return worker;
+    }
+
+    private ResponseEntity<FleetResult> stopFleet(Class<? extends AbstractWorker> type, String namePattern,
+                                                  String topic, String cluster) {
+        final Pattern pattern;
+        try {
+            pattern = Pattern.compile(namePattern);
+        } catch (PatternSyntaxException e) {
+            logger.warn("Invalid name pattern. reason: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        final List<String> ids = workers.getWorkers()
+                                        .entrySet()
+                                        .stream()
+                                        .filter(e -> type.isInstance(e.getValue()))
+                                        .filter(e -> topic == null || topic.equals(e.getValue().getTopic()))
+                                        .filter(e -> inCluster(e.getValue(), cluster))
+                                        .filter(e -> pattern.matcher(e.getValue().getName()).matches())
+                                        .map(Entry::getKey)
+                                        .sorted()
+                                        .collect(Collectors.toList());
+
+        return ResponseEntity.ok(runFleet("deleted", topic, cluster, ids, id -> {
+            final AbstractWorker worker = workers.remove(id);
+            if (worker == null) {
+                return false;
+            }
+            worker.stop();
+            return true;
+        }));
+    }
+
+    /**
+     * Runs the command for every name on the fleet executor and waits for all of them. A command returns
+     * false to skip a name, for example because the worker already exists.
+     */
+    private FleetResult runFleet(String status, String topic, String cluster, List<String> names,
+                                 Predicate<String> command) {
+        final long startNanos = System.nanoTime();
+        final List<CompletableFuture<Boolean>> futures =
+                names.stream()
+                     .map(name -> CompletableFuture.supplyAsync(() -> command.test(name), fleetExecutor))
+                     .collect(Collectors.toList());
+
+        final List<String> succeeded = new ArrayList<>();
+        final List<String> skipped = new ArrayList<>();
+        final List<String> failed = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            try {
+                if (futures.get(i).join()) {
+                    succeeded.add(names.get(i));
+                } else {
+                    skipped.add(names.get(i));
+                }
+            } catch (CompletionException e) {
+                logger.warn("[{}] Exception occur while running a bulk command", names.get(i), e.getCause());
+                failed.add(names.get(i));
+            }
+        }
+
+        return FleetResult.builder()
+                          .status(status)
+                          .topic(topic)
+                          .cluster(cluster)
+                          .succeeded(succeeded)
+                          .skipped(skipped)
+                          .failed(failed)
+                          .elapsedMills(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+                          .build();
+    }
+
+    private static List<String> fleetNames(String prefix, int from, int count) {
+        final List<String> names = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            names.add(prefix + i);
+        }
+        return names;
     }
 
     /**
      * See https://docs.confluent.io/platform/current/installation/configuration/producer-configs.html
      */
-    private Properties createProducerProps() {
-        Properties producerProps = new Properties();
+    private Properties createProducerProps(final KafkaCluster cluster, final LoadProfile loadProfile,
+                                           final String transactionalId) {
+        Properties producerProps = cluster.clientProps();
 
-        producerProps.put("bootstrap.servers", String.join(",", kafkaProperties.getBootstrapServers()));
-        producerProps.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
-        producerProps.put("value.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+        loadProfile.putProducerConfigs(producerProps, transactionalId);
 
         return producerProps;
     }
@@ -250,22 +757,31 @@ public class WorkerController {
     /**
      * See https://docs.confluent.io/platform/current/installation/configuration/consumer-configs.html
      */
-    private Properties createConsumerProps(final String groupId) {
+    private Properties createConsumerProps(final KafkaCluster cluster, final String groupId,
+                                           final PayloadFormat format, final long maxPollIntervalMills) {
         checkNotNull(groupId, "groupId");
-        Properties consumerProps = new Properties();
+        checkNotNull(format, "format");
+        Properties consumerProps = cluster.clientProps();
 
-        consumerProps.put("bootstrap.servers", String.join(",", kafkaProperties.getBootstrapServers()));
-        consumerProps.put("key.deserializer", "org.apache.kafka.common.serialization.StringDeserializer");
-        consumerProps.put("value.deserializer", "org.apache.kafka.common.serialization.StringDeserializer");
+        consumerProps.put("key.deserializer", format.getDeserializer());
+        consumerProps.put("value.deserializer", format.getDeserializer());
         consumerProps.put("group.id", groupId);
         consumerProps.put("auto.offset.reset", "latest");
         consumerProps.put("enable.auto.commit", false);
+        consumerProps.put("max.poll.interval.ms", (int) maxPollIntervalMills);
 
         return consumerProps;
     }
 
     private String convertId(String name, String topic) {
-        return String.format("%s_%s", name, topic);
+        return WorkerRegistry.id(name, topic);
+    }
+
+    /**
+     * Returns true if the cluster isn't given or the worker runs against it.
+     */
+    private static boolean inCluster(AbstractWorker worker, String cluster) {
+        return cluster == null || cluster.equals(worker.getCluster());
     }
 
     @Data
@@ -276,6 +792,7 @@ public class WorkerController {
         private String status;
         private String name;
         private String topic;
+        private String cluster;
         private Map<String, Object> metadata;
     }
 
@@ -283,17 +800,14 @@ public class WorkerController {
     @NoArgsConstructor
     @AllArgsConstructor
     @Builder
-    private static class TopicSummary {
+    private static class FleetResult {
+        private String status;
         private String topic;
-        private List<PartitionSummary> partitions;
-    }
-
-    @Data
-    @NoArgsConstructor
-    @AllArgsConstructor
-    @Builder
-    private static class PartitionSummary {
-        private int partition;
-        private String consumerName;
+        private String cluster;
+        private List<String> succeeded;
+        // names of workers which already existed or were already stopped
+        private List<String> skipped;
+        private List<String> failed;
+        private long elapsedMills;
     }
 }
@@ -0,0 +1,26 @@
+package demo.worker;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counters of a worker since it was created, and its records per second over the last 1, 10 and 60 seconds.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WorkerCounters {
+    private long records;
+    // serialized keys and values
+    private long bytes;
+    private long errors;
+    private long commits;
+    private double rate1s;
+    private double rate10s;
+    private double rate60s;
+    // epoch millis, null before the first commit
+    private Long lastCommitTimestamp;
+}
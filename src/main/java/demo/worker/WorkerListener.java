@@ -0,0 +1,51 @@
+package demo.worker;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Callbacks of workers. They are invoked on the thread running the worker, so they must not block.
+ */
+public interface WorkerListener {
+
+    WorkerListener NOOP = new WorkerListener() {};
+
+    /**
+     * Returns a listener which calls every listener in order.
+     */
+    static WorkerListener of(List<? extends WorkerListener> listeners) {
+        if (listeners.isEmpty()) {
+            return NOOP;
+        }
+        return new WorkerListener() {
+            @Override
+            public void onPartitionsAssigned(ConsumeWorker<?> worker, Collection<TopicPartition> partitions) {
+                listeners.forEach(listener -> listener.onPartitionsAssigned(worker, partitions));
+            }
+
+            @Override
+            public void onPartitionsRevoked(ConsumeWorker<?> worker, Collection<TopicPartition> partitions) {
+                listeners.forEach(listener -> listener.onPartitionsRevoked(worker, partitions));
+            }
+
+            @Override
+            public void onStopped(ConsumeWorker<?> worker) {
+                listeners.forEach(listener -> listener.onStopped(worker));
+            }
+        };
+    }
+
+    default void onPartitionsAssigned(ConsumeWorker<?> worker, Collection<TopicPartition> partitions) {
+    }
+
+    default void onPartitionsRevoked(ConsumeWorker<?> worker, Collection<TopicPartition> partitions) {
+    }
+
+    /**
+     * Called once the consumer of the worker is closed.
+     */
+    default void onStopped(ConsumeWorker<?> worker) {
+    }
+}
@@ -0,0 +1,282 @@
+package demo.worker;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import demo.cluster.ClusterRegistry;
+
+/**
+ * Micrometer meters of a single worker, tagged by worker name, topic, worker type and Kafka cluster.
+ * <p>
+ * Latencies are recorded into timers which keep HdrHistogram based percentiles (p50/p99/p999) and publish
+ * a percentile histogram for Prometheus. Throughput is published both as a counter and as a per-second gauge.
+ * The heap allocated by the runs of the worker is published as a counter and as bytes per record, which
+ * includes the serialization or deserialization done by the Kafka client on the worker's thread.
+ * <p>
+ * Records, serialized bytes, errors and commits are also summed in {@link LongAdder}s, which threads update
+ * without contending on a shared cell, so that {@link #snapshot()} reads them without touching the registry.
+ */
+public class WorkerMetrics {
+
+    public static final String RECORDS = "worker.records";
+    public static final String THROUGHPUT = "worker.throughput";
+    public static final String SEND_LATENCY = "worker.produce.send.latency";
+    public static final String POLL_LATENCY = "worker.consume.poll.latency";
+    public static final String PROCESS_LATENCY = "worker.consume.process.latency";
+    public static final String COMMIT_LATENCY = "worker.consume.commit.latency";
+    public static final String PROCESSING_COST = "worker.consume.processing.cost";
+    public static final String ALLOCATED_BYTES = "worker.allocated.bytes";
+    public static final String ALLOCATION_PER_RECORD = "worker.allocation.per.record";
+    public static final String BYTES = "worker.bytes";
+    public static final String ERRORS = "worker.errors";
+    public static final String COMMITS = "worker.commits";
+
+    private final MeterRegistry registry;
+    private final Tags tags;
+    private final String type;
+    private final String cluster;
+    private final List<Meter> meters = new ArrayList<>();
+    private final ThroughputMeter throughput = new ThroughputMeter(60);
+    private final LongAdder totalRecords = new LongAdder();
+    private final LongAdder totalAllocatedBytes = new LongAdder();
+    private final LongAdder totalBytes = new LongAdder();
+    private final LongAdder totalErrors = new LongAdder();
+    private final LongAdder totalCommits = new LongAdder();
+    // 0 until the first commit
+    private volatile long lastCommitTimestamp;
+    private Counter records;
+    private Counter bytes;
+    private Counter errors;
+    private Counter commits;
+    private Counter allocatedBytes;
+    private Timer sendLatency;
+    private Timer pollLatency;
+    private Timer processLatency;
+    private Timer commitLatency;
+    private Timer processingCost;
+
+    public static WorkerMetrics producer(MeterRegistry registry, String name, String topic) {
+        return producer(registry, name, topic, ClusterRegistry.DEFAULT_CLUSTER);
+    }
+
+    public static WorkerMetrics producer(MeterRegistry registry, String name, String topic, String cluster) {
+        return new WorkerMetrics(registry, name, topic, "producer", cluster);
+    }
+
+    public static WorkerMetrics consumer(MeterRegistry registry, String name, String topic) {
+        return consumer(registry, name, topic, ClusterRegistry.DEFAULT_CLUSTER);
+    }
+
+    public static WorkerMetrics consumer(MeterRegistry registry, String name, String topic, String cluster) {
+        return new WorkerMetrics(registry, name, topic, "consumer", cluster);
+    }
+
+    public static WorkerMetrics transformer(MeterRegistry registry, String name, String topic) {
+        return transformer(registry, name, topic, ClusterRegistry.DEFAULT_CLUSTER);
+    }
+
+    public static WorkerMetrics transformer(MeterRegistry registry, String name, String topic, String cluster) {
+        return new WorkerMetrics(registry, name, topic, "transformer", cluster);
+    }
+
+    private WorkerMetrics(MeterRegistry registry, String name, String topic, String type, String cluster) {
+        this.registry = checkNotNull(registry, "registry");
+        this.tags = Tags.of("worker", name, "topic", topic, "type", type, "cluster", cluster);
+        this.type = type;
+        this.cluster = cluster;
+    }
+
+    /**
+     * Registers the meters of this worker. Called when the worker starts, so that a worker which is never
+     * started doesn't touch the meters of another worker with the same name.
+     */
+    public void register() {
+        records = register(Counter.builder(RECORDS)
+                                  .description("Number of records produced or consumed")
+                                  .tags(tags)
+                                  .register(registry));
+        bytes = register(Counter.builder(BYTES)
+                                .description("Serialized bytes of the keys and values produced or consumed")
+                                .baseUnit("bytes")
+                                .tags(tags)
+                                .register(registry));
+        errors = register(Counter.builder(ERRORS)
+                                 .description("Failed sends, commits and runs, and invalid records")
+                                 .tags(tags)
+                                 .register(registry));
+        commits = register(Counter.builder(COMMITS)
+                                  .description("Successful offset commits")
+                                  .tags(tags)
+                                  .register(registry));
+        register(Gauge.builder(THROUGHPUT, throughput, t -> t.rate(1))
+                      .description("Records per second over the last completed second")
+                      .baseUnit("records")
+                      .tags(tags)
+                      .register(registry));
+        if (ThreadAllocation.isSupported()) {
+            allocatedBytes = register(Counter.builder(ALLOCATED_BYTES)
+                                             .description("Bytes allocated on the heap by the worker's runs")
+                                             .baseUnit("bytes")
+                                             .tags(tags)
+                                             .register(registry));
+            register(Gauge.builder(ALLOCATION_PER_RECORD, this, WorkerMetrics::getAllocatedBytesPerRecord)
+                          .description("Bytes allocated on the heap per record produced or consumed")
+                          .baseUnit("bytes")
+                          .tags(tags)
+                          .register(registry));
+        }
+        if ("producer".equals(type)) {
+            sendLatency = timer(SEND_LATENCY, "Time from send to broker acknowledgement");
+        } else {
+            pollLatency = timer(POLL_LATENCY, "Time spent in a single consumer poll");
+        }
+        if ("consumer".equals(type)) {
+            processLatency = timer(PROCESS_LATENCY, "Time spent processing a single record");
+            processingCost = timer(PROCESSING_COST, "Processing cost drawn for a single record");
+        }
+        commitLatency = timer(COMMIT_LATENCY, "Time from offset or transaction commit to its completion");
+    }
+
+    public void recordRecords(long count) {
+        records.increment(count);
+        throughput.record(count);
+        totalRecords.add(count);
+    }
+
+    /**
+     * Records the serialized size of a record, -1 for a null key or value as reported by the Kafka client.
+     */
+    public void recordBytes(int keySize, int valueSize) {
+        final long size = Math.max(keySize, 0) + Math.max(valueSize, 0);
+        totalBytes.add(size);
+        bytes.increment(size);
+    }
+
+    public void recordError() {
+        totalErrors.increment();
+        errors.increment();
+    }
+
+    public void recordCommit() {
+        totalCommits.increment();
+        commits.increment();
+        lastCommitTimestamp = System.currentTimeMillis();
+    }
+
+    public void recordAllocatedBytes(long bytes) {
+        totalAllocatedBytes.add(bytes);
+        if (allocatedBytes != null) {
+            allocatedBytes.increment(bytes);
+        }
+    }
+
+    public void recordSendLatency(long nanos) {
+        sendLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPollLatency(long nanos) {
+        pollLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordProcessLatency(long nanos) {
+        processLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCommitLatency(long nanos) {
+        commitLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordProcessingCost(long nanos) {
+        processingCost.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getCluster() {
+        return cluster;
+    }
+
+    public ThroughputMeter getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Returns the number of records produced or consumed since the worker was created.
+     */
+    public long getTotalRecords() {
+        return totalRecords.sum();
+    }
+
+    /**
+     * Returns the epoch millis of the last successful commit, or 0 before the first one.
+     */
+    public long getLastCommitTimestamp() {
+        return lastCommitTimestamp;
+    }
+
+    /**
+     * Returns the counters and rates of the worker. Each counter is read once, so the values are those of about
+     * the same instant but not of a single one while the worker runs.
+     */
+    public WorkerCounters snapshot() {
+        return WorkerCounters.builder()
+                             .records(totalRecords.sum())
+                             .bytes(totalBytes.sum())
+                             .errors(totalErrors.sum())
+                             .commits(totalCommits.sum())
+                             .rate1s(throughput.rate(1))
+                             .rate10s(throughput.rate(10))
+                             .rate60s(throughput.rate(60))
+                             .lastCommitTimestamp(lastCommitTimestamp == 0L ? null : lastCommitTimestamp)
+                             .build();
+    }
+
+    /**
+     * Returns the bytes allocated on the heap per record since the worker was created, or NaN before the first
+     * record or if the JVM can't measure it.
+     */
+    public double getAllocatedBytesPerRecord() {
+        final long records = totalRecords.sum();
+        if (records == 0L || !ThreadAllocation.isSupported()) {
+            return Double.NaN;
+        }
+        return (double) totalAllocatedBytes.sum() / records;
+    }
+
+    /**
+     * Removes every meter of this worker from the registry.
+     */
+    public void remove() {
+        for (Meter meter : meters) {
+            registry.remove(meter);
+        }
+        meters.clear();
+    }
+
+    private Timer timer(String name, String description) {
+        return register(Timer.builder(name)
+                             .description(description)
+                             .tags(tags)
+                             .publishPercentiles(0.5, 0.99, 0.999)
+                             .publishPercentileHistogram()
+                             .register(registry));
+    }
+
+    private <T extends Meter> T register(T meter) {
+        meters.add(meter);
+        return meter;
+    }
+}
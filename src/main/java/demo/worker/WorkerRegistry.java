@@ -0,0 +1,58 @@
+package demo.worker;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Running workers keyed by "{name}_{topic}", shared by the {@link WorkerController} and the components which
+ * report on workers.
+ */
+@Component
+public class WorkerRegistry {
+
+    private final Map<String, AbstractWorker> workers = new ConcurrentHashMap<>();
+
+    public static String id(String name, String topic) {
+        return String.format("%s_%s", name, topic);
+    }
+
+    public AbstractWorker get(String id) {
+        return workers.get(id);
+    }
+
+    public boolean contains(String id) {
+        return workers.containsKey(id);
+    }
+
+    /**
+     * Registers the worker unless a worker with the same id exists, and returns whether it was registered.
+     */
+    public boolean register(String id, AbstractWorker worker) {
+        return workers.putIfAbsent(id, worker) == null;
+    }
+
+    public AbstractWorker remove(String id) {
+        return workers.remove(id);
+    }
+
+    /**
+     * Removes the worker unless another worker was registered under its id, and returns whether it was removed.
+     */
+    public boolean remove(String id, AbstractWorker worker) {
+        return workers.remove(id, worker);
+    }
+
+    /**
+     * Returns a read-only view of the workers by id.
+     */
+    public Map<String, AbstractWorker> getWorkers() {
+        return Collections.unmodifiableMap(workers);
+    }
+
+    public int size() {
+        return workers.size();
+    }
+}
@@ -0,0 +1,61 @@
+package demo.worker;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Small, shared scheduler that multiplexes every worker.
+ * <p>
+ * A worker never owns a thread. Each run of a worker is a short task on this scheduler and the wait until its
+ * next run is a timer, so thousands of workers can share a pool sized to the number of cores.
+ */
+@Slf4j
+@Component
+public class WorkerScheduler {
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    public WorkerScheduler(@Value("${demo.worker.scheduler-threads:0}") int threads) {
+        final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("worker-scheduler-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ScheduledThreadPoolExecutor(poolSize, threadFactory);
+        // stopped workers cancel their pending run, so don't keep cancelled timers in the queue
+        executor.setRemoveOnCancelPolicy(true);
+        logger.info("Worker scheduler started with {} threads", poolSize);
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return executor.schedule(task, delay, unit);
+    }
+
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+}
@@ -0,0 +1,26 @@
+package demo.worker;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A worker of the {@link WorkerRegistry} as listed by "GET /api/worker".
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WorkerSnapshot {
+    private String id;
+    private String name;
+    // producer, consumer or transformer
+    private String type;
+    private String cluster;
+    private String topic;
+    // null for producers
+    private String group;
+    private WorkerState state;
+    private WorkerCounters counters;
+}
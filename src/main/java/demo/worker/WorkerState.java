@@ -0,0 +1,12 @@
+package demo.worker;
+
+public enum WorkerState {
+    // registered but not started yet
+    NEW,
+    RUNNING,
+    // a pipelined producer whose rate was updated to 0
+    PAUSED,
+    // signaled to stop, flushing or committing for the last time
+    STOPPING,
+    STOPPED
+}
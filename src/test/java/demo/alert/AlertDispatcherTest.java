@@ -0,0 +1,195 @@
+package demo.alert;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import demo.alert.AlertProperties.OverflowPolicy;
+import demo.event.EventType;
+import demo.event.StoredEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AlertDispatcherTest {
+
+    private final List<AlertDispatcher> dispatchers = new ArrayList<>();
+    private HttpServer server;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        for (AlertDispatcher dispatcher : dispatchers) {
+            dispatcher.tearDown();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testBatchesAreRetriedUntilDelivered() throws Exception {
+        final RecordingSink sink = new RecordingSink(2);
+        final AlertDispatcher dispatcher = dispatcher(new AlertProperties(), sink, retry(3));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(dispatcher.submit(event(i))).isTrue();
+        }
+
+        await(() -> dispatcher.getStats().getSinks().get(0).getSent() == 5L);
+        final SinkStats stats = dispatcher.getStats().getSinks().get(0);
+        // the 5 events lingered into a single batch, which failed twice
+        assertThat(sink.batches).hasSize(1);
+        assertThat(sink.batches.get(0)).extracting(StoredEvent::getSeq).containsExactly(0L, 1L, 2L, 3L, 4L);
+        assertThat(stats.getRetries()).isEqualTo(2L);
+        assertThat(stats.getDroppedFailed()).isZero();
+    }
+
+    @Test
+    public void testFullQueueBlocksSubmittersUpToTheTimeout() throws Exception {
+        final AlertProperties properties = new AlertProperties();
+        properties.setQueueCapacity(2);
+        properties.setBatchSize(1);
+        properties.setSinkQueueBatches(1);
+        properties.setOverflow(OverflowPolicy.BLOCK);
+        properties.setBlockTimeout(Duration.ofMillis(100L));
+        final BlockingSink sink = new BlockingSink();
+        final AlertDispatcher dispatcher = dispatcher(properties, sink, retry(1));
+
+        // the sink holds the first event, its queue the second one, the dispatcher waits with the third one
+        // and the queue takes 2 more
+        dispatcher.submit(event(0));
+        assertThat(sink.entered.await(5L, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i < 5; i++) {
+            assertThat(dispatcher.submit(event(i))).isTrue();
+            final int depth = Math.max(0, i - 2);
+            await(() -> dispatcher.getStats().getQueueDepth() == depth);
+        }
+        final long startNanos = System.nanoTime();
+        assertThat(dispatcher.submit(event(5))).isFalse();
+        final long blockedMills = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        assertThat(blockedMills).isBetween(100L, 1000L);
+        assertThat(dispatcher.getStats().getDropped()).isEqualTo(1L);
+        sink.release.countDown();
+        await(() -> dispatcher.getStats().getSinks().get(0).getSent() == 5L);
+    }
+
+    @Test
+    public void testWebhookPostsBatchesToTheStub() throws Exception {
+        final AtomicInteger status = new AtomicInteger(503);
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        final ObjectMapper objectMapper = new ObjectMapper();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/alerts", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                received.add(objectMapper.readTree(body).size());
+            }
+            exchange.sendResponseHeaders(status.getAndSet(200), -1L);
+            exchange.close();
+        });
+        server.start();
+        final String url = "http://localhost:" + server.getAddress().getPort() + "/alerts";
+        final AlertDispatcher dispatcher = dispatcher(new AlertProperties(),
+                                                      new WebhookAlertSink(url, Duration.ofSeconds(2L),
+                                                                           new RestTemplateBuilder()),
+                                                      retry(2));
+
+        dispatcher.submit(event(0));
+        dispatcher.submit(event(1));
+
+        await(() -> dispatcher.getStats().getSinks().get(0).getSent() == 2L);
+        // answered 503 first, then delivered on the retry
+        assertThat(received).containsExactly(2, 2);
+        assertThat(dispatcher.getStats().getSinks().get(0).getRetries()).isEqualTo(1L);
+    }
+
+    private AlertDispatcher dispatcher(AlertProperties properties, AlertSink sink, AlertProperties.Sink retry) {
+        final AlertDispatcher dispatcher = new AlertDispatcher(properties, Collections.singletonMap(sink, retry),
+                                                               new SimpleMeterRegistry());
+        dispatchers.add(dispatcher);
+        return dispatcher;
+    }
+
+    private static AlertProperties.Sink retry(int maxAttempts) {
+        final AlertProperties.Sink retry = new AlertProperties.Sink();
+        retry.setEnabled(true);
+        retry.setMaxAttempts(maxAttempts);
+        retry.setBackoff(Duration.ofMillis(10L));
+        return retry;
+    }
+
+    private static StoredEvent event(long seq) {
+        return StoredEvent.builder()
+                          .seq(seq)
+                          .type(EventType.OPEN)
+                          .groups(Collections.singleton("consumers-1"))
+                          .build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition wasn't met in time");
+            }
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+    }
+
+    private static class RecordingSink implements AlertSink {
+
+        private final List<List<StoredEvent>> batches = new CopyOnWriteArrayList<>();
+        private int failures;
+
+        RecordingSink(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public String getName() {
+            return "recording";
+        }
+
+        @Override
+        public void send(List<StoredEvent> batch) throws IOException {
+            if (failures-- > 0) {
+                throw new IOException("unavailable");
+            }
+            batches.add(batch);
+        }
+    }
+
+    private static class BlockingSink implements AlertSink {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String getName() {
+            return "blocking";
+        }
+
+        @Override
+        public void send(List<StoredEvent> batch) throws InterruptedException {
+            entered.countDown();
+            release.await();
+        }
+    }
+}
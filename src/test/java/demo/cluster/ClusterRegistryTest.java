@@ -0,0 +1,91 @@
+package demo.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+
+public class ClusterRegistryTest {
+
+    private final KafkaProperties kafkaProperties = new KafkaProperties();
+    private final ClusterProperties properties = new ClusterProperties();
+    private ClusterRegistry registry;
+
+    @AfterEach
+    public void tearDown() {
+        if (registry != null) {
+            registry.tearDown();
+        }
+    }
+
+    @Test
+    public void testDefaultClusterFromKafkaProperties() {
+        kafkaProperties.setBootstrapServers(Arrays.asList("localhost:9092", "localhost:9093"));
+        properties.getClusters().put("remote", cluster("remote:9092", "security.protocol", "SSL"));
+        registry = new ClusterRegistry(properties, kafkaProperties);
+
+        assertThat(registry.getNames()).containsExactly(ClusterRegistry.DEFAULT_CLUSTER, "remote");
+        final KafkaCluster cluster = registry.resolve(null);
+        assertThat(cluster.getName()).isEqualTo(ClusterRegistry.DEFAULT_CLUSTER);
+        assertThat(cluster.isDefaultCluster()).isTrue();
+        assertThat(cluster.clientProps()).containsEntry("bootstrap.servers", "localhost:9092,localhost:9093");
+        assertThat(registry.resolve("remote").clientProps()).containsEntry("bootstrap.servers", "remote:9092")
+                                                           .containsEntry("security.protocol", "SSL");
+        assertThatThrownBy(() -> registry.resolve("unknown")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testDefaultClusterKeepsSecurityAndAdminSettings() {
+        kafkaProperties.getSecurity().setProtocol("SSL");
+        kafkaProperties.getSsl().setProtocol("TLSv1.2");
+        kafkaProperties.getSsl().setKeyPassword("secret");
+        kafkaProperties.getAdmin().getProperties().put("request.timeout.ms", "5000");
+        kafkaProperties.getProperties().put("sasl.mechanism", "PLAIN");
+        registry = new ClusterRegistry(properties, kafkaProperties);
+
+        assertThat(registry.resolve(null).clientProps()).containsEntry("bootstrap.servers", "localhost:9092")
+                                                        .containsEntry("security.protocol", "SSL")
+                                                        .containsEntry("ssl.protocol", "TLSv1.2")
+                                                        .containsEntry("request.timeout.ms", "5000")
+                                                        .containsEntry("sasl.mechanism", "PLAIN")
+                                                        .containsEntry("ssl.key.password", "secret");
+        // the configs may hold credentials, so they're left out of log lines
+        assertThat(registry.resolve(null).toString()).doesNotContain("secret");
+    }
+
+    @Test
+    public void testConfiguredDefaultCluster() {
+        properties.setDefaultCluster("local");
+        properties.getClusters().put("local", cluster("local:9092"));
+        registry = new ClusterRegistry(properties, kafkaProperties);
+
+        assertThat(registry.getNames()).containsExactly("local");
+        assertThat(registry.resolve(null).getBootstrapServers()).isEqualTo("local:9092");
+    }
+
+    @Test
+    public void testShareAdminClientPerCluster() {
+        // resolvable, since the client resolves the bootstrap servers when it's created
+        properties.getClusters().put("remote", cluster("localhost:19092"));
+        registry = new ClusterRegistry(properties, kafkaProperties);
+
+        final AdminClient admin = registry.admin(null);
+        assertThat(registry.admin(ClusterRegistry.DEFAULT_CLUSTER)).isSameAs(admin);
+        assertThat(registry.admin("remote")).isNotSameAs(admin);
+    }
+
+    private static ClusterProperties.Cluster cluster(String bootstrapServers, String... properties) {
+        final ClusterProperties.Cluster cluster = new ClusterProperties.Cluster();
+        cluster.setBootstrapServers(Collections.singletonList(bootstrapServers));
+        for (int i = 0; i < properties.length; i += 2) {
+            cluster.getProperties().put(properties[i], properties[i + 1]);
+        }
+        return cluster;
+    }
+}
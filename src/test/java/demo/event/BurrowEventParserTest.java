@@ -0,0 +1,57 @@
+package demo.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class BurrowEventParserTest {
+
+    private static final String SAMPLE_DIR = "tools/compose/burrow/sample";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BurrowEventParser parser = new BurrowEventParser(objectMapper);
+
+    @Test
+    public void testParseOpenEvent() throws Exception {
+        final Event event = parser.parse(sampleBody("http-post2-sample.json"), "burrow-2");
+
+        assertThat(event.getBurrowId()).isEqualTo("burrow-2");
+        assertThat(event.getApp()).isEqualTo("burrow");
+        assertThat(event.getEvents()).hasSize(1);
+
+        final GroupEvent groupEvent = event.getEvents().get(0);
+        assertThat(groupEvent.getId()).isEqualTo("441a11f8-ad9e-4cb8-9154-880593d420e2");
+        assertThat(groupEvent.getSeverity()).isEqualTo("ERR");
+        assertThat(groupEvent.getGroup()).isEqualTo("consumers-1");
+        assertThat(groupEvent.getPartitions()).hasSize(1);
+
+        final PartitionEvent partition = groupEvent.getPartitions().get(0);
+        assertThat(partition.getTopic()).isEqualTo("topic1");
+        assertThat(partition.getPartition()).isEqualTo(0);
+        assertThat(partition.getClientId()).isEqualTo("consumer-consumers-1-1");
+        assertThat(partition.getStatus()).isEqualTo("STALL");
+        assertThat(partition.getStart().getLag()).isEqualTo(19L);
+        assertThat(partition.getEnd().getTimestamp()).isEqualTo(1632584227816L);
+        assertThat(partition.getCurrentLag()).isEqualTo(42L);
+    }
+
+    @Test
+    public void testParseCloseEvent() throws Exception {
+        final Event event = parser.parse(sampleBody("http-delete-sample.json"), null);
+
+        assertThat(event.getIds()).containsExactly("8a330a6f-3702-41a3-b215-89ff44d0335f");
+        assertThat(event.getStart()).startsWith("2021-09-25 14:38:16");
+        assertThat(event.getEvents()).isNull();
+    }
+
+    private StringReader sampleBody(String fileName) throws Exception {
+        final JsonNode sample = objectMapper.readTree(new File(SAMPLE_DIR, fileName));
+        return new StringReader(objectMapper.writeValueAsString(sample.get("body")));
+    }
+}
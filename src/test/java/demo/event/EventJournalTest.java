@@ -0,0 +1,174 @@
+package demo.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import demo.alert.AlertDispatcher;
+import demo.alert.AlertProperties;
+import demo.event.PartitionEvent.OffsetSnapshot;
+import demo.stream.StreamHub;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class EventJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<EventJournal> journals = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        journals.forEach(EventJournal::tearDown);
+    }
+
+    @Test
+    public void testReplayAfterRestart() throws Exception {
+        final EventRecorder recorder = recorder(new EventStore(100), journal(DataSize.ofMegabytes(1L)));
+        final StoredEvent open = recorder.record(EventType.OPEN, openEvent("id-1", "consumers-1", "topic1"));
+        recorder.record(EventType.CLOSE, Event.builder().ids(Collections.singletonList("id-1")).build());
+
+        final EventStore store = new EventStore(100);
+        recorder(store, journal(DataSize.ofMegabytes(1L))).replay();
+        final StoredEvent next = store.append(EventType.OPEN, openEvent("id-2", "consumers-1", "topic1"));
+
+        assertThat(store.get(0L)).isEqualTo(open);
+        assertThat(store.get(1L).getGroups()).containsExactly("consumers-1");
+        assertThat(next.getSeq()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testQueryPastTheStore() throws Exception {
+        final EventStore store = new EventStore(3);
+        final EventJournal journal = journal(DataSize.ofBytes(512L));
+        final EventRecorder recorder = recorder(store, journal);
+        for (int i = 0; i < 20; i++) {
+            recorder.record(EventType.OPEN, openEvent("id-" + i, "consumers-" + i % 2, "topic1"));
+        }
+        final EventHistory history = new EventHistory(store, journal);
+
+        final EventQuery query = new EventQuery();
+        query.setGroup("consumers-0");
+        query.setSize(4);
+        final List<Long> seqs = new ArrayList<>();
+        EventPage page;
+        do {
+            page = history.query(query);
+            page.getEvents().forEach(e -> seqs.add(e.getSeq()));
+            query.setCursor(page.getNextCursor());
+        } while (page.getNextCursor() != null);
+
+        assertThat(journal.getSegmentCount()).isGreaterThan(1);
+        assertThat(seqs).containsExactly(18L, 16L, 14L, 12L, 10L, 8L, 6L, 4L, 2L, 0L);
+        assertThat(history.query(new EventQuery()).getEvents().get(0).getEvent().getEvents().get(0).getId())
+                .isEqualTo("id-19");
+    }
+
+    @Test
+    public void testRetentionDeletesOldestSegments() throws Exception {
+        final EventJournal journal = journal(DataSize.ofBytes(512L));
+        final EventStore store = new EventStore(100);
+        for (int i = 0; i < 50; i++) {
+            journal.append(store.append(EventType.OPEN, openEvent("id-" + i, "consumers-1", "topic1")));
+        }
+        final int segments = journal.getSegmentCount();
+
+        final EventJournalProperties properties = properties(DataSize.ofBytes(512L));
+        properties.setMaxBytes(DataSize.ofBytes(1024L));
+        final EventJournal reopened = open(properties);
+
+        assertThat(reopened.getSegmentCount()).isLessThan(segments);
+        assertThat(reopened.size()).isLessThanOrEqualTo(1024L + 512L);
+        assertThat(reopened.getLastSeq()).isEqualTo(49L);
+    }
+
+    @Test
+    public void testTruncateTornRecord() throws Exception {
+        final EventJournal journal = journal(DataSize.ofMegabytes(1L));
+        final EventStore store = new EventStore(100);
+        for (int i = 0; i < 3; i++) {
+            journal.append(store.append(EventType.OPEN, openEvent("id-" + i, "consumers-1", "topic1")));
+        }
+        journal.tearDown();
+        final Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.collect(Collectors.toList()).get(0);
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        final EventStore restored = new EventStore(100);
+        final EventJournal reopened = journal(DataSize.ofMegabytes(1L));
+        reopened.replay(100, restored::restore);
+        reopened.append(restored.append(EventType.OPEN, openEvent("id-3", "consumers-1", "topic1")));
+
+        assertThat(restored.size()).isEqualTo(3);
+        assertThat(reopened.getLastSeq()).isEqualTo(2L);
+        assertThat(reopened.query(new EventQuery(), Long.MAX_VALUE, 10).getEvents())
+                .extracting(StoredEvent::getSeq).containsExactly(2L, 1L, 0L);
+    }
+
+    private EventRecorder recorder(EventStore store, EventJournal journal) {
+        return new EventRecorder(store, new EventLogger(), new StreamHub(10, 0L), journal, new IncidentTable(10),
+                                 new AlertDispatcher(new AlertProperties(), Collections.emptyMap(),
+                                                     new SimpleMeterRegistry()));
+    }
+
+    private EventJournal journal(DataSize segmentBytes) throws IOException {
+        return open(properties(segmentBytes));
+    }
+
+    private EventJournal open(EventJournalProperties properties) throws IOException {
+        final EventJournal journal = new EventJournal(properties);
+        journal.open();
+        journals.add(journal);
+        return journal;
+    }
+
+    private EventJournalProperties properties(DataSize segmentBytes) {
+        final EventJournalProperties properties = new EventJournalProperties();
+        properties.setEnabled(true);
+        properties.setDir(dir.toString());
+        properties.setSegmentBytes(segmentBytes);
+        return properties;
+    }
+
+    private static Event openEvent(String id, String group, String topic) {
+        final PartitionEvent partition = PartitionEvent.builder()
+                                                       .topic(topic)
+                                                       .partition(1)
+                                                       .status("WARN")
+                                                       .start(new OffsetSnapshot(10L, 1000L, 1001L, 5L))
+                                                       .currentLag(-3L)
+                                                       .complete(0.5D)
+                                                       .build();
+        final GroupEvent groupEvent = GroupEvent.builder()
+                                                .id(id)
+                                                .severity("WARN")
+                                                .group(group)
+                                                .complete(1.0D)
+                                                .partitions(Collections.singletonList(partition))
+                                                .build();
+        return Event.builder()
+                    .burrowId("burrow-1")
+                    .app("burrow")
+                    .events(Collections.singletonList(groupEvent))
+                    .build();
+    }
+}
@@ -0,0 +1,109 @@
+package demo.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class EventStoreTest {
+
+    @Test
+    public void testEvictOldestEvents() {
+        final EventStore store = new EventStore(3);
+        for (int i = 0; i < 5; i++) {
+            store.append(EventType.OPEN, openEvent("id-" + i, "group-" + i, "topic1", "WARN"));
+        }
+
+        final EventPage page = store.query(new EventQuery());
+
+        assertThat(store.size()).isEqualTo(3);
+        assertThat(page.getEvents()).extracting(StoredEvent::getSeq).containsExactly(4L, 3L, 2L);
+        assertThat(page.getNextCursor()).isNull();
+        assertThat(store.query(query("group-1", null, null)).getEvents()).isEmpty();
+    }
+
+    @Test
+    public void testFilterByIndexes() {
+        final EventStore store = new EventStore(100);
+        store.append(EventType.OPEN, openEvent("id-1", "consumers-1", "topic1", "WARN"));
+        store.append(EventType.OPEN, openEvent("id-2", "consumers-2", "topic2", "ERR"));
+        store.append(EventType.OPEN, openEvent("id-3", "consumers-1", "topic2", "ERR"));
+        store.append(EventType.CLOSE, closeEvent("id-1"));
+
+        assertThat(seqs(store.query(query("consumers-1", null, null)))).containsExactly("3", "2", "0");
+        assertThat(seqs(store.query(query(null, "topic2", null)))).containsExactly("2", "1");
+        assertThat(seqs(store.query(query("consumers-1", null, "ERR")))).containsExactly("2");
+
+        final EventQuery closeOnly = query("consumers-1", null, null);
+        closeOnly.setIncludeOpen(false);
+        assertThat(seqs(store.query(closeOnly))).containsExactly("3");
+    }
+
+    @Test
+    public void testPaging() {
+        final EventStore store = new EventStore(100);
+        for (int i = 0; i < 5; i++) {
+            store.append(EventType.OPEN, openEvent("id-" + i, "consumers-1", "topic1", "WARN"));
+        }
+
+        final EventQuery query = query("consumers-1", null, null);
+        query.setSize(2);
+        final EventPage first = store.query(query);
+        query.setCursor(first.getNextCursor());
+        final EventPage second = store.query(query);
+        query.setCursor(second.getNextCursor());
+        final EventPage third = store.query(query);
+
+        assertThat(seqs(first)).containsExactly("4", "3");
+        assertThat(seqs(second)).containsExactly("2", "1");
+        assertThat(seqs(third)).containsExactly("0");
+        assertThat(third.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void testFilterByTime() throws Exception {
+        final EventStore store = new EventStore(100);
+        store.append(EventType.OPEN, openEvent("id-1", "consumers-1", "topic1", "WARN"));
+        Thread.sleep(5L);
+        final long from = System.currentTimeMillis();
+        store.append(EventType.OPEN, openEvent("id-2", "consumers-1", "topic1", "WARN"));
+
+        final EventQuery query = new EventQuery();
+        query.setFrom(from);
+
+        assertThat(seqs(store.query(query))).containsExactly("1");
+    }
+
+    private static EventQuery query(String group, String topic, String severity) {
+        final EventQuery query = new EventQuery();
+        query.setGroup(group);
+        query.setTopic(topic);
+        query.setSeverity(severity);
+        return query;
+    }
+
+    private static String[] seqs(EventPage page) {
+        return page.getEvents()
+                   .stream()
+                   .map(e -> String.valueOf(e.getSeq()))
+                   .collect(Collectors.toList())
+                   .toArray(new String[0]);
+    }
+
+    private static Event openEvent(String id, String group, String topic, String severity) {
+        final PartitionEvent partition = PartitionEvent.builder().topic(topic).partition(0).build();
+        final GroupEvent groupEvent = GroupEvent.builder()
+                                                .id(id)
+                                                .severity(severity)
+                                                .group(group)
+                                                .partitions(Collections.singletonList(partition))
+                                                .build();
+        return Event.builder().events(Collections.singletonList(groupEvent)).build();
+    }
+
+    private static Event closeEvent(String id) {
+        return Event.builder().ids(Collections.singletonList(id)).build();
+    }
+}
@@ -0,0 +1,83 @@
+package demo.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class IncidentTableTest {
+
+    @Test
+    public void testCoalesceRepeatedNotifications() {
+        final IncidentTable table = new IncidentTable(10);
+        table.apply(open(1000L, "id-1", "consumers-1", "WARN", 10L, 5L));
+        table.apply(open(2000L, "id-1", "consumers-1", "ERR", 50L, 7L));
+        table.apply(open(3000L, "id-1", "consumers-1", "WARN", 20L, 9L));
+
+        final List<Incident> incidents = table.getOpen(null);
+
+        assertThat(incidents).hasSize(2);
+        final Incident first = incidents.get(0);
+        assertThat(first.getPartition()).isEqualTo(0);
+        assertThat(first.getFirstSeen()).isEqualTo(1000L);
+        assertThat(first.getLastSeen()).isEqualTo(3000L);
+        assertThat(first.getSeverity()).isEqualTo("WARN");
+        assertThat(first.getCurrentLag()).isEqualTo(20L);
+        assertThat(first.getPeakLag()).isEqualTo(50L);
+        assertThat(first.getRepeats()).isEqualTo(2L);
+        assertThat(first.getClosedAt()).isNull();
+        assertThat(incidents.get(1).getPeakLag()).isEqualTo(9L);
+    }
+
+    @Test
+    public void testCloseMovesIncidentsToBoundedHistory() {
+        final IncidentTable table = new IncidentTable(3);
+        table.apply(open(1000L, "id-1", "consumers-1", "WARN", 10L, 5L));
+        table.apply(open(1000L, "id-2", "consumers-2", "WARN", 10L, 5L));
+        table.apply(open(1000L, "id-3", "consumers-1", "ERR", 10L, 5L));
+        table.apply(close(2000L, "id-1", "id-2"));
+
+        assertThat(table.openSize()).isEqualTo(2);
+        assertThat(table.getOpen("consumers-2")).isEmpty();
+        // 4 closed rows in a history of 3
+        final List<Incident> closed = table.getClosed(null, 10);
+        assertThat(closed).hasSize(3);
+        assertThat(closed).extracting(Incident::getId).containsExactly("id-2", "id-2", "id-1");
+        assertThat(closed).extracting(Incident::getClosedAt).containsOnly(2000L);
+        assertThat(table.getClosed("consumers-1", 10)).hasSize(1);
+
+        // a late notification of a closed incident opens it again
+        table.apply(open(3000L, "id-1", "consumers-1", "WARN", 1L, 1L));
+        assertThat(table.getOpen("consumers-1")).extracting(Incident::getId).containsExactly("id-3", "id-3",
+                                                                                             "id-1", "id-1");
+    }
+
+    private static StoredEvent open(long receivedAt, String id, String group, String severity, long... lags) {
+        final PartitionEvent[] partitions = new PartitionEvent[lags.length];
+        for (int i = 0; i < lags.length; i++) {
+            partitions[i] = PartitionEvent.builder().topic("topic1").partition(i).currentLag(lags[i]).build();
+        }
+        final GroupEvent groupEvent = GroupEvent.builder()
+                                                .id(id)
+                                                .severity(severity)
+                                                .group(group)
+                                                .partitions(Arrays.asList(partitions))
+                                                .build();
+        return StoredEvent.builder()
+                          .receivedAt(receivedAt)
+                          .type(EventType.OPEN)
+                          .event(Event.builder().events(Collections.singletonList(groupEvent)).build())
+                          .build();
+    }
+
+    private static StoredEvent close(long receivedAt, String... ids) {
+        return StoredEvent.builder()
+                          .receivedAt(receivedAt)
+                          .type(EventType.CLOSE)
+                          .event(Event.builder().ids(Arrays.asList(ids)).build())
+                          .build();
+    }
+}
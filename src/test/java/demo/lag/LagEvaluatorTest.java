@@ -0,0 +1,102 @@
+package demo.lag;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+
+import demo.alert.AlertDispatcher;
+import demo.alert.AlertProperties;
+import demo.cluster.ClusterProperties;
+import demo.cluster.ClusterRegistry;
+import demo.event.EventJournal;
+import demo.event.EventJournalProperties;
+import demo.event.EventLogger;
+import demo.event.EventRecorder;
+import demo.event.EventStore;
+import demo.event.Incident;
+import demo.event.IncidentTable;
+import demo.stream.StreamHub;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LagEvaluatorTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("topic1", 0);
+
+    private final IncidentTable incidentTable = new IncidentTable(10);
+    private final StubOffsetReader offsetReader = new StubOffsetReader();
+    private final ClusterRegistry clusterRegistry = new ClusterRegistry(new ClusterProperties(),
+                                                                        new KafkaProperties());
+    private final LagEvaluator evaluator = new LagEvaluator(new LagEvaluatorProperties(), offsetReader,
+                                                            clusterRegistry, recorder());
+
+    @Test
+    public void testCloseIncidentOfDeletedGroup() {
+        // the committed offset never moves while the end offset grows, so the partition stalls
+        for (int i = 0; i < 5; i++) {
+            offsetReader.groups = Collections.singletonMap("consumers-1", offsets("consumers-1"));
+            offsetReader.endOffset = 15L + i;
+            evaluator.refresh();
+        }
+        evaluator.notifyIncidents();
+        assertThat(incidentTable.getOpen("consumers-1")).extracting(Incident::getGroup)
+                                                        .containsOnly("consumers-1");
+
+        offsetReader.groups = Collections.emptyMap();
+        evaluator.refresh();
+
+        assertThat(incidentTable.getOpen(null)).isEmpty();
+        assertThat(incidentTable.getClosed("consumers-1", 10)).isNotEmpty();
+        assertThat(evaluator.getStatuses().get(ClusterRegistry.DEFAULT_CLUSTER)).isEmpty();
+
+        // nothing is left to close
+        evaluator.notifyIncidents();
+        assertThat(incidentTable.getClosed("consumers-1", 10)).hasSize(1);
+    }
+
+    private EventRecorder recorder() {
+        return new EventRecorder(new EventStore(100), new EventLogger(), new StreamHub(10, 0L),
+                                 new EventJournal(new EventJournalProperties()), incidentTable,
+                                 new AlertDispatcher(new AlertProperties(), Collections.emptyMap(),
+                                                     new SimpleMeterRegistry()));
+    }
+
+    private static GroupOffsets offsets(String group) {
+        return GroupOffsets.builder()
+                           .group(group)
+                           .active(true)
+                           .committed(Collections.singletonMap(PARTITION, 10L))
+                           .build();
+    }
+
+    private static class StubOffsetReader extends ConsumerGroupOffsetReader {
+
+        private Map<String, GroupOffsets> groups = Collections.emptyMap();
+        private long endOffset;
+        private long timestamp;
+
+        StubOffsetReader() {
+            super(null);
+        }
+
+        @Override
+        public OffsetsSnapshot read(String cluster, Predicate<String> groupFilter) {
+            timestamp += 1000L;
+            final Map<TopicPartition, Long> endOffsets = new HashMap<>();
+            endOffsets.put(PARTITION, endOffset);
+            return OffsetsSnapshot.builder()
+                                  .cluster(cluster)
+                                  .timestamp(timestamp)
+                                  .groups(groups)
+                                  .endOffsets(endOffsets)
+                                  .build();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package demo.lag;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class LagSeriesTest {
+
+    @Test
+    public void testDropOldestChunkWhenFull() {
+        final LagSeries series = new LagSeries(200);
+        for (int i = 0; i < 1000; i++) {
+            // irregular intervals and a committed offset going backward once in a while
+            series.append(1000L * i + (i % 3), 10L * i - (i % 7 == 0 ? 5L : 0L), 12L * i);
+        }
+
+        assertThat(series.size()).isBetween(200, 200 + 2 * LagSeries.CHUNK_SAMPLES - 1);
+        assertThat(series.bytes()).isLessThan(series.size() * 8L);
+        final List<long[]> samples = new ArrayList<>();
+        series.scan(Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, committed, end) -> samples.add(
+                new long[] { timestamp, committed, end }));
+        assertThat(samples).hasSize(series.size());
+        final int first = 1000 - samples.size();
+        for (int n = 0; n < samples.size(); n++) {
+            final int i = first + n;
+            assertThat(samples.get(n)).containsExactly(1000L * i + (i % 3), 10L * i - (i % 7 == 0 ? 5L : 0L),
+                                                       12L * i);
+        }
+    }
+
+    @Test
+    public void testIgnoreOutOfOrderSample() {
+        final LagSeries series = new LagSeries(10);
+        series.append(2000L, 1L, 2L);
+        series.append(1000L, 3L, 4L);
+
+        assertThat(series.size()).isEqualTo(1);
+        assertThat(series.getLastTimestamp()).isEqualTo(2000L);
+    }
+
+    @Test
+    public void testDownsample() {
+        final LagSeries series = new LagSeries(100);
+        // lag: 0, 2, 4, ..., 18 every second
+        for (int i = 0; i < 10; i++) {
+            series.append(1000L * i, 10L * i, 12L * i);
+        }
+
+        final List<LagBucket> buckets = series.downsample(0L, 9999L, 2);
+
+        assertThat(buckets).hasSize(2);
+        assertThat(buckets.get(0).getStart()).isEqualTo(0L);
+        assertThat(buckets.get(0).getSamples()).isEqualTo(5);
+        assertThat(buckets.get(0).getMinLag()).isEqualTo(0L);
+        assertThat(buckets.get(0).getMaxLag()).isEqualTo(8L);
+        assertThat(buckets.get(0).getAvgLag()).isEqualTo(4.0D);
+        assertThat(buckets.get(1).getSamples()).isEqualTo(5);
+        assertThat(buckets.get(1).getMinLag()).isEqualTo(10L);
+        assertThat(buckets.get(1).getMaxLag()).isEqualTo(18L);
+        assertThat(buckets.get(1).getAvgLag()).isEqualTo(14.0D);
+        assertThat(buckets.get(1).getEndOffset()).isEqualTo(108L);
+        assertThat(series.downsample(2000L, 3000L, 10)).extracting(LagBucket::getMaxLag).containsExactly(4L, 6L);
+    }
+}
@@ -0,0 +1,72 @@
+package demo.lag;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class PartitionWindowTest {
+
+    @Test
+    public void testOkWhenLagWasZero() {
+        final PartitionWindow window = window(new long[] { 10, 10, 10, 10, 10 }, new long[] { 5, 5, 0, 5, 5 });
+
+        assertThat(window.evaluate(true)).isEqualTo(LagStatus.OK);
+    }
+
+    @Test
+    public void testOkUntilWindowIsComplete() {
+        final PartitionWindow window = window(new long[] { 10, 10, 10 }, new long[] { 5, 6, 7 });
+
+        assertThat(window.getComplete()).isEqualTo(0.6D);
+        assertThat(window.evaluate(true)).isEqualTo(LagStatus.OK);
+    }
+
+    @Test
+    public void testStallOrStopWhenOffsetDoesNotMove() {
+        final PartitionWindow window = window(new long[] { 10, 10, 10, 10, 10 }, new long[] { 5, 6, 7, 8, 9 });
+
+        assertThat(window.evaluate(true)).isEqualTo(LagStatus.STALL);
+        assertThat(window.evaluate(false)).isEqualTo(LagStatus.STOP);
+        assertThat(window.first().getTimestamp()).isEqualTo(window.last().getTimestamp());
+    }
+
+    @Test
+    public void testWarnWhenLagNeverDecreases() {
+        final PartitionWindow window = window(new long[] { 10, 11, 12, 13, 14 }, new long[] { 5, 5, 6, 7, 8 });
+
+        assertThat(window.evaluate(true)).isEqualTo(LagStatus.WARN);
+    }
+
+    @Test
+    public void testOkWhenLagDecreases() {
+        final PartitionWindow window = window(new long[] { 10, 11, 12, 13, 14 }, new long[] { 5, 6, 4, 7, 8 });
+
+        assertThat(window.evaluate(true)).isEqualTo(LagStatus.OK);
+    }
+
+    @Test
+    public void testRewind() {
+        final PartitionWindow window = window(new long[] { 10, 11, 5 }, new long[] { 5, 6, 12 });
+
+        assertThat(window.evaluate(true)).isEqualTo(LagStatus.REWIND);
+        assertThat(LagStatus.REWIND.toGroupStatus()).isEqualTo(LagStatus.ERR);
+    }
+
+    @Test
+    public void testSlidesOverOldEntries() {
+        final PartitionWindow window = window(new long[] { 10, 10, 11, 12, 13, 14, 15 },
+                                              new long[] { 0, 5, 6, 7, 8, 9, 10 });
+
+        assertThat(window.first().getOffset()).isEqualTo(11L);
+        assertThat(window.getCurrentLag()).isEqualTo(10L);
+        assertThat(window.evaluate(true)).isEqualTo(LagStatus.WARN);
+    }
+
+    private static PartitionWindow window(long[] offsets, long[] lags) {
+        final PartitionWindow window = new PartitionWindow(5);
+        for (int i = 0; i < offsets.length; i++) {
+            window.add(offsets[i], lags[i], 1000L * i);
+        }
+        return window;
+    }
+}
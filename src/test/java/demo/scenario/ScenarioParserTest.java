@@ -0,0 +1,94 @@
+package demo.scenario;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.worker.ProcessingCost;
+
+public class ScenarioParserTest {
+
+    private final ObjectMapper objectMapper =
+            new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    @Test
+    public void testParseYaml() throws IOException {
+        final String text = new String(Files.readAllBytes(Paths.get("tools/scenario/daily.yaml")),
+                                       StandardCharsets.UTF_8);
+
+        final LoadScenario scenario = ScenarioParser.parse(text, objectMapper);
+
+        assertThat(scenario.getName()).isEqualTo("daily");
+        assertThat(scenario.isRepeat()).isTrue();
+        assertThat(scenario.getLoadProfile().getPayloadSize()).isEqualTo(256);
+        assertThat(scenario.topics()).containsExactly("topic1");
+        assertThat(scenario.durationMills()).isEqualTo(210000L);
+        assertThat(scenario.getPhases().get(1).getRates().get("topic1").getShape()).isEqualTo(RateShape.BURST);
+        assertThat(scenario.getPhases().get(1).getConsumers().get(0).getConsumeInterval()).isEqualTo(5L);
+        assertThat(scenario.getPhases().get(2).getConsumers().get(0).getCost().getCostDistribution())
+                .isEqualTo(ProcessingCost.Distribution.LOG_NORMAL);
+    }
+
+    @Test
+    public void testParseJson() {
+        final LoadScenario scenario = ScenarioParser.parse(
+                "{\"name\": \"json\", \"phases\": [{\"durationMills\": 1000, "
+                + "\"rates\": {\"topic1\": {\"shape\": \"step\", \"rate\": 10}}}]}", objectMapper);
+
+        assertThat(scenario.getTickMills()).isEqualTo(100L);
+        assertThat(scenario.getPhases().get(0).getRates().get("topic1").rateAt(500L, 1000L)).isEqualTo(10D);
+    }
+
+    @Test
+    public void testRejectInvalidScenario() {
+        assertThatThrownBy(() -> ScenarioParser.parse("name: empty\nphases: []", objectMapper))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ScenarioParser.parse(
+                "name: bad\nphases:\n  - durationMills: 1000\n    rates:\n      topic1: { shape: SQUARE }",
+                objectMapper)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ScenarioParser.parse("name: [", objectMapper))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testRejectGlobalTags() {
+        // a valid scenario, except that the tag asks snakeyaml to instantiate a class
+        assertThatThrownBy(() -> ScenarioParser.parse(
+                "!!demo.scenario.LoadScenario\nname: tagged\nphases:\n  - durationMills: 1000\n"
+                + "    rates:\n      topic1: { shape: STEP, rate: 10 }", objectMapper))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ScenarioParser.parse(
+                "name: !!javax.script.ScriptEngineManager [!!java.net.URLClassLoader [[!!java.net.URL "
+                + "[\"http://localhost/\"]]]]", objectMapper))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testRateCurves() {
+        final RateCurve ramp = RateCurve.builder().shape(RateShape.RAMP).from(100D).to(300D).build();
+        assertThat(ramp.rateAt(0L, 1000L)).isEqualTo(100D);
+        assertThat(ramp.rateAt(500L, 1000L)).isEqualTo(200D);
+        assertThat(ramp.rateAt(2000L, 1000L)).isEqualTo(300D);
+
+        final RateCurve sine = RateCurve.builder().shape(RateShape.SINE).rate(100D).amplitude(200D)
+                                        .periodMills(4000L).build();
+        assertThat(sine.rateAt(1000L, 10000L)).isCloseTo(300D, within(1e-6));
+        // never negative
+        assertThat(sine.rateAt(3000L, 10000L)).isEqualTo(0D);
+
+        final RateCurve burst = RateCurve.builder().shape(RateShape.BURST).rate(10D).burstRate(1000D)
+                                         .burstMills(100L).periodMills(1000L).build();
+        assertThat(burst.rateAt(1050L, 10000L)).isEqualTo(1000D);
+        assertThat(burst.rateAt(1100L, 10000L)).isEqualTo(10D);
+    }
+}
@@ -0,0 +1,119 @@
+package demo.storm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import demo.cluster.KafkaCluster;
+import demo.storm.StormStep.Action;
+import demo.worker.ConsumeOptions;
+import demo.worker.ConsumeWorker;
+import demo.worker.WorkerListener;
+import demo.worker.WorkerMetrics;
+import demo.worker.WorkerScheduler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RebalanceStormTest {
+
+    private static final TopicPartition PARTITION_0 = new TopicPartition("topic1", 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition("topic1", 1);
+
+    private final WorkerScheduler scheduler = new WorkerScheduler(1);
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.tearDown();
+    }
+
+    @Test
+    public void testValidateScenario() {
+        StormScenario.builder().steps(Collections.singletonList(step(5000L, Action.RESTART))).build().validate();
+
+        assertThatThrownBy(() -> StormScenario.builder().warmupMills(30000L).build().validate())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StormScenario.builder().assignor(null).build().validate())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StormScenario.builder()
+                                              .steps(Collections.singletonList(step(30000L, Action.ADD)))
+                                              .build()
+                                              .validate())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StormScenario.builder()
+                                              .steps(Collections.singletonList(step(5000L, null)))
+                                              .build()
+                                              .validate())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StormScenario.builder()
+                                              .steps(Collections.singletonList(
+                                                      StormStep.builder().atMills(5000L).action(Action.ADD)
+                                                               .count(0).build()))
+                                              .build()
+                                              .validate())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testReportRebalanceCost() throws Exception {
+        final KafkaCluster cluster = KafkaCluster.builder()
+                                                 .name("local")
+                                                 .bootstrapServers("localhost:9092")
+                                                 .properties(Collections.emptyMap())
+                                                 .build();
+        final RebalanceStorm storm = new RebalanceStorm(cluster, StormScenario.builder().build(), scheduler);
+        final ConsumeWorker<String> consumer = consumer("storm-consumer-0");
+
+        // not measured during the warmup
+        storm.onPartitionsRevoked(consumer, Collections.singletonList(PARTITION_0));
+        storm.onPartitionsAssigned(consumer, Collections.singletonList(PARTITION_0));
+
+        storm.startMeasuring();
+        storm.onPartitionsRevoked(consumer, Arrays.asList(PARTITION_0, PARTITION_1));
+        TimeUnit.MILLISECONDS.sleep(50L);
+        storm.onPartitionsAssigned(consumer, Collections.singletonList(PARTITION_0));
+        storm.onRecord(record(0L));
+        storm.onRecord(record(1L));
+        // processed again after the partition moved
+        storm.onRecord(record(1L));
+        TimeUnit.MILLISECONDS.sleep(50L);
+
+        final StormReport report = storm.report(TimeUnit.SECONDS.toNanos(1L));
+
+        assertThat(report.getAssignor()).isEqualTo("range");
+        assertThat(report.getTopic()).startsWith("storm-range-");
+        assertThat(report.getGroupId()).isEqualTo(report.getTopic() + "-group");
+        assertThat(report.getElapsedMills()).isEqualTo(1000L);
+        assertThat(report.getConsumed()).isEqualTo(3L);
+        assertThat(report.getReprocessed()).isEqualTo(1L);
+        assertThat(report.getRevocations()).isEqualTo(1L);
+        assertThat(report.getMaxRevokeToAssignMills()).isGreaterThanOrEqualTo(50D);
+        assertThat(report.getMeanRevokeToAssignMills()).isEqualTo(report.getMaxRevokeToAssignMills());
+        // partition 1 still has no owner, so its gap lasts until the report
+        assertThat(report.getMaxGapMills()).isGreaterThanOrEqualTo(100L);
+        assertThat(report.getStopTheWorldMills()).isGreaterThanOrEqualTo(150L);
+    }
+
+    private ConsumeWorker<String> consumer(String name) {
+        return new ConsumeWorker<>(name, 0L, new MockConsumer<>(OffsetResetStrategy.EARLIEST), "topic1",
+                                   "group1", 0L, false, ConsumeOptions.builder().build(), WorkerListener.NOOP,
+                                   WorkerMetrics.consumer(new SimpleMeterRegistry(), name, "topic1"), scheduler);
+    }
+
+    private static ConsumerRecord<String, String> record(long offset) {
+        return new ConsumerRecord<>("topic1", 0, offset, null, "message-" + offset);
+    }
+
+    private static StormStep step(long atMills, Action action) {
+        return StormStep.builder().atMills(atMills).action(action).build();
+    }
+}
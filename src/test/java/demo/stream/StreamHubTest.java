@@ -0,0 +1,142 @@
+package demo.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class StreamHubTest {
+
+    private final StreamHub hub = new StreamHub(3, 0L);
+
+    @AfterEach
+    public void tearDown() {
+        hub.tearDown();
+    }
+
+    @Test
+    public void testFilterMessages() throws Exception {
+        final StreamFilter filter = new StreamFilter();
+        filter.setTopic("topic1");
+        final List<StreamMessage> received = new CopyOnWriteArrayList<>();
+        hub.subscribe(filter, (seq, message) -> received.add(message));
+
+        hub.publish(throughput("producer-1", "topic1", 1L));
+        hub.publish(throughput("producer-2", "topic2", 1L));
+
+        awaitSize(received, 1);
+        assertThat(received).extracting(StreamMessage::getWorker).containsExactly("producer-1");
+    }
+
+    @Test
+    public void testCoalesceMessagesOfSlowSubscriber() throws Exception {
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<StreamMessage> slow = new CopyOnWriteArrayList<>();
+        final List<StreamMessage> fast = new CopyOnWriteArrayList<>();
+        hub.subscribe(new StreamFilter(), (seq, message) -> {
+            sending.countDown();
+            Uninterruptibles.awaitUninterruptibly(release);
+            slow.add(message);
+        });
+        hub.subscribe(new StreamFilter(), (seq, message) -> fast.add(message));
+
+        hub.publish(throughput("producer-1", "topic1", 0L));
+        assertThat(sending.await(5L, TimeUnit.SECONDS)).isTrue();
+        for (long total = 1L; total <= 100L; total++) {
+            hub.publish(throughput("producer-1", "topic1", total));
+        }
+        // the slow subscriber doesn't hold back the fast one
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+        while (totalOfLast(fast) != 100L && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        assertThat(totalOfLast(fast)).isEqualTo(100L);
+        release.countDown();
+
+        awaitSize(slow, 2);
+        assertThat(slow).extracting(m -> ((ThroughputDelta) m.getPayload()).getTotalRecords())
+                        .containsExactly(0L, 100L);
+    }
+
+    @Test
+    public void testDropOldestMessagesOfSlowSubscriber() throws Exception {
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<StreamMessage> received = new CopyOnWriteArrayList<>();
+        hub.subscribe(new StreamFilter(), (seq, message) -> {
+            sending.countDown();
+            Uninterruptibles.awaitUninterruptibly(release);
+            received.add(message);
+        });
+
+        hub.publish(event("id-0"));
+        assertThat(sending.await(5L, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i <= 5; i++) {
+            hub.publish(event("id-" + i));
+        }
+        release.countDown();
+
+        awaitSize(received, 5);
+        assertThat(received.get(1).getType()).isEqualTo(StreamMessageType.DROPPED);
+        assertThat(received.get(1).getPayload()).isEqualTo(Collections.singletonMap("dropped", 2L));
+        assertThat(received.subList(2, 5)).extracting(StreamMessage::getPayload)
+                                          .containsExactly("id-3", "id-4", "id-5");
+    }
+
+    @Test
+    public void testRemoveFailedSubscriber() throws Exception {
+        hub.subscribe(new StreamFilter(), (seq, message) -> {
+            throw new IOException("Broken pipe");
+        });
+
+        hub.publish(event("id-1"));
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+        while (hub.hasSubscribers() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        assertThat(hub.hasSubscribers()).isFalse();
+    }
+
+    private static StreamMessage throughput(String worker, String topic, long total) {
+        return StreamMessage.builder()
+                            .type(StreamMessageType.THROUGHPUT)
+                            .topics(Collections.singleton(topic))
+                            .worker(worker)
+                            .coalesceKey("throughput:" + worker)
+                            .payload(ThroughputDelta.builder().worker(worker).totalRecords(total).build())
+                            .build();
+    }
+
+    private static long totalOfLast(List<StreamMessage> messages) {
+        return messages.isEmpty() ? -1L
+                                  : ((ThroughputDelta) messages.get(messages.size() - 1).getPayload())
+                                          .getTotalRecords();
+    }
+
+    private static StreamMessage event(String id) {
+        return StreamMessage.builder()
+                            .type(StreamMessageType.EVENT)
+                            .topics(Collections.singleton("topic1"))
+                            .payload(id)
+                            .build();
+    }
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+        while (list.size() < size && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        assertThat(list).hasSize(size);
+    }
+}
@@ -0,0 +1,127 @@
+package demo.worker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AbstractWorkerTest {
+
+    private final WorkerScheduler scheduler = new WorkerScheduler(2);
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.tearDown();
+    }
+
+    @Test
+    public void testManyWorkersShareScheduler() throws Exception {
+        final List<CountingWorker> workers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final CountingWorker worker = new CountingWorker("worker-" + i, 10L, scheduler);
+            workers.add(worker);
+            worker.start();
+        }
+
+        TimeUnit.MILLISECONDS.sleep(300L);
+
+        for (CountingWorker worker : workers) {
+            worker.stop();
+            assertThat(worker.runs.get()).isGreaterThan(1);
+            assertThat(worker.stops.get()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testStopDoesNotWaitForInterval() {
+        final CountingWorker worker = new CountingWorker("slow-worker", TimeUnit.MINUTES.toMillis(10L),
+                                                        scheduler);
+        worker.start();
+
+        final long startNanos = System.nanoTime();
+        worker.stop();
+
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos)).isLessThan(5L);
+        assertThat(worker.stops.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testParkedWorkerRunsOnlyOnceWokenUp() throws Exception {
+        final ParkingWorker worker = new ParkingWorker("parked-worker", scheduler);
+        worker.start();
+
+        TimeUnit.MILLISECONDS.sleep(100L);
+        assertThat(worker.runs.get()).isEqualTo(1);
+
+        worker.wakeUp();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+        while (worker.runs.get() < 2 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        assertThat(worker.runs.get()).isEqualTo(2);
+
+        // a parked worker has no timer to cancel, but stops all the same
+        final long startNanos = System.nanoTime();
+        worker.stop();
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos)).isLessThan(5L);
+        assertThat(worker.getState()).isEqualTo(WorkerState.STOPPED);
+    }
+
+    private static class ParkingWorker extends AbstractWorker {
+
+        private final AtomicInteger runs = new AtomicInteger();
+
+        ParkingWorker(String name, WorkerScheduler scheduler) {
+            super(name, 0L, WorkerMetrics.producer(new SimpleMeterRegistry(), name, "topic"), scheduler);
+        }
+
+        @Override
+        public String getTopic() {
+            return "topic";
+        }
+
+        @Override
+        protected long workInternal() {
+            runs.incrementAndGet();
+            return PARK;
+        }
+
+        @Override
+        protected void onStop() {
+        }
+    }
+
+    private static class CountingWorker extends AbstractWorker {
+
+        private final AtomicInteger runs = new AtomicInteger();
+        private final AtomicInteger stops = new AtomicInteger();
+
+        CountingWorker(String name, long intervalMills, WorkerScheduler scheduler) {
+            super(name, intervalMills, WorkerMetrics.producer(new SimpleMeterRegistry(), name, "topic"),
+                  scheduler);
+        }
+
+        @Override
+        public String getTopic() {
+            return "topic";
+        }
+
+        @Override
+        protected long workInternal() {
+            runs.incrementAndGet();
+            return intervalNanos();
+        }
+
+        @Override
+        protected void onStop() {
+            stops.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package demo.worker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import demo.cluster.ClusterRegistry;
+
+public class AssignmentIndexTest {
+
+    private static final TopicPartition P0 = new TopicPartition("topic1", 0);
+    private static final TopicPartition P1 = new TopicPartition("topic1", 1);
+
+    private final WorkerScheduler scheduler = new WorkerScheduler(1);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AssignmentIndex index = new AssignmentIndex(registry);
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.tearDown();
+    }
+
+    @Test
+    public void testUpdateOwnersOnRebalance() {
+        final ConsumeWorker<String> first = worker("consumer-1", "group-1");
+        final ConsumeWorker<String> second = worker("consumer-2", "group-1");
+        final ConsumeWorker<String> other = worker("consumer-3", "group-2");
+
+        index.onPartitionsAssigned(first, Arrays.asList(P0, P1));
+        index.onPartitionsAssigned(other, Arrays.asList(P0, P1));
+        index.onPartitionsRevoked(first, Arrays.asList(P0, P1));
+        index.onPartitionsAssigned(second, Collections.singletonList(P1));
+        index.onPartitionsAssigned(first, Collections.singletonList(P0));
+
+        assertThat(index.getSnapshot().get(ClusterRegistry.DEFAULT_CLUSTER).get("topic1").getPartitions())
+                .extracting(PartitionSummary::getPartition, PartitionSummary::getGroup,
+                            PartitionSummary::getConsumerName)
+                .containsExactly(tuple(0, "group-1", "consumer-1"),
+                                 tuple(0, "group-2", "consumer-3"),
+                                 tuple(1, "group-1", "consumer-2"),
+                                 tuple(1, "group-2", "consumer-3"));
+
+        final Timer timer = registry.find(AssignmentIndex.REBALANCE_DURATION)
+                                    .tags("cluster", ClusterRegistry.DEFAULT_CLUSTER, "group", "group-1")
+                                    .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testRemoveStoppedWorker() {
+        final ConsumeWorker<String> first = worker("consumer-1", "group-1");
+        final ConsumeWorker<String> second = worker("consumer-2", "group-1");
+        index.onPartitionsAssigned(first, Collections.singletonList(P0));
+        index.onPartitionsAssigned(second, Collections.singletonList(P1));
+
+        index.onStopped(first);
+        // a late revocation must not remove the new owner
+        index.onPartitionsAssigned(second, Collections.singletonList(P0));
+        index.onPartitionsRevoked(first, Collections.singletonList(P0));
+
+        assertThat(index.getSnapshot().get(ClusterRegistry.DEFAULT_CLUSTER).get("topic1").getPartitions())
+                .extracting(PartitionSummary::getConsumerName)
+                .containsExactly("consumer-2", "consumer-2");
+
+        index.onStopped(second);
+
+        assertThat(index.getSnapshot()).isEmpty();
+    }
+
+    @Test
+    public void testSplitOwnersByCluster() {
+        final ConsumeWorker<String> local = worker("consumer-1", "group-1");
+        final ConsumeWorker<String> remote = worker("consumer-2", "group-1", "remote");
+        index.onPartitionsAssigned(local, Collections.singletonList(P0));
+        index.onPartitionsAssigned(remote, Arrays.asList(P0, P1));
+
+        // the same group on another cluster is another group, so neither takes over the other's partitions
+        assertThat(index.getSnapshot().get(ClusterRegistry.DEFAULT_CLUSTER).get("topic1").getPartitions())
+                .extracting(PartitionSummary::getConsumerName)
+                .containsExactly("consumer-1");
+        assertThat(index.getSnapshot().get("remote").get("topic1").getPartitions())
+                .extracting(PartitionSummary::getConsumerName)
+                .containsExactly("consumer-2", "consumer-2");
+
+        index.onStopped(remote);
+
+        assertThat(index.getSnapshot()).containsOnlyKeys(ClusterRegistry.DEFAULT_CLUSTER);
+    }
+
+    private ConsumeWorker<String> worker(String name, String groupId) {
+        return worker(name, groupId, ClusterRegistry.DEFAULT_CLUSTER);
+    }
+
+    private ConsumeWorker<String> worker(String name, String groupId, String cluster) {
+        return new ConsumeWorker<>(name, 0L, new MockConsumer<>(OffsetResetStrategy.EARLIEST), "topic1", groupId,
+                                   0L, false, ConsumeOptions.builder().build(), WorkerListener.NOOP,
+                                   WorkerMetrics.consumer(registry, name, "topic1", cluster), scheduler);
+    }
+}
@@ -0,0 +1,227 @@
+package demo.worker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ConsumeWorkerTest {
+
+    private static final String TOPIC = "topic1";
+    private static final List<TopicPartition> PARTITIONS = Arrays.asList(new TopicPartition(TOPIC, 0),
+                                                                         new TopicPartition(TOPIC, 1),
+                                                                         new TopicPartition(TOPIC, 2));
+
+    private final WorkerScheduler scheduler = new WorkerScheduler(4);
+    private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.tearDown();
+    }
+
+    @Test
+    public void testCommitProcessedOffsetsInBatches() throws Exception {
+        final ConsumeWorker<String> worker = startWorker(ConsumeOptions.builder().commitBatchSize(5).build());
+        addRecords(10);
+
+        awaitCommitted(10L);
+        worker.stop();
+
+        assertThat(worker.getProcessed()).isEqualTo(30L);
+        assertThat(consumer.closed()).isTrue();
+    }
+
+    @Test
+    public void testSnapshotCountsRecordsAndCommits() throws Exception {
+        final ConsumeWorker<String> worker = startWorker(ConsumeOptions.builder().commitBatchSize(5).build());
+        addRecords(10);
+
+        awaitCommitted(10L);
+        final WorkerSnapshot running = worker.snapshot();
+        worker.stop();
+
+        assertThat(running.getId()).isEqualTo("consumer-1_topic1");
+        assertThat(running.getType()).isEqualTo("consumer");
+        assertThat(running.getGroup()).isEqualTo("consumers-1");
+        assertThat(running.getState()).isEqualTo(WorkerState.RUNNING);
+        assertThat(running.getCounters().getRecords()).isEqualTo(30L);
+        assertThat(running.getCounters().getCommits()).isPositive();
+        assertThat(running.getCounters().getErrors()).isZero();
+        assertThat(running.getCounters().getLastCommitTimestamp()).isNotNull();
+        assertThat(worker.getState()).isEqualTo(WorkerState.STOPPED);
+    }
+
+    @Test
+    public void testProcessPartitionsInParallelLanes() throws Exception {
+        final ConsumeWorker<String> worker = startWorker(ConsumeOptions.builder()
+                                                                       .parallel(true)
+                                                                       .maxLaneRecords(4)
+                                                                       .build());
+        addRecords(10);
+
+        awaitCommitted(10L);
+        worker.stop();
+
+        assertThat(worker.getProcessed()).isEqualTo(30L);
+    }
+
+    @Test
+    public void testCommitOnRevocation() throws Exception {
+        final ConsumeWorker<String> worker = startWorker(ConsumeOptions.builder()
+                                                                       .parallel(true)
+                                                                       .commitBatchSize(1000)
+                                                                       .commitIntervalMills(TimeUnit.HOURS.toMillis(1L))
+                                                                       .build());
+        addRecords(10);
+        awaitProcessed(worker, 30L);
+
+        // nothing is due yet, so only the revocation commits the offsets
+        consumer.schedulePollTask(() -> worker.onPartitionsRevoked(PARTITIONS));
+
+        awaitCommitted(10L);
+        worker.stop();
+    }
+
+    @Test
+    public void testWaitCostDelaysRecordsAndFlagsRiskyPolls() throws Exception {
+        final ProcessingCost cost = new ProcessingCost();
+        cost.setCostMills(5D);
+        cost.setCostMode(ProcessingCost.Mode.WAIT);
+        final ConsumeWorker<String> worker = startWorker(ConsumeOptions.builder()
+                                                                       .cost(cost)
+                                                                       .maxPollIntervalMills(150L)
+                                                                       .build());
+        final long startNanos = System.nanoTime();
+        addRecords(10);
+
+        awaitCommitted(10L);
+        final long elapsedMills = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        worker.stop();
+
+        // 30 records waiting 5ms each, one after the other
+        assertThat(elapsedMills).isGreaterThanOrEqualTo(150L);
+        assertThat(worker.getRiskyPolls()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testCpuCostDoesNotDelayOtherWorkers() throws Exception {
+        final WorkerScheduler sharedScheduler = new WorkerScheduler(1);
+        try {
+            final ProcessingCost cost = new ProcessingCost();
+            cost.setCostMills(10D);
+            final ConsumeWorker<String> worker = startWorker(ConsumeOptions.builder().cost(cost).build(),
+                                                             sharedScheduler);
+            // 300 records spinning for 10ms each keep the only thread busy for 3s
+            addRecords(100);
+            awaitProcessed(worker, 1L);
+
+            final MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(),
+                                                                             new StringSerializer());
+            final ProduceWorker<String> produceWorker = new ProduceWorker<>(
+                    "producer-1", 1L, producer, TOPIC, new PayloadGenerator(new LoadProfile()),
+                    WorkerMetrics.producer(new SimpleMeterRegistry(), "producer-1", TOPIC), sharedScheduler);
+            produceWorker.start();
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+            while (producer.history().size() < 10 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(5L);
+            }
+            final long processed = worker.getProcessed();
+            produceWorker.stop();
+            worker.stop();
+
+            // the producer ran between the records of the same poll
+            assertThat(producer.history()).hasSizeGreaterThanOrEqualTo(10);
+            assertThat(processed).isLessThan(300L);
+        } finally {
+            sharedScheduler.tearDown();
+        }
+    }
+
+    @Test
+    public void testByteRecordsAreCheckedAgainstTheirSerializedSize() {
+        final byte[] value = new byte[16];
+
+        assertThat(ConsumeWorker.isIntact(new ConsumerRecord<>(TOPIC, 0, 0L, 0L, TimestampType.CREATE_TIME, 0L, 0,
+                                                               16, null, value))).isTrue();
+        assertThat(ConsumeWorker.isIntact(new ConsumerRecord<>(TOPIC, 0, 0L, 0L, TimestampType.CREATE_TIME, 0L, 0,
+                                                               32, null, value))).isFalse();
+        assertThat(ConsumeWorker.isIntact(new ConsumerRecord<>(TOPIC, 0, 0L, null, "value"))).isTrue();
+    }
+
+    private ConsumeWorker<String> startWorker(ConsumeOptions options) {
+        return startWorker(options, scheduler);
+    }
+
+    private ConsumeWorker<String> startWorker(ConsumeOptions options, WorkerScheduler workerScheduler) {
+        final ConsumeWorker<String> worker = new ConsumeWorker<>("consumer-1", 0L, consumer, TOPIC, "consumers-1",
+                                                                 0L, false, options, WorkerListener.NOOP,
+                                                                 WorkerMetrics.consumer(new SimpleMeterRegistry(),
+                                                                                        "consumer-1", TOPIC),
+                                                                 workerScheduler);
+        final Map<TopicPartition, Long> beginningOffsets = new HashMap<>();
+        PARTITIONS.forEach(p -> beginningOffsets.put(p, 0L));
+        consumer.subscribe(Collections.singletonList(TOPIC), worker);
+        consumer.rebalance(PARTITIONS);
+        consumer.updateBeginningOffsets(beginningOffsets);
+        worker.start();
+        return worker;
+    }
+
+    private void addRecords(int recordsPerPartition) {
+        // MockConsumer isn't thread-safe, so hand the records over on the polling thread
+        consumer.schedulePollTask(() -> {
+            for (TopicPartition partition : PARTITIONS) {
+                for (int offset = 0; offset < recordsPerPartition; offset++) {
+                    consumer.addRecord(new ConsumerRecord<>(TOPIC, partition.partition(), offset, null,
+                                                            "message-" + offset));
+                }
+            }
+        });
+    }
+
+    private static void awaitProcessed(ConsumeWorker<String> worker, long records) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (worker.getProcessed() < records) {
+            if (System.nanoTime() >= deadline) {
+                throw new AssertionError("records weren't processed: " + worker.getProcessed());
+            }
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+    }
+
+    private void awaitCommitted(long offset) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (System.nanoTime() < deadline) {
+            final Map<TopicPartition, OffsetAndMetadata> committed = committed();
+            if (committed.size() == PARTITIONS.size()
+                && committed.values().stream().allMatch(o -> o != null && o.offset() == offset)) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        throw new AssertionError("offsets weren't committed: " + committed());
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> committed() {
+        return consumer.committed(new HashSet<>(PARTITIONS));
+    }
+}
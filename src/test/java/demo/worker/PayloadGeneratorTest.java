@@ -0,0 +1,98 @@
+package demo.worker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import demo.worker.LoadProfile.KeyDistribution;
+
+public class PayloadGeneratorTest {
+
+    @Test
+    public void testFixedPayloadWithoutKeys() {
+        final LoadProfile profile = new LoadProfile();
+        profile.setPayloadSize(128);
+
+        final PayloadGenerator generator = new PayloadGenerator(profile);
+
+        assertThat(generator.nextKey()).isNull();
+        assertThat(generator.nextPayload()).hasSize(128);
+        // payloads are generated once and reused
+        assertThat(generator.nextPayload()).isSameAs(generator.nextPayload());
+    }
+
+    @Test
+    public void testRandomPayloadSize() {
+        final LoadProfile profile = new LoadProfile();
+        profile.setPayloadSize(10);
+        profile.setPayloadMaxSize(20);
+
+        final PayloadGenerator generator = new PayloadGenerator(profile);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(generator.nextPayload().length()).isBetween(10, 20);
+        }
+    }
+
+    @Test
+    public void testZipfKeysAreSkewed() {
+        final LoadProfile profile = new LoadProfile();
+        profile.setKeyCardinality(100);
+        profile.setKeyDistribution(KeyDistribution.ZIPF);
+
+        final PayloadGenerator generator = new PayloadGenerator(profile);
+        final Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            counts.merge(generator.nextKey(), 1, Integer::sum);
+        }
+
+        // with exponent 1 and 100 keys the hottest key gets ~19% of the records, a uniform key ~1%
+        assertThat(counts.get("key-0")).isGreaterThan(1000);
+        assertThat(counts.get("key-0")).isGreaterThan(counts.getOrDefault("key-99", 0) * 10);
+    }
+
+    @Test
+    public void testBytesAreEncodedOnce() {
+        final LoadProfile profile = new LoadProfile();
+        profile.setPayloadSize(64);
+        profile.setKeyCardinality(1);
+
+        final PayloadGenerator generator = new PayloadGenerator(profile);
+        final Payloads<byte[]> bytes = generator.bytes();
+
+        // producers send the encoded payloads whatever the format
+        assertThat(generator.payloads()).isSameAs(bytes);
+        assertThat(bytes.nextKey()).isEqualTo("key-0".getBytes(StandardCharsets.UTF_8));
+        assertThat(bytes.nextPayload()).isEqualTo(generator.nextPayload().getBytes(StandardCharsets.UTF_8));
+        // the encoded payloads are pooled like the strings
+        assertThat(bytes.nextPayload()).isSameAs(bytes.nextPayload());
+    }
+
+    @Test
+    public void testInvalidProfile() {
+        final LoadProfile profile = new LoadProfile();
+        profile.setKeyCardinality(-1);
+
+        assertThatThrownBy(() -> new PayloadGenerator(profile)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testInvalidProducerConfigs() {
+        final LoadProfile compression = new LoadProfile();
+        compression.setCompressionType("brotli");
+        final LoadProfile acks = new LoadProfile();
+        acks.setAcks("2");
+        final LoadProfile valid = new LoadProfile();
+        valid.setCompressionType("zstd");
+        valid.setAcks("all");
+
+        assertThatThrownBy(compression::validate).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(acks::validate).isInstanceOf(IllegalArgumentException.class);
+        valid.validate();
+    }
+}
@@ -0,0 +1,51 @@
+package demo.worker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class ProcessingCostTest {
+
+    @Test
+    public void testLogNormalCostHasTheConfiguredMoments() {
+        final ProcessingCost cost = new ProcessingCost();
+        cost.setCostMills(2D);
+        cost.setCostStddevMills(4D);
+        cost.setCostDistribution(ProcessingCost.Distribution.LOG_NORMAL);
+
+        final int samples = 200000;
+        double sum = 0D;
+        int overTenTimesTheMean = 0;
+        for (int i = 0; i < samples; i++) {
+            final double mills = cost.nextNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1L);
+            assertThat(mills).isGreaterThanOrEqualTo(0D);
+            sum += mills;
+            if (mills > 20D) {
+                overTenTimesTheMean++;
+            }
+        }
+
+        assertThat(sum / samples).isCloseTo(2D, within(0.2D));
+        // the long tail, ~0.7% of the records
+        assertThat(overTenTimesTheMean).isBetween(samples / 400, samples / 50);
+    }
+
+    @Test
+    public void testConstantAndDisabledCost() {
+        final ProcessingCost cost = new ProcessingCost();
+
+        assertThat(cost.isEnabled()).isFalse();
+        assertThat(cost.nextNanos()).isZero();
+
+        cost.setCostMills(1.5D);
+        cost.setCostStddevMills(10D);
+        assertThat(cost.nextNanos()).isEqualTo(1500000L);
+
+        cost.setCostMills(-1D);
+        assertThatThrownBy(cost::validate).isInstanceOf(IllegalArgumentException.class);
+    }
+}
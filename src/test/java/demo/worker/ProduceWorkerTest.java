@@ -0,0 +1,48 @@
+package demo.worker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ProduceWorkerTest {
+
+    private final WorkerScheduler scheduler = new WorkerScheduler(2);
+    private final MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(),
+                                                                             new StringSerializer());
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.tearDown();
+    }
+
+    @Test
+    public void testTransactionsAreCommittedEveryRecordsPerTransaction() throws Exception {
+        final LoadProfile profile = new LoadProfile();
+        profile.setRecordsPerTransaction(10);
+        final ProduceWorker<String> worker = new ProduceWorker<>("producer-1", producer, "topic1",
+                                                                 new PayloadGenerator(profile), 1000D, 10,
+                                                                 WorkerMetrics.producer(new SimpleMeterRegistry(),
+                                                                                        "producer-1", "topic1"),
+                                                                 scheduler);
+        worker.start();
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (producer.commitCount() < 3L && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        worker.stop();
+
+        // the open transaction is committed on stop, whatever its size
+        assertThat(producer.commitCount()).isGreaterThanOrEqualTo(3L);
+        assertThat(producer.transactionInFlight()).isFalse();
+        assertThat(producer.history()).hasSize((int) worker.getMetrics().getTotalRecords());
+        assertThat(worker.getMetrics().snapshot().getCommits()).isEqualTo(producer.commitCount());
+    }
+}
@@ -0,0 +1,70 @@
+package demo.worker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Properties;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ProducerPoolTest {
+
+    private final ProducerPool pool = new ProducerPool();
+
+    @AfterEach
+    public void tearDown() {
+        pool.tearDown();
+    }
+
+    @Test
+    public void testShareProducerOfSameClusterTopicAndConfigs() {
+        final Producer<String, String> lease1 = pool.acquire("local", "topic1", props("1"));
+        final Producer<String, String> lease2 = pool.acquire("local", "topic1", props("1"));
+        final Producer<String, String> lease3 = pool.acquire("local", "topic1", props("5"));
+        final Producer<String, String> lease4 = pool.acquire("local", "topic2", props("1"));
+        final Producer<String, String> lease5 = pool.acquire("remote", "topic1", props("1"));
+
+        assertThat(pool.size()).isEqualTo(4);
+
+        lease1.close();
+        lease2.close();
+        assertThat(pool.size()).isEqualTo(3);
+
+        lease3.close();
+        lease4.close();
+        lease5.close();
+        assertThat(pool.size()).isZero();
+    }
+
+    @Test
+    public void testCloseProducerWithLastLease() {
+        final Producer<String, String> lease1 = pool.acquire("local", "topic1", props("1"));
+        final Producer<String, String> lease2 = pool.acquire("local", "topic1", props("1"));
+
+        lease1.close();
+        // closing a lease twice must not release the producer of the other lease
+        lease1.close();
+        assertThat(pool.size()).isEqualTo(1);
+
+        lease2.close();
+        assertThat(pool.size()).isZero();
+    }
+
+    @Test
+    public void testRejectTransactions() {
+        final Producer<String, String> lease = pool.acquire("local", "topic1", props("1"));
+
+        assertThatThrownBy(lease::initTransactions).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private static Properties props(String lingerMs) {
+        final Properties props = new Properties();
+        props.put("bootstrap.servers", "localhost:9092");
+        props.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+        props.put("value.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+        props.put("linger.ms", lingerMs);
+        return props;
+    }
+}
@@ -0,0 +1,93 @@
+package demo.worker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ShutdownCoordinatorTest {
+
+    private final WorkerScheduler scheduler = new WorkerScheduler(4);
+    private final ShutdownCoordinator coordinator = new ShutdownCoordinator(20000L);
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.tearDown();
+    }
+
+    @Test
+    public void testStopWorkersInParallel() {
+        final Map<String, AbstractWorker> workers = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            final SlowStopWorker worker = new SlowStopWorker("worker-" + i, 300L, scheduler);
+            workers.put(WorkerRegistry.id(worker.getName(), worker.getTopic()), worker);
+            worker.start();
+        }
+
+        final ShutdownReport report = coordinator.shutdown(workers, Duration.ofSeconds(5L));
+
+        assertThat(report.getWorkers()).isEqualTo(4);
+        assertThat(report.getStopped()).isEqualTo(4);
+        assertThat(report.getMissed()).isEmpty();
+        // one after another would take 1200ms
+        assertThat(report.getElapsedMills()).isLessThan(1000L);
+        assertThat(workers.values()).noneMatch(AbstractWorker::isRunning);
+    }
+
+    @Test
+    public void testReportWorkersMissingDeadline() {
+        final Map<String, AbstractWorker> workers = new LinkedHashMap<>();
+        final SlowStopWorker fast = new SlowStopWorker("fast", 0L, scheduler);
+        final SlowStopWorker slow = new SlowStopWorker("slow", 2000L, scheduler);
+        workers.put("fast_topic", fast);
+        workers.put("slow_topic", slow);
+        fast.start();
+        slow.start();
+
+        final ShutdownReport report = coordinator.shutdown(workers, Duration.ofMillis(300L));
+
+        assertThat(report.getStopped()).isEqualTo(1);
+        assertThat(report.getMissed()).containsExactly("slow_topic");
+        assertThat(report.getElapsedMills()).isLessThan(1500L);
+        // onStop() sees what's left of the deadline
+        assertThat(slow.remainingAtStop).isBetween(0L, 300L);
+    }
+
+    private static class SlowStopWorker extends AbstractWorker {
+
+        private final long stopMills;
+        private volatile long remainingAtStop = -1L;
+
+        SlowStopWorker(String name, long stopMills, WorkerScheduler scheduler) {
+            super(name, 10L, WorkerMetrics.producer(new SimpleMeterRegistry(), name, "topic"), scheduler);
+            this.stopMills = stopMills;
+        }
+
+        @Override
+        public String getTopic() {
+            return "topic";
+        }
+
+        @Override
+        protected long workInternal() {
+            return intervalNanos();
+        }
+
+        @Override
+        protected void onStop() {
+            remainingAtStop = remainingStopTime().toMillis();
+            try {
+                TimeUnit.MILLISECONDS.sleep(stopMills);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
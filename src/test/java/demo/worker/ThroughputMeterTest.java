@@ -0,0 +1,91 @@
+package demo.worker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class ThroughputMeterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final ThroughputMeter meter = new ThroughputMeter(3, nanos::get);
+
+    @Test
+    public void testRateOverCompletedSeconds() {
+        meter.record(10L);
+        advanceSeconds(1);
+        meter.record(20L);
+        meter.record(10L);
+        advanceSeconds(1);
+        meter.record(100L);
+
+        // the current second isn't completed yet
+        assertThat(meter.rate(1)).isEqualTo(30D);
+        assertThat(meter.rate(2)).isEqualTo(20D);
+    }
+
+    @Test
+    public void testBucketIsResetOnRollover() {
+        for (int second = 0; second < 4; second++) {
+            meter.record(100L);
+            advanceSeconds(1);
+        }
+        // the bucket of second 0 is reused for second 4
+        meter.record(1L);
+        advanceSeconds(1);
+
+        assertThat(meter.rate(1)).isEqualTo(1D);
+        assertThat(meter.rate(3)).isEqualTo(67D);
+
+        // nothing recorded for longer than the window
+        advanceSeconds(10);
+        assertThat(meter.rate(3)).isZero();
+    }
+
+    @Test
+    public void testConcurrentAddsAreNotLostOnRollover() throws Exception {
+        final int threads = 8;
+        final int recordsPerThread = 100_000;
+        // fill every bucket, so that the adds below race to claim a bucket holding an older second
+        for (int second = 0; second < 4; second++) {
+            meter.record(1L);
+            advanceSeconds(1);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < recordsPerThread; j++) {
+                        meter.record(1L);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30L, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        advanceSeconds(1);
+
+        assertThat(meter.rate(1)).isEqualTo((double) threads * recordsPerThread);
+    }
+
+    private void advanceSeconds(long seconds) {
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+}
@@ -0,0 +1,151 @@
+package demo.worker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TransformWorkerTest {
+
+    private static final String TOPIC = "topic1";
+    private static final String OUTPUT_TOPIC = "topic2";
+    private static final List<TopicPartition> PARTITIONS = Arrays.asList(new TopicPartition(TOPIC, 0),
+                                                                         new TopicPartition(TOPIC, 1),
+                                                                         new TopicPartition(TOPIC, 2));
+
+    private final WorkerScheduler scheduler = new WorkerScheduler(2);
+    private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    // fails the given number of commits before committing
+    private final AtomicInteger commitFailures = new AtomicInteger();
+    private final MockProducer<String, String> producer = new MockProducer<String, String>(
+            true, new StringSerializer(), new StringSerializer()) {
+        @Override
+        public void commitTransaction() {
+            if (commitFailures.getAndDecrement() > 0) {
+                throw new KafkaException("commit failed");
+            }
+            super.commitTransaction();
+        }
+    };
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.tearDown();
+    }
+
+    @Test
+    public void testCopiesRecordsAndCommitsTheirOffsetsInTransactions() throws Exception {
+        final TransformWorker<String> worker = startWorker();
+        addRecords(10);
+
+        await(() -> producer.history().size() == 30);
+        worker.stop();
+
+        assertThat(producer.history()).allMatch(record -> OUTPUT_TOPIC.equals(record.topic()));
+        assertThat(lastCommittedOffsets()).containsOnlyKeys(PARTITIONS)
+                                          .allSatisfy((partition, offset) -> assertThat(offset.offset())
+                                                  .isEqualTo(10L));
+        final WorkerCounters counters = worker.getMetrics().snapshot();
+        assertThat(counters.getRecords()).isEqualTo(30L);
+        assertThat(counters.getCommits()).isEqualTo(producer.commitCount());
+        assertThat(consumer.closed()).isTrue();
+        assertThat(producer.closed()).isTrue();
+    }
+
+    @Test
+    public void testAbortedTransactionRewindsTheConsumer() throws Exception {
+        commitFailures.set(1);
+        final TransformWorker<String> worker = startWorker();
+        addRecords(10);
+
+        await(() -> worker.getMetrics().snapshot().getErrors() == 1L);
+        // the consumer was rewound, so the same records are polled again from the log
+        addRecords(10);
+
+        await(() -> producer.history().size() == 30);
+        worker.stop();
+
+        assertThat(lastCommittedOffsets().values()).extracting(OffsetAndMetadata::offset)
+                                                   .containsOnly(10L);
+        assertThat(worker.getMetrics().snapshot().getRecords()).isEqualTo(30L);
+        assertThat(worker.getMetrics().snapshot().getErrors()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testFencedWorkerStopsCopying() throws Exception {
+        // another producer with the same transactional id initialized transactions first
+        producer.initTransactionException = new ProducerFencedException("fenced");
+        final TransformWorker<String> worker = startWorker();
+
+        await(worker::isFenced);
+        worker.stop();
+
+        assertThat(producer.history()).isEmpty();
+        assertThat(worker.getMetrics().snapshot().getErrors()).isEqualTo(1L);
+    }
+
+    private TransformWorker<String> startWorker() {
+        final TransformWorker<String> worker = new TransformWorker<>("transformer-1", consumer, producer, TOPIC,
+                                                                     OUTPUT_TOPIC, "transformers-1",
+                                                                     WorkerMetrics.transformer(
+                                                                             new SimpleMeterRegistry(),
+                                                                             "transformer-1", TOPIC),
+                                                                     scheduler);
+        final Map<TopicPartition, Long> beginningOffsets = new HashMap<>();
+        PARTITIONS.forEach(p -> beginningOffsets.put(p, 0L));
+        consumer.subscribe(Collections.singletonList(TOPIC));
+        consumer.rebalance(PARTITIONS);
+        consumer.updateBeginningOffsets(beginningOffsets);
+        worker.start();
+        return worker;
+    }
+
+    private void addRecords(int recordsPerPartition) {
+        // MockConsumer isn't thread-safe, so hand the records over on the polling thread
+        consumer.schedulePollTask(() -> {
+            for (TopicPartition partition : PARTITIONS) {
+                for (int offset = 0; offset < recordsPerPartition; offset++) {
+                    consumer.addRecord(new ConsumerRecord<>(TOPIC, partition.partition(), offset, null,
+                                                            "message-" + offset));
+                }
+            }
+        });
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> lastCommittedOffsets() {
+        // offsets of every committed transaction by group, merged from the oldest
+        final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        producer.consumerGroupOffsetsHistory().forEach(byGroup -> byGroup.values().forEach(offsets::putAll));
+        return offsets;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition wasn't met in time");
+            }
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+    }
+}